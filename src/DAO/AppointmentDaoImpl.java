@@ -19,47 +19,259 @@ import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
 import model.Appointment;
 import model.User;
+import utility.DBUtil;
+import utility.QueryClass;
+import utility.UncheckedSQLException;
 
 import java.sql.*;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /**
  * Implementation of {@link DAO.DataAccessObject} to persist Appointment objects from a database.
  * @author Joseph Curtis
- * @version 2022.07.23
+ * @version 2026.10.18
  */
-public class AppointmentDaoImpl extends DataAccessObject<Appointment, User> {
+public class AppointmentDaoImpl extends DataAccessObject<Appointment, User>
+        implements PageableDAO<Appointment>, DeltaSyncDAO<Appointment> {
+
+    /** Rows fetched from the server-side cursor per round trip when streaming. */
+    public static final int DEFAULT_FETCH_SIZE = 500;
+
+    /** Most appointments held in the entity cache. */
+    public static final int ENTITY_CACHE_SIZE = 5_000;
+
+    private static final EntityCache<Appointment> cache = new EntityCache<>(ENTITY_CACHE_SIZE);
+    private static final RecordMapper<Appointment> mapper = RecordMapper.of(Appointment.class,
+            "Appointment_ID", "Title", "Description", "Location", "Type", "Start", "End",
+            "Customer_ID", "Customer_Name", "User_ID", "Contact_ID", "Contact_Name", "Email", "Version");
+
+    static {
+        // rows written by other clients are read again
+        DBUtil.getChangeFeed().addCacheListener(evictingListener(cache), "appointments");
+        // cached appointments carry their customer's name
+        DBUtil.getChangeFeed().addCacheListener(changes -> cache.invalidateAll(), "customers");
+    }
 
     /**
      * {@inheritDoc}
      */
     @Override
     public ObservableList<Appointment> getAll() throws SQLException {
-        ObservableList<Appointment> appointmentsList = FXCollections.observableArrayList();
+        return find(new AppointmentQuery());
+    }
 
-        try (Connection conn = dataSource.getConnection();
-             PreparedStatement statement = conn.prepareStatement(
-                     """
-                             SELECT Appointment_ID, Title, Description, Location, Type,
-                                    Start, End, appointments.Customer_ID, Customer_Name,
-                                    User_ID, appointments.Contact_ID, Contact_Name, Email
-                             FROM client_schedule.appointments
-                             INNER JOIN customers
-                                  ON customers.Customer_ID = appointments.Customer_ID
-                             INNER JOIN contacts
-                                  ON contacts.Contact_ID = appointments.Contact_ID
-                             """)) {
-            ResultSet resultSet = statement.executeQuery();
-
-            while (resultSet.next()) {
-                appointmentsList.add(createRecordFromResultSet(resultSet));
-            }
+    /**
+     * Gets all appointments by reading {@link DBUtil#getScanPartitions()} ranges of
+     * Appointment_ID at once, each on its own pooled connection.
+     * @see #getAllParallel(int)
+     * @return list of all appointments, in ID order
+     * @throws SQLException if any error occurs.
+     */
+    public ObservableList<Appointment> getAllParallel() throws SQLException {
+        return getAllParallel(DBUtil.getScanPartitions());
+    }
+
+    /**
+     * Gets all appointments by splitting the Appointment_ID range into partitions
+     * and reading them concurrently, for reports, exports and cache warm-up.
+     * <p>Unlike {@link #getAll()}, the result is never served from or added to the query result cache.
+     * Small tables are read with a single query.</p>
+     * @param partitions most ranges to read at once; keep it below the pool's maximum size
+     * @return list of all appointments, in ID order
+     * @throws SQLException if any error occurs.
+     */
+    public ObservableList<Appointment> getAllParallel(int partitions) throws SQLException {
+        return queryPartitioned(new AppointmentQuery().idRange(0, 0).orderBy(AppointmentQuery.Order.ID).toSql(),
+                "SELECT MIN(Appointment_ID), MAX(Appointment_ID) FROM client_schedule.appointments",
+                partitions);
+    }
+
+    /**
+     * Gets the appointments matching the query's filters.
+     * <p>Results are served from the query result cache until appointments, customers
+     * or contacts are written.</p>
+     * @param query filters, order and limit to apply
+     * @return list of matching appointments
+     * @throws SQLException if any error occurs.
+     */
+    public ObservableList<Appointment> find(AppointmentQuery query) throws SQLException {
+        return query(query.toSql(), query.parameters(), query.queryClass());
+    }
+
+    /**
+     * Streams all appointments using {@link #DEFAULT_FETCH_SIZE} rows per fetch.
+     * @see #streamAll(int)
+     * @return a stream of all appointments; close it to release its connection
+     * @throws SQLException if the query cannot be started.
+     */
+    public Stream<Appointment> streamAll() throws SQLException {
+        return streamAll(DEFAULT_FETCH_SIZE);
+    }
+
+    /**
+     * Streams all appointments through a server-side cursor.
+     * @see #stream(AppointmentQuery, int)
+     * @param fetchSize number of rows fetched per round trip
+     * @return a stream of all appointments; close it to release its connection
+     * @throws SQLException if the query cannot be started.
+     */
+    public Stream<Appointment> streamAll(int fetchSize) throws SQLException {
+        return stream(new AppointmentQuery(), fetchSize);
+    }
+
+    /**
+     * Streams the appointments matching the query through a server-side cursor, so rows are
+     * fetched <code>fetchSize</code> at a time instead of being buffered in one list.
+     * <p>The stream holds a pooled connection until it is closed. Use it within a
+     * try-with-resources block. Errors while reading rows are thrown as
+     * {@link UncheckedSQLException}.</p>
+     * @param query filters, order and limit to apply
+     * @param fetchSize number of rows fetched per round trip
+     * @return a stream of matching appointments; close it to release its connection
+     * @throws SQLException if the query cannot be started.
+     */
+    public Stream<Appointment> stream(AppointmentQuery query, int fetchSize) throws SQLException {
+        Connection conn = readSource.getConnection();
+        try {
+            PreparedStatement statement = conn.prepareStatement(query.toSql());
+            bindParameters(statement, query.parameters());
+            statement.setFetchSize(fetchSize);
+            ResultSet resultSet = executeQuery(statement, QueryClass.SCAN);
+            RecordMapper.RowMapper<Appointment> toAppointment = rowMapper(resultSet);
+
+            Spliterator<Appointment> rows = new Spliterators.AbstractSpliterator<>(
+                    Long.MAX_VALUE, Spliterator.ORDERED | Spliterator.NONNULL) {
+                @Override
+                public boolean tryAdvance(Consumer<? super Appointment> action) {
+                    try {
+                        if (!resultSet.next())
+                            return false;
+                        action.accept(toAppointment.map(resultSet));
+                        return true;
+                    } catch (SQLException e) {
+                        throw new UncheckedSQLException(e);
+                    }
+                }
+            };
+            return StreamSupport.stream(rows, false).onClose(() -> {
+                try {
+                    statement.close();
+                    conn.close();
+                } catch (SQLException e) {
+                    throw new UncheckedSQLException(e);
+                }
+            });
+        } catch (SQLException | RuntimeException e) {
+            conn.close();
+            throw e;
         }
+    }
+
+    /**
+     * Passes every appointment to the callback, one row at a time, through a server-side cursor.
+     * <p>The connection is released when this method returns, even if the callback throws.</p>
+     * @param fetchSize number of rows fetched per round trip
+     * @param callback receives each appointment in turn
+     * @return number of appointments read
+     * @throws SQLException if any error occurs.
+     */
+    public long forEachAppointment(int fetchSize, Consumer<Appointment> callback) throws SQLException {
+        try (Stream<Appointment> appointments = streamAll(fetchSize)) {
+            long[] count = {0};
+            appointments.forEach(appointment -> {
+                callback.accept(appointment);
+                count[0]++;
+            });
+            return count[0];
+        } catch (UncheckedSQLException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>Appointments are ordered by (Start, Appointment_ID).</p>
+     */
+    @Override
+    public ObservableList<Appointment> getPageAfter(Appointment after, int pageSize) throws SQLException {
+        AppointmentQuery query = new AppointmentQuery()
+                .orderBy(AppointmentQuery.Order.START)
+                .limit(pageSize);
+        if (after != null)
+            query.after(after);
+        return find(query);
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>Appointments are ordered by (Start, Appointment_ID).</p>
+     */
+    @Override
+    public ObservableList<Appointment> getPageBefore(Appointment before, int pageSize) throws SQLException {
+        ObservableList<Appointment> appointmentsList = find(new AppointmentQuery()
+                .before(before)
+                .orderBy(AppointmentQuery.Order.START_DESCENDING)
+                .limit(pageSize));
+        FXCollections.reverse(appointmentsList);    // read backwards, list forwards
         return appointmentsList;
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Comparator<Appointment> keyOrder() {
+        return Comparator.comparing(Appointment::start).thenComparing(Appointment::id);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public LocalDateTime getLastUpdate() throws SQLException {
+        return queryLastUpdate("SELECT MAX(Last_Update) FROM client_schedule.appointments");
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>Reads the database directly, so changes made by other clients are included.</p>
+     */
+    @Override
+    public Changes<Appointment> getModifiedSince(LocalDateTime since) throws SQLException {
+        AppointmentQuery query = new AppointmentQuery().modifiedSince(since);
+        return queryChanges(query.toSql(), query.parameters(), since);
+    }
+
+    /**
+     * Counts the appointments matching a query's filters, without reading them.
+     * @param query filters to apply; ordering and limit are ignored
+     * @return number of matching appointments
+     * @throws SQLException if any error occurs.
+     */
+    public long count(AppointmentQuery query) throws SQLException {
+        return queryCount(query.toCountSql(), query.filterParameters());
+    }
+
+    /**
+     * Tests whether any appointment matches a query's filters, stopping at the first match.
+     * @param query filters to apply; ordering and limit are ignored
+     * @return true if at least one appointment matches
+     * @throws SQLException if any error occurs.
+     */
+    public boolean exists(AppointmentQuery query) throws SQLException {
+        return queryCount(query.toExistsSql(), query.filterParameters()) > 0;
+    }
+
     /**
      * Get all the given user's appointments.
      * @param user the current user (the one logged-in)
@@ -67,169 +279,108 @@ public class AppointmentDaoImpl extends DataAccessObject<Appointment, User> {
      * @throws SQLException if any error occurs.
      */
     public ObservableList<Appointment> getAllByUser(User user) throws SQLException {
-        ObservableList<Appointment> appointmentsList = FXCollections.observableArrayList();
-
-        try (Connection conn = dataSource.getConnection();
-             PreparedStatement statement = conn.prepareStatement(
-                     """
-                             SELECT Appointment_ID, Title, Description, Location, Type,
-                                    Start, End, appointments.Customer_ID, Customer_Name,
-                                    User_ID, appointments.Contact_ID, Contact_Name, Email
-                             FROM client_schedule.appointments
-                             INNER JOIN customers
-                                  ON customers.Customer_ID = appointments.Customer_ID
-                             INNER JOIN contacts
-                                  ON contacts.Contact_ID = appointments.Contact_ID
-                             WHERE User_ID = ?
-                             """)) {
-            statement.setInt(1, user.id());
-            ResultSet resultSet = statement.executeQuery();
-
-            while (resultSet.next()) {
-                appointmentsList.add(createRecordFromResultSet(resultSet));
-            }
-        }
-        return appointmentsList;
+        return find(new AppointmentQuery().forUser(user.id()));
     }
 
     /**
-     * Gets all DTO records that fall between the start and end dates (inclusive) for given user
+     * Gets all DTO records that overlap the start and end dates (inclusive).
+     * <p>An appointment is listed if any part of it falls within the dates,
+     * including one that starts before and ends after them.</p>
      * @param startDate beginning of date range
      * @param endDate end of date range
-     * @return list of all appointments between date range
+     * @return list of all appointments between date range, earliest first
      * @throws SQLException if any error occurs.
      */
     public ObservableList<Appointment> getAllBetweenDates(LocalDate startDate,
                                                           LocalDate endDate) throws SQLException {
-        ObservableList<Appointment> appointmentsList = FXCollections.observableArrayList();
-        LocalDateTime startDateTime = startDate.atTime(0, 0, 0);
-        LocalDateTime endDateTime = endDate.atTime(23, 59, 59, 999999999);
+        return find(betweenDates(startDate, endDate));
+    }
 
-        try (Connection conn = dataSource.getConnection();
-             PreparedStatement statement = conn.prepareStatement(
-                     """
-                             SELECT Appointment_ID, Title, Description, Location, Type,
-                                    Start, End, appointments.Customer_ID, Customer_Name,
-                                    User_ID, appointments.Contact_ID, Contact_Name, Email
-                             FROM client_schedule.appointments
-                             INNER JOIN customers
-                                  ON customers.Customer_ID = appointments.Customer_ID
-                             INNER JOIN contacts
-                                  ON contacts.Contact_ID = appointments.Contact_ID
-                             WHERE Start BETWEEN ? AND ?
-                             OR End BETWEEN ? AND ?
-                             """)) {
-            statement.setTimestamp(1, Timestamp.valueOf(startDateTime));
-            statement.setTimestamp(2, Timestamp.valueOf(endDateTime));
-            statement.setTimestamp(3, Timestamp.valueOf(startDateTime));
-            statement.setTimestamp(4, Timestamp.valueOf(endDateTime));
-            ResultSet resultSet = statement.executeQuery();
-
-            while (resultSet.next()) {
-                appointmentsList.add(createRecordFromResultSet(resultSet));
-            }
-        }
-        return appointmentsList;
+    /**
+     * Gets the given user's appointments that overlap the start and end dates (inclusive).
+     * @param user the user assigned to the appointments
+     * @param startDate beginning of date range
+     * @param endDate end of date range
+     * @return list of the user's appointments between date range, earliest first
+     * @throws SQLException if any error occurs.
+     */
+    public ObservableList<Appointment> getAllByUserBetweenDates(User user,
+                                                                LocalDate startDate,
+                                                                LocalDate endDate) throws SQLException {
+        return find(betweenDates(startDate, endDate).forUser(user.id()));
+    }
+
+    /**
+     * Gets the given contact's appointments that overlap the start and end dates (inclusive).
+     * @param contactId the contact attending the appointments
+     * @param startDate beginning of date range
+     * @param endDate end of date range
+     * @return list of the contact's appointments between date range, earliest first
+     * @throws SQLException if any error occurs.
+     */
+    public ObservableList<Appointment> getAllByContactBetweenDates(int contactId,
+                                                                   LocalDate startDate,
+                                                                   LocalDate endDate) throws SQLException {
+        return find(betweenDates(startDate, endDate).forContact(contactId));
+    }
+
+    /**
+     * @param startDate first day of the window
+     * @param endDate last day of the window
+     * @return query for appointments overlapping the days, ordered by start
+     */
+    private static AppointmentQuery betweenDates(LocalDate startDate, LocalDate endDate) {
+        return new AppointmentQuery()
+                .overlapping(startDate.atStartOfDay(), endDate.plusDays(1).atStartOfDay())
+                .orderBy(AppointmentQuery.Order.START);
     }
 
     /**
      * {@inheritDoc}
+     * <p>Served from the entity cache when the appointment was read or written recently.</p>
      */
     @Override
     public Optional<Appointment> getById(int id) throws SQLException {
-        try (Connection conn = dataSource.getConnection();
-             PreparedStatement statement = conn.prepareStatement(
-                 """
-                         SELECT Appointment_ID, Title, Description, Location, Type,
-                                    Start, End, appointments.Customer_ID, Customer_Name,
-                                    User_ID, appointments.Contact_ID, Contact_Name, Email
-                         FROM client_schedule.appointments
-                         INNER JOIN customers
-                              ON customers.Customer_ID = appointments.Customer_ID
-                         INNER JOIN contacts
-                              ON contacts.Contact_ID = appointments.Contact_ID
-                         WHERE Appointment_ID = ?
-                         """)) {
-            statement.setInt(1, id);
-            ResultSet resultSet = statement.executeQuery();
+        return getCached(id, appointmentId -> find(new AppointmentQuery().withId(appointmentId)).stream().findFirst());
+    }
 
-            if (resultSet.next()) {
-                return Optional.of(createRecordFromResultSet(resultSet));
-            } else {
-                return Optional.empty();
-            }
-        }
+    /**
+     * Reads many appointments at once, for a {@link BatchLoader}.
+     * <p>Cached appointments are answered from the entity cache; the rest are read
+     * with one <code>WHERE Appointment_ID IN (...)</code> query.</p>
+     * @param ids unique identifiers of the appointments
+     * @return the appointments found, by ID
+     * @throws SQLException if any error occurs.
+     */
+    public Map<Integer, Appointment> getByIds(Collection<Integer> ids) throws SQLException {
+        return getCachedBatch(ids, placeholders ->
+                AppointmentQuery.SELECT + "WHERE Appointment_ID IN (" + inList(placeholders) + ")\n");
     }
 
     /**
      * {@inheritDoc}
      */
     @Override
-    public boolean add(Appointment appointment, User user) throws SQLException {
-        if (getById(appointment.id()).isPresent())
-            return false;
-
-        try (Connection conn = dataSource.getConnection();
-             PreparedStatement statement = conn.prepareStatement(
-                 """
-                         INSERT INTO client_schedule.appointments
-                         (Title, Description, Location, Type, Start, End,
-                         Customer_ID, User_ID, Contact_ID,
-                         Created_By, Last_Updated_By, Create_Date, Last_Update)
-                         VALUES (?,?,?,?,?,?,?,?,?,?,?,CURRENT_TIMESTAMP,CURRENT_TIMESTAMP)
-                         """)) {
-            statement.setString(1, appointment.title());
-            statement.setString(2, appointment.description());
-            statement.setString(3, appointment.location());
-            statement.setString(4, appointment.type());
-            statement.setTimestamp(5, Timestamp.valueOf(appointment.start()));
-            statement.setTimestamp(6, Timestamp.valueOf(appointment.end()));
-            statement.setInt(7, appointment.customerId());
-            statement.setInt(8, appointment.userId());
-            statement.setInt(9, appointment.contactId());
-            statement.setString(10, user.name());
-            statement.setString(11, user.name());
-
-            return statement.executeUpdate() > 0;
-        }
+    public Optional<Appointment> add(Appointment appointment, User user) throws SQLException {
+        return insertReturningKey(appointment, user);
     }
 
     /**
      * {@inheritDoc}
      */
     @Override
-    public boolean update(Appointment appointment, User user) throws SQLException {
+    public UpdateOutcome update(Appointment appointment, User user) throws SQLException {
         try (Connection conn = dataSource.getConnection();
-             PreparedStatement statement = conn.prepareStatement(
-                 """
-                         UPDATE client_schedule.appointments SET
-                         Title = ?,
-                         Description = ?,
-                         Location = ?,
-                         Type = ?,
-                         Start = ?,
-                         End = ?,
-                         Customer_ID = ?,
-                         User_ID = ?,
-                         Contact_ID = ?,
-                         Last_Updated_By = ?,
-                         Last_Update = CURRENT_TIMESTAMP
-                         WHERE Appointment_ID = ?
-                         """)) {
-            statement.setString(1, appointment.title());
-            statement.setString(2, appointment.description());
-            statement.setString(3, appointment.location());
-            statement.setString(4, appointment.type());
-            statement.setTimestamp(5, Timestamp.valueOf(appointment.start()));
-            statement.setTimestamp(6, Timestamp.valueOf(appointment.end()));
-            statement.setInt(7, appointment.customerId());
-            statement.setInt(8, appointment.userId());
-            statement.setInt(9, appointment.contactId());
-            statement.setString(10, user.name());
-            statement.setInt(11, appointment.id());
-
-            return statement.executeUpdate() > 0;
+             PreparedStatement statement = conn.prepareStatement(getUpdateSql())) {
+            bindUpdate(statement, appointment, user);
+            if (executeUpdate(statement, QueryClass.WRITE) > 0) {
+                writeThrough(withVersion(appointment, appointment.version() + 1));
+                return UpdateOutcome.UPDATED;
+            }
         }
+        // no row had this ID and version: tell a changed row from a deleted one by primary key
+        evict(appointment.id());
+        return getById(appointment.id()).isPresent() ? UpdateOutcome.CONFLICT : UpdateOutcome.NOT_FOUND;
     }
 
     /**
@@ -238,33 +389,169 @@ public class AppointmentDaoImpl extends DataAccessObject<Appointment, User> {
     @Override
     public boolean delete(int id) throws SQLException {
         try (Connection conn = dataSource.getConnection();
-             PreparedStatement statement = conn.prepareStatement(
-                 "DELETE FROM client_schedule.appointments WHERE Appointment_ID = ?")) {
+             PreparedStatement statement = conn.prepareStatement(getDeleteSql())) {
             statement.setInt(1, id);
-
-            return statement.executeUpdate() > 0;
+            evict(id);
+            return executeUpdate(statement, QueryClass.WRITE) > 0;
         }
     }
 
+    /**
+     * @return hit/miss/eviction counters of the appointment entity cache
+     */
+    public static EntityCache.Stats getCacheStats() {
+        return cache.getStats();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected EntityCache<Appointment> getEntityCache() {
+        return cache;
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>An appointment needs its customer name and contact name and email.</p>
+     */
+    @Override
+    protected boolean isComplete(Appointment appointment) {
+        return appointment.customerName() != null
+                && appointment.contactName() != null
+                && appointment.contactEmail() != null;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected Appointment withId(Appointment appointment, int id) {
+        return copy(appointment, id, appointment.version());
+    }
+
+    /**
+     * @param appointment the appointment to copy
+     * @param version the row version of the copy
+     * @return the appointment with the given version
+     */
+    private static Appointment withVersion(Appointment appointment, int version) {
+        return copy(appointment, appointment.id(), version);
+    }
+
+    private static Appointment copy(Appointment appointment, int id, int version) {
+        return new Appointment(id,
+                appointment.title(),
+                appointment.description(),
+                appointment.location(),
+                appointment.type(),
+                appointment.start(),
+                appointment.end(),
+                appointment.customerId(),
+                appointment.customerName(),
+                appointment.userId(),
+                appointment.contactId(),
+                appointment.contactName(),
+                appointment.contactEmail(),
+                version);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected String getInsertSql() {
+        return """
+                INSERT INTO client_schedule.appointments
+                (Title, Description, Location, Type, Start, End,
+                Customer_ID, User_ID, Contact_ID,
+                Created_By, Last_Updated_By, Create_Date, Last_Update)
+                VALUES (?,?,?,?,?,?,?,?,?,?,?,CURRENT_TIMESTAMP,CURRENT_TIMESTAMP)
+                """;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected void bindInsert(PreparedStatement statement, Appointment appointment, User user) throws SQLException {
+        statement.setString(1, appointment.title());
+        statement.setString(2, appointment.description());
+        statement.setString(3, appointment.location());
+        statement.setString(4, appointment.type());
+        statement.setTimestamp(5, Timestamp.valueOf(appointment.start()));
+        statement.setTimestamp(6, Timestamp.valueOf(appointment.end()));
+        statement.setInt(7, appointment.customerId());
+        statement.setInt(8, appointment.userId());
+        statement.setInt(9, appointment.contactId());
+        statement.setString(10, user.name());
+        statement.setString(11, user.name());
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected String getUpdateSql() {
+        return """
+                UPDATE client_schedule.appointments SET
+                Title = ?,
+                Description = ?,
+                Location = ?,
+                Type = ?,
+                Start = ?,
+                End = ?,
+                Customer_ID = ?,
+                User_ID = ?,
+                Contact_ID = ?,
+                Last_Updated_By = ?,
+                Last_Update = CURRENT_TIMESTAMP,
+                Version = Version + 1
+                WHERE Appointment_ID = ? AND Version = ?
+                """;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected void bindUpdate(PreparedStatement statement, Appointment appointment, User user) throws SQLException {
+        statement.setString(1, appointment.title());
+        statement.setString(2, appointment.description());
+        statement.setString(3, appointment.location());
+        statement.setString(4, appointment.type());
+        statement.setTimestamp(5, Timestamp.valueOf(appointment.start()));
+        statement.setTimestamp(6, Timestamp.valueOf(appointment.end()));
+        statement.setInt(7, appointment.customerId());
+        statement.setInt(8, appointment.userId());
+        statement.setInt(9, appointment.contactId());
+        statement.setString(10, user.name());
+        statement.setInt(11, appointment.id());
+        statement.setInt(12, appointment.version());
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected String getDeleteSql() {
+        return "DELETE FROM client_schedule.appointments WHERE Appointment_ID = ?";
+    }
+
     /**
      * {@inheritDoc}
      */
     @Override
     protected Appointment createRecordFromResultSet(ResultSet resultSet) throws SQLException {
-        return new Appointment(
-                resultSet.getInt("Appointment_ID"),
-                resultSet.getString("Title"),
-                resultSet.getString("Description"),
-                resultSet.getString("Location"),
-                resultSet.getString("Type"),
-                resultSet.getTimestamp("Start").toLocalDateTime(),
-                resultSet.getTimestamp("End").toLocalDateTime(),
-                resultSet.getInt("Customer_ID"),
-                resultSet.getString("Customer_Name"),
-                resultSet.getInt("User_ID"),
-                resultSet.getInt("Contact_ID"),
-                resultSet.getString("Contact_Name"),
-                resultSet.getString("Email"));
+        return mapper.map(resultSet);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected RecordMapper.RowMapper<Appointment> rowMapper(ResultSet resultSet) throws SQLException {
+        return mapper.forResultSet(resultSet);
     }
 
     /**
@@ -274,29 +561,27 @@ public class AppointmentDaoImpl extends DataAccessObject<Appointment, User> {
      * @throws SQLException if an error occurs.
      */
     public ObservableList<Appointment> getAllByCustomerId(int id) throws SQLException {
-        ObservableList<Appointment> allAppointmentsByCustomer = FXCollections.observableArrayList();
+        return find(new AppointmentQuery().forCustomer(id));
+    }
 
-        try (Connection conn = dataSource.getConnection();
-             PreparedStatement statement = conn.prepareStatement(
-                     """
-                             SELECT Appointment_ID, Title, Description, Location, Type,
-                                        Start, End, appointments.Customer_ID, Customer_Name,
-                                        User_ID, appointments.Contact_ID, Contact_Name, Email
-                             FROM client_schedule.appointments
-                             INNER JOIN customers
-                                  ON customers.Customer_ID = appointments.Customer_ID
-                             INNER JOIN contacts
-                                  ON contacts.Contact_ID = appointments.Contact_ID
-                             WHERE appointments.Customer_ID = ?
-                             """)) {
-            statement.setInt(1, id);
-            ResultSet resultSet = statement.executeQuery();
+    /**
+     * Count Associated Appointments for a customer
+     * @param id Target customer's id
+     * @return number of Appointments for customer
+     * @throws SQLException if an error occurs.
+     */
+    public long countByCustomerId(int id) throws SQLException {
+        return count(new AppointmentQuery().forCustomer(id));
+    }
 
-            while (resultSet.next()) {
-                allAppointmentsByCustomer.add(createRecordFromResultSet(resultSet));
-            }
-        }
-        return allAppointmentsByCustomer;
+    /**
+     * Check for Associated Appointments for a customer
+     * @param id Target customer's id
+     * @return true if the customer has any Appointments
+     * @throws SQLException if an error occurs.
+     */
+    public boolean existsByCustomerId(int id) throws SQLException {
+        return exists(new AppointmentQuery().forCustomer(id));
     }
 
 }
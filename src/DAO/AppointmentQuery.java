@@ -0,0 +1,353 @@
+/*
+ Copyright 2022 Joseph Curtis Licensed under the Educational
+ Community License, Version 2.0 (the "License"); you may not use this file
+ except in compliance with the License. You may obtain a copy of the License at
+
+ http://opensource.org/licenses/ECL-2.0
+
+ Unless required by applicable law or agreed to in writing, software
+ distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ License for the specific language governing permissions and limitations under
+ the License.
+
+ ******************************************************************************/
+
+package DAO;
+
+import model.Appointment;
+import utility.QueryClass;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Criteria for reading appointments with {@link AppointmentDaoImpl#find(AppointmentQuery)}.
+ * <p>Filters combine with AND. Each combination of filters, ordering and limit (the query's
+ * <em>shape</em>) renders to one parameterized SQL string, which is cached: every query of the
+ * same shape sends identical SQL text, so it reuses the pooled connection's prepared statement.
+ * Filter values are only ever bound as parameters.</p>
+ * <p>The same criteria can be counted or tested for existence, without reading any rows
+ * (see {@link AppointmentDaoImpl#count(AppointmentQuery)}).</p>
+ * <pre>
+ * dbAppointments.find(new AppointmentQuery()
+ *         .forContact(contactId)
+ *         .overlapping(from, to)
+ *         .orderBy(AppointmentQuery.Order.START));
+ * </pre>
+ * @author Joseph Curtis
+ * @version 2026.10.18
+ */
+public final class AppointmentQuery {
+
+    static final String SELECT = """
+            SELECT Appointment_ID, Title, Description, Location, Type,
+                   Start, End, appointments.Customer_ID, Customer_Name,
+                   User_ID, appointments.Contact_ID, Contact_Name, Email,
+                   appointments.Last_Update, appointments.Version
+            FROM client_schedule.appointments
+            INNER JOIN customers
+                 ON customers.Customer_ID = appointments.Customer_ID
+            INNER JOIN contacts
+                 ON contacts.Contact_ID = appointments.Contact_ID
+            """;
+
+    private static final String COUNT = """
+            SELECT COUNT(*)
+            FROM client_schedule.appointments
+            """;
+
+    private static final String EXISTS = """
+            SELECT 1
+            FROM client_schedule.appointments
+            """;
+
+    private static final Map<Integer, String> renderedShapes = new ConcurrentHashMap<>();
+
+    /**
+     * Row order of the results.
+     */
+    public enum Order {
+        /** whatever order the database returns */
+        NONE(""),
+        /** earliest start first; ties broken by ID */
+        START("ORDER BY Start, Appointment_ID\n"),
+        /** latest start first; ties broken by ID */
+        START_DESCENDING("ORDER BY Start DESC, Appointment_ID DESC\n"),
+        /** lowest ID first */
+        ID("ORDER BY Appointment_ID\n");
+
+        private final String sql;
+
+        Order(String sql) {
+            this.sql = sql;
+        }
+    }
+
+    /**
+     * What the query reads: the matching rows, how many there are, or whether there is any.
+     * Counts and existence checks read only the appointments table (every appointment has its
+     * customer and contact), ignore ordering and limit, and stop at the first match for EXISTS.
+     */
+    private enum Projection {
+        ROWS, COUNT, EXISTS
+    }
+
+    /**
+     * A filter, in the order it is rendered and bound.
+     */
+    private enum Criterion {
+        ID("Appointment_ID = ?"),
+        NOT_ID("Appointment_ID <> ?"),
+        ID_RANGE("Appointment_ID >= ? AND Appointment_ID < ?"),
+        USER("User_ID = ?"),
+        CUSTOMER("appointments.Customer_ID = ?"),
+        CONTACT("appointments.Contact_ID = ?"),
+        TYPE("Type = ?"),
+        WINDOW("Start < ? AND End > ?"),
+        AFTER("(Start > ? OR (Start = ? AND Appointment_ID > ?))"),
+        BEFORE("(Start < ? OR (Start = ? AND Appointment_ID < ?))"),
+        MODIFIED("appointments.Last_Update >= ?");
+
+        private final String sql;
+
+        Criterion(String sql) {
+            this.sql = sql;
+        }
+    }
+
+    private final EnumMap<Criterion, Object[]> criteria = new EnumMap<>(Criterion.class);
+    private Order order = Order.NONE;
+    private Integer limit = null;
+
+    /**
+     * @param id unique identifier of the appointment
+     * @return this query
+     */
+    public AppointmentQuery withId(int id) {
+        criteria.put(Criterion.ID, new Object[]{id});
+        return this;
+    }
+
+    /**
+     * @param id unique identifier of an appointment to leave out, such as the one being edited
+     * @return this query
+     */
+    public AppointmentQuery excluding(int id) {
+        criteria.put(Criterion.NOT_ID, new Object[]{id});
+        return this;
+    }
+
+    /**
+     * Keeps appointments whose ID falls in a range, such as one partition of a parallel scan.
+     * @param from lowest ID (inclusive)
+     * @param to end of the range (exclusive)
+     * @return this query
+     */
+    public AppointmentQuery idRange(int from, int to) {
+        criteria.put(Criterion.ID_RANGE, new Object[]{from, to});
+        return this;
+    }
+
+    /**
+     * @param userId the user assigned to the appointments
+     * @return this query
+     */
+    public AppointmentQuery forUser(int userId) {
+        criteria.put(Criterion.USER, new Object[]{userId});
+        return this;
+    }
+
+    /**
+     * @param customerId the customer the appointments are with
+     * @return this query
+     */
+    public AppointmentQuery forCustomer(int customerId) {
+        criteria.put(Criterion.CUSTOMER, new Object[]{customerId});
+        return this;
+    }
+
+    /**
+     * @param contactId the contact attending the appointments
+     * @return this query
+     */
+    public AppointmentQuery forContact(int contactId) {
+        criteria.put(Criterion.CONTACT, new Object[]{contactId});
+        return this;
+    }
+
+    /**
+     * @param type appointment type, matched exactly
+     * @return this query
+     */
+    public AppointmentQuery ofType(String type) {
+        criteria.put(Criterion.TYPE, new Object[]{type});
+        return this;
+    }
+
+    /**
+     * Keeps appointments that overlap the window: those starting before it ends
+     * and ending after it starts, including appointments that span the whole window.
+     * <p>Served by the <code>(End, Start)</code> indexes in
+     * <code>resources/db/migration/V1__appointment_window_indexes.sql</code>.</p>
+     * @param from beginning of the window (inclusive)
+     * @param to end of the window (exclusive)
+     * @return this query
+     */
+    public AppointmentQuery overlapping(LocalDateTime from, LocalDateTime to) {
+        criteria.put(Criterion.WINDOW, new Object[]{to, from});
+        return this;
+    }
+
+    /**
+     * Keeps appointments that come after the given one in {@link Order#START} order.
+     * @param appointment the last appointment of the previous page
+     * @return this query
+     */
+    public AppointmentQuery after(Appointment appointment) {
+        criteria.put(Criterion.AFTER, new Object[]{appointment.start(), appointment.start(), appointment.id()});
+        return this;
+    }
+
+    /**
+     * Keeps appointments that come before the given one in {@link Order#START} order.
+     * @param appointment the first appointment of the next page
+     * @return this query
+     */
+    public AppointmentQuery before(Appointment appointment) {
+        criteria.put(Criterion.BEFORE, new Object[]{appointment.start(), appointment.start(), appointment.id()});
+        return this;
+    }
+
+    /**
+     * Keeps appointments inserted or updated at or after the given time.
+     * @param since a <code>Last_Update</code> high-water mark
+     * @return this query
+     */
+    public AppointmentQuery modifiedSince(LocalDateTime since) {
+        criteria.put(Criterion.MODIFIED, new Object[]{since});
+        return this;
+    }
+
+    /**
+     * @param order row order of the results
+     * @return this query
+     */
+    public AppointmentQuery orderBy(Order order) {
+        this.order = order;
+        return this;
+    }
+
+    /**
+     * @param maxRows most rows to return
+     * @return this query
+     */
+    public AppointmentQuery limit(int maxRows) {
+        this.limit = maxRows;
+        return this;
+    }
+
+    /**
+     * @return the parameterized SQL for this query's shape, rendered once per shape
+     */
+    String toSql() {
+        return toSql(Projection.ROWS);
+    }
+
+    /**
+     * @return SQL counting the appointments that match this query's filters
+     */
+    String toCountSql() {
+        return toSql(Projection.COUNT);
+    }
+
+    /**
+     * @return SQL returning one row if any appointment matches this query's filters, none otherwise
+     */
+    String toExistsSql() {
+        return toSql(Projection.EXISTS);
+    }
+
+    /**
+     * @return the filter values (and limit) in the order {@link #toSql()} declares them
+     */
+    List<Object> parameters() {
+        List<Object> parameters = new ArrayList<>();
+        for (Object[] values : criteria.values()) {
+            parameters.addAll(Arrays.asList(values));
+        }
+        if (limit != null)
+            parameters.add(limit);
+        return parameters;
+    }
+
+    /**
+     * @return the filter values in the order {@link #toCountSql()} and {@link #toExistsSql()} declare them
+     */
+    List<Object> filterParameters() {
+        List<Object> parameters = new ArrayList<>();
+        for (Object[] values : criteria.values()) {
+            parameters.addAll(Arrays.asList(values));
+        }
+        return parameters;
+    }
+
+    /**
+     * @return {@link QueryClass#LOOKUP} for a single ID, {@link QueryClass#SCAN} for every
+     * appointment, {@link QueryClass#LIST} otherwise
+     */
+    QueryClass queryClass() {
+        if (criteria.containsKey(Criterion.ID))
+            return QueryClass.LOOKUP;
+        if (criteria.isEmpty() && limit == null)
+            return QueryClass.SCAN;
+        return QueryClass.LIST;
+    }
+
+    private String toSql(Projection projection) {
+        return renderedShapes.computeIfAbsent(shape(projection), shape -> render(projection));
+    }
+
+    /**
+     * @return bits 0-15: filters present; bits 16-17: order; bit 18: limit present; bits 19-20: projection
+     */
+    private int shape(Projection projection) {
+        if (projection != Projection.ROWS)
+            return shapeOfFilters() | projection.ordinal() << 19;
+        return shapeOfFilters() | order.ordinal() << 16 | (limit != null ? 1 << 18 : 0);
+    }
+
+    private int shapeOfFilters() {
+        int shape = 0;
+        for (Criterion criterion : criteria.keySet()) {
+            shape |= 1 << criterion.ordinal();
+        }
+        return shape;
+    }
+
+    private String render(Projection projection) {
+        StringBuilder sql = new StringBuilder(switch (projection) {
+            case ROWS -> SELECT;
+            case COUNT -> COUNT;
+            case EXISTS -> EXISTS;
+        });
+        String joiner = "WHERE ";
+        for (Criterion criterion : criteria.keySet()) {
+            sql.append(joiner).append(criterion.sql).append('\n');
+            joiner = "AND ";
+        }
+        if (projection == Projection.EXISTS)
+            sql.append("LIMIT 1\n");
+        if (projection != Projection.ROWS)
+            return sql.toString();
+        sql.append(order.sql);
+        if (limit != null)
+            sql.append("LIMIT ?\n");
+        return sql.toString();
+    }
+}
@@ -0,0 +1,175 @@
+/*
+ Copyright 2022 Joseph Curtis Licensed under the Educational
+ Community License, Version 2.0 (the "License"); you may not use this file
+ except in compliance with the License. You may obtain a copy of the License at
+
+ http://opensource.org/licenses/ECL-2.0
+
+ Unless required by applicable law or agreed to in writing, software
+ distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ License for the specific language governing permissions and limitations under
+ the License.
+
+ ******************************************************************************/
+
+
+package DAO;
+
+import javafx.application.Platform;
+import javafx.collections.ObservableList;
+import model.DataTransferObject;
+import utility.CancellationToken;
+import utility.DBUtil;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Asynchronous facade over a {@link DataAccessObject}: every read and write returns a
+ * {@link CompletableFuture} instead of blocking the caller.
+ * <p>Calls from all facades share a fixed pool of daemon threads, one per connection the pool can
+ * lend them ({@link DBUtil#getAsyncConcurrency()}), so at most that many run at once and the rest
+ * queue without tying up connections. Independent calls overlap their database round trips:</p>
+ * <pre>
+ * CompletableFuture.allOf(customers.getAll(), contacts.getAll())
+ *         .thenRunAsync(this::fillChoices, AsyncDAO.FX_THREAD);
+ * </pre>
+ * <p>A call runs on a pool thread, so it never joins a transaction begun by the caller;
+ * wrap several calls in {@link DBUtil#inTransaction} inside one {@link #supply} instead.
+ * Futures fail with the DAO's exception (such as {@link java.sql.SQLException}) as their cause.</p>
+ * @param <T> the DTO record type
+ * @param <U> the user type recorded on writes
+ * @author Joseph Curtis
+ * @version 2026.10.18
+ */
+public final class AsyncDAO <T extends DataTransferObject, U> {
+
+    /** Runs a stage on the JavaFX application thread, such as the last one of a chain that updates a view. */
+    public static final Executor FX_THREAD = Platform::runLater;
+
+    private static final AtomicInteger threadCount = new AtomicInteger();
+    private static final ExecutorService executor = Executors.newFixedThreadPool(DBUtil.getAsyncConcurrency(), runnable -> {
+        Thread thread = new Thread(runnable, "async-dao-" + threadCount.incrementAndGet());
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final DataAccessObject<T, U> dao;
+
+    /**
+     * @param dao the DAO to call
+     */
+    public AsyncDAO(DataAccessObject<T, U> dao) {
+        this.dao = dao;
+    }
+
+    /**
+     * Runs any DAO work on the shared pool, such as a query method the facade does not wrap.
+     * <p>Cancelling the returned future cancels the work's running query (see {@link CancellationToken}).</p>
+     * @param work the DAO calls to run
+     * @param <R> the result type
+     * @return a future completed with the work's result, or with the exception it threw
+     */
+    public static <R> CompletableFuture<R> supply(Callable<R> work) {
+        CancellationToken token = new CancellationToken();
+        CompletableFuture<R> future = new CompletableFuture<>() {
+            @Override
+            public boolean cancel(boolean mayInterruptIfRunning) {
+                token.cancel();
+                return super.cancel(mayInterruptIfRunning);
+            }
+        };
+        executor.execute(() -> {
+            if (future.isDone())
+                return;     // cancelled while queued
+            try {
+                future.complete(token.run(work));
+            } catch (Throwable e) {
+                future.completeExceptionally(e);
+            }
+        });
+        return future;
+    }
+
+    /**
+     * @return all the DTO records as an observable list.
+     * @see DataAccessObject#getAll()
+     */
+    public CompletableFuture<ObservableList<T>> getAll() {
+        return supply(dao::getAll);
+    }
+
+    /**
+     * @param id unique identifier of the DTO record.
+     * @return the DTO record, if one with id exists.
+     * @see DataAccessObject#getById(int)
+     */
+    public CompletableFuture<Optional<T>> getById(int id) {
+        return supply(() -> dao.getById(id));
+    }
+
+    /**
+     * @param dto the DTO record to be added.
+     * @param user the currently logged-in user.
+     * @return the persisted DTO record with its assigned ID, or empty if add failed.
+     * @see DataAccessObject#add(DataTransferObject, Object)
+     */
+    public CompletableFuture<Optional<T>> add(T dto, U user) {
+        return supply(() -> dao.add(dto, user));
+    }
+
+    /**
+     * @param dto the DTO record to be updated.
+     * @param user the currently logged-in user.
+     * @return UPDATED, CONFLICT or NOT_FOUND.
+     * @see DataAccessObject#update(DataTransferObject, Object)
+     */
+    public CompletableFuture<UpdateOutcome> update(T dto, U user) {
+        return supply(() -> dao.update(dto, user));
+    }
+
+    /**
+     * @param id the ID of the record to be deleted.
+     * @return true if record exists and is deleted, false otherwise.
+     * @see DataAccessObject#delete(int)
+     */
+    public CompletableFuture<Boolean> delete(int id) {
+        return supply(() -> dao.delete(id));
+    }
+
+    /**
+     * @param dtos the DTO records to be added.
+     * @param user the currently logged-in user.
+     * @return the outcome of each row, and whether the batch was committed.
+     * @see DataAccessObject#addAll(List, Object)
+     */
+    public CompletableFuture<BatchResult<T>> addAll(List<T> dtos, U user) {
+        return supply(() -> dao.addAll(dtos, user));
+    }
+
+    /**
+     * @param dtos the DTO records to be updated.
+     * @param user the currently logged-in user.
+     * @return the outcome of each row, and whether the batch was committed.
+     * @see DataAccessObject#updateAll(List, Object)
+     */
+    public CompletableFuture<BatchResult<T>> updateAll(List<T> dtos, U user) {
+        return supply(() -> dao.updateAll(dtos, user));
+    }
+
+    /**
+     * @param ids the IDs of the records to be deleted.
+     * @return the outcome of each row, and whether the batch was committed.
+     * @see DataAccessObject#deleteAll(List)
+     */
+    public CompletableFuture<BatchResult<Integer>> deleteAll(List<Integer> ids) {
+        return supply(() -> dao.deleteAll(ids));
+    }
+}
@@ -0,0 +1,59 @@
+/*
+ Copyright 2022 Joseph Curtis Licensed under the Educational
+ Community License, Version 2.0 (the "License"); you may not use this file
+ except in compliance with the License. You may obtain a copy of the License at
+
+ http://opensource.org/licenses/ECL-2.0
+
+ Unless required by applicable law or agreed to in writing, software
+ distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ License for the specific language governing permissions and limitations under
+ the License.
+
+ ******************************************************************************/
+
+
+package DAO;
+
+import javafx.collections.ObservableList;
+import model.DataTransferObject;
+
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Asynchronous facade over an {@link ImmutableDAO}, running its reads on the pool shared with
+ * {@link AsyncDAO}.
+ * @param <T> the DTO record type
+ * @author Joseph Curtis
+ * @version 2026.10.18
+ */
+public final class AsyncImmutableDAO <T extends DataTransferObject> {
+
+    private final ImmutableDAO<T> dao;
+
+    /**
+     * @param dao the DAO to call
+     */
+    public AsyncImmutableDAO(ImmutableDAO<T> dao) {
+        this.dao = dao;
+    }
+
+    /**
+     * @return all the DTO records as an observable list.
+     * @see ImmutableDAO#getAll()
+     */
+    public CompletableFuture<ObservableList<T>> getAll() {
+        return AsyncDAO.supply(dao::getAll);
+    }
+
+    /**
+     * @param id unique identifier of the DTO record.
+     * @return the DTO record, if one with id exists.
+     * @see ImmutableDAO#getById(int)
+     */
+    public CompletableFuture<Optional<T>> getById(int id) {
+        return AsyncDAO.supply(() -> dao.getById(id));
+    }
+}
@@ -0,0 +1,124 @@
+/*
+ Copyright 2022 Joseph Curtis Licensed under the Educational
+ Community License, Version 2.0 (the "License"); you may not use this file
+ except in compliance with the License. You may obtain a copy of the License at
+
+ http://opensource.org/licenses/ECL-2.0
+
+ Unless required by applicable law or agreed to in writing, software
+ distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ License for the specific language governing permissions and limitations under
+ the License.
+
+ ******************************************************************************/
+
+package DAO;
+
+import java.sql.SQLException;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Collects the record IDs one UI action needs and reads them together, one
+ * <code>WHERE id IN (...)</code> query per table instead of one query per ID.
+ * <p>{@link #load(int)} only queues an ID. The first {@link Pending#get()} reads every queued ID
+ * at once; IDs queued twice are read once. Records read stay in the loader, so a loader is
+ * meant to live for one action (such as handling one batch of change feed events), on one thread
+ * at a time: it may be handed to a background thread to {@link #dispatch()}, and the records then
+ * read back with {@link #getLoaded(int)} on the thread that queued them.</p>
+ * <pre>
+ * BatchLoader&lt;Appointment&gt; loader = new BatchLoader&lt;&gt;(dbAppointments::getByIds);
+ * List&lt;BatchLoader.Pending&lt;Appointment&gt;&gt; pending = ids.stream().map(loader::load).toList();
+ * for (BatchLoader.Pending&lt;Appointment&gt; appointment : pending)
+ *     appointment.get().ifPresent(table::add);     // one query for all of them
+ * </pre>
+ * @param <T> the record type
+ * @author Joseph Curtis
+ * @version 2026.10.18
+ */
+public final class BatchLoader <T> {
+
+    /**
+     * Reads many records by ID, such as {@link AppointmentDaoImpl#getByIds}.
+     * @param <T> the record type
+     */
+    @FunctionalInterface
+    public interface BatchFunction<T> {
+        /**
+         * @param ids distinct record IDs
+         * @return the records found, by ID; IDs with no record are left out
+         * @throws SQLException if the records cannot be read.
+         */
+        Map<Integer, T> load(Collection<Integer> ids) throws SQLException;
+    }
+
+    /**
+     * A record queued with {@link #load(int)}.
+     * @param <T> the record type
+     */
+    @FunctionalInterface
+    public interface Pending<T> {
+        /**
+         * Reads this record, together with every other ID queued but not read yet.
+         * @return the record, if one with the ID exists
+         * @throws SQLException if the records cannot be read.
+         */
+        Optional<T> get() throws SQLException;
+    }
+
+    private final BatchFunction<T> batchFunction;
+    private final Set<Integer> queued = new LinkedHashSet<>();
+    private final Map<Integer, Optional<T>> loaded = new HashMap<>();
+
+    /**
+     * @param batchFunction reads the queued IDs
+     */
+    public BatchLoader(BatchFunction<T> batchFunction) {
+        this.batchFunction = batchFunction;
+    }
+
+    /**
+     * Queues a record to be read with the next batch.
+     * @param id unique identifier of the record
+     * @return the record, read on the first call to {@link Pending#get()}
+     */
+    public Pending<T> load(int id) {
+        if (!loaded.containsKey(id))
+            queued.add(id);
+        return () -> {
+            if (!loaded.containsKey(id)) {
+                queued.add(id);     // dropped by a failed dispatch
+                dispatch();
+            }
+            return loaded.get(id);
+        };
+    }
+
+    /**
+     * @param id unique identifier of a record read by an earlier {@link #dispatch()}
+     * @return the record, if it was read and exists; never reads from the database
+     */
+    public Optional<T> getLoaded(int id) {
+        return loaded.getOrDefault(id, Optional.empty());
+    }
+
+    /**
+     * Reads every queued ID now, in one call to the batch function.
+     * @throws SQLException if the records cannot be read.
+     */
+    public void dispatch() throws SQLException {
+        if (queued.isEmpty())
+            return;
+        Set<Integer> ids = Set.copyOf(queued);
+        queued.clear();
+        Map<Integer, T> found = batchFunction.load(ids);
+        for (Integer id : ids) {
+            loaded.put(id, Optional.ofNullable(found.get(id)));
+        }
+    }
+}
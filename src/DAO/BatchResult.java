@@ -0,0 +1,89 @@
+/*
+ Copyright 2022 Joseph Curtis Licensed under the Educational
+ Community License, Version 2.0 (the "License"); you may not use this file
+ except in compliance with the License. You may obtain a copy of the License at
+
+ http://opensource.org/licenses/ECL-2.0
+
+ Unless required by applicable law or agreed to in writing, software
+ distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ License for the specific language governing permissions and limitations under
+ the License.
+
+ ******************************************************************************/
+
+package DAO;
+
+import java.sql.SQLException;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Collectors;
+
+/**
+ * The outcome of a batched write ({@link DataAccessObject#addAll}, {@link DataAccessObject#updateAll},
+ * {@link DataAccessObject#deleteAll}).
+ * <p>A batch runs in a single transaction: either every row is committed, or the whole batch is
+ * rolled back and <code>failure</code> holds the error. Each row reports its own outcome either way.
+ * A batch run inside {@link utility.DBUtil#inTransaction} commits with the enclosing transaction;
+ * if one of its rows fails, the error is thrown to the enclosing work instead of being reported here.</p>
+ * @param rows one outcome per submitted item, in submission order
+ * @param committed true if the transaction was committed
+ * @param failure the error that caused the rollback, or null if committed
+ * @param <E> the submitted item type (a DTO record, or an ID for deletes)
+ * @author Joseph Curtis
+ * @version 2026.10.18
+ */
+public record BatchResult<E>(List<RowOutcome<E>> rows, boolean committed, SQLException failure) {
+
+    /**
+     * What happened to a single row of the batch.
+     */
+    public enum Outcome {
+        /** the statement changed the row and the batch was committed */
+        APPLIED,
+        /** the statement ran but matched no row (update or delete of a missing ID) */
+        NOT_FOUND,
+        /** the update matched no row because the record was changed since it was read */
+        CONFLICT,
+        /** the statement for this row failed, causing the rollback */
+        FAILED,
+        /** the statement succeeded, but was undone when the batch was rolled back */
+        ROLLED_BACK,
+        /** the statement was never sent because an earlier chunk failed */
+        NOT_EXECUTED
+    }
+
+    /**
+     * @param item the submitted item
+     * @param outcome what happened to it
+     * @param <E> the submitted item type
+     */
+    public record RowOutcome<E>(E item, Outcome outcome) {}
+
+    /**
+     * @param outcome the outcome to count
+     * @return number of rows with that outcome
+     */
+    public long count(Outcome outcome) {
+        return rows.stream().filter(row -> row.outcome() == outcome).count();
+    }
+
+    /**
+     * @param outcome the outcome to select
+     * @return the submitted items with that outcome, in submission order
+     */
+    public List<E> itemsWith(Outcome outcome) {
+        return rows.stream()
+                .filter(row -> row.outcome() == outcome)
+                .map(RowOutcome::item)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * @return the error that rolled back the batch, if any
+     */
+    public Optional<SQLException> getFailure() {
+        return Optional.ofNullable(failure);
+    }
+}
@@ -19,75 +19,46 @@ import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
 import model.Contact;
 import utility.DBUtil;
+import utility.ReferenceDataCache;
 
 import javax.sql.DataSource;
-import java.sql.Connection;
-import java.sql.PreparedStatement;
-import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.Optional;
 
 /**
  * Implementation of {@link DAO.ImmutableDAO} to read Contact objects from a database.
- * <p>Datasource constant is used to get connections to database using {@link DBUtil} class.</p>
- * <p>Use <code>getConnection()</code> method within a try-with-resources block.</p>
+ * <p>Contacts are read from the shared {@link ReferenceDataCache}, see {@link DBUtil#getReferenceData()}.</p>
  * @author Joseph Curtis
- * @version 2022.07.23
+ * @version 2026.10.18
  */
 public class ContactDaoImpl implements ImmutableDAO<Contact> {
 
     protected static final DataSource dataSource = DBUtil.getDataSource();
+    private static final ReferenceDataCache referenceData = DBUtil.getReferenceData();
 
     /**
      * {@inheritDoc}
+     * <p>Served from the reference data cache.</p>
      */
     @Override
     public ObservableList<Contact> getAll() {
-        ObservableList<Contact> contactsList = FXCollections.observableArrayList();
-        try (Connection connection = dataSource.getConnection();
-             PreparedStatement preparedStatement = connection.prepareStatement(
-                     """
-                             SELECT Contact_ID, Contact_Name, Email
-                             FROM client_schedule.contacts
-                             """)) {
-            ResultSet resultSet = preparedStatement.executeQuery();
-            while (resultSet.next()) {
-                contactsList.add(new Contact(
-                        resultSet.getInt("Contact_ID"),
-                        resultSet.getString("Contact_Name"),
-                        resultSet.getString("Email")
-                ));
-            }
+        try {
+            return FXCollections.observableArrayList(referenceData.getContacts());
         } catch (SQLException e) {
             System.out.println("SQL error: " + e.getMessage());
             e.printStackTrace();
         }
-        return contactsList;
+        return FXCollections.observableArrayList();
     }
 
     /**
      * {@inheritDoc}
+     * <p>Served from the reference data cache.</p>
      */
     @Override
     public Optional<Contact> getById(int id) {
-        try (Connection conn = dataSource.getConnection();
-             PreparedStatement statement = conn.prepareStatement(
-                     """
-                             SELECT Contact_ID, Contact_Name, Email
-                             FROM client_schedule.contacts
-                             WHERE Contact_ID = ?
-                             """)) {
-            statement.setInt(1, id);
-            ResultSet resultSet = statement.executeQuery();
-
-            if (resultSet.next()) {
-                // contact found, return it:
-                return Optional.of(new Contact(
-                        resultSet.getInt("Contact_ID"),
-                        resultSet.getString("Contact_Name"),
-                        resultSet.getString("Email")
-                ));
-            }
+        try {
+            return referenceData.getContact(id);
         } catch (SQLException e) {
             System.out.println("SQL error: " + e.getMessage());
             e.printStackTrace();
@@ -19,43 +19,87 @@ import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
 import model.Customer;
 import model.User;
+import utility.DBUtil;
+import utility.QueryClass;
 
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 /**
  * Implementation of {@link DAO.DataAccessObject} to persist Customer objects from a database.
  * @author Joseph Curtis
- * @version 2022.05.24
+ * @version 2026.10.18
  */
-public class CustomerDaoImpl extends DataAccessObject<Customer, User> {
+public class CustomerDaoImpl extends DataAccessObject<Customer, User>
+        implements PageableDAO<Customer>, DeltaSyncDAO<Customer> {
+
+    /** Most customers held in the entity cache. */
+    public static final int ENTITY_CACHE_SIZE = 1_000;
+
+    private static final EntityCache<Customer> cache = new EntityCache<>(ENTITY_CACHE_SIZE);
+
+    static final String SELECT = """
+            SELECT Customer_ID, Customer_Name, Address, Postal_Code, Phone,
+                   customers.Division_ID, Division, Country,
+                   customers.Last_Update, customers.Version
+            FROM client_schedule.customers
+            INNER JOIN first_level_divisions
+                 ON customers.Division_ID = first_level_divisions.Division_ID
+            INNER JOIN countries
+                 ON first_level_divisions.Country_ID = countries.Country_ID
+            """;
+
+    private static final RecordMapper<Customer> mapper = RecordMapper.of(Customer.class,
+            "Customer_ID", "Customer_Name", "Address", "Postal_Code", "Phone",
+            "Division_ID", "Division", "Country", "Version");
+
+    static {
+        // rows written by other clients are read again
+        DBUtil.getChangeFeed().addCacheListener(evictingListener(cache), "customers");
+    }
 
     /**
      * {@inheritDoc}
+     * <p>Served from the query result cache until customers are written.</p>
      */
     @Override
     public ObservableList<Customer> getAll() throws SQLException {
-        ObservableList<Customer> customersList = FXCollections.observableArrayList();
+        return query(SELECT, List.of(), QueryClass.SCAN);
+    }
 
-        try (Connection conn = dataSource.getConnection();
-             PreparedStatement statement = conn.prepareStatement(
-                 """
-                         SELECT Customer_ID, Customer_Name, Address, Postal_Code, Phone,
-                                customers.Division_ID, Division, Country
-                         FROM client_schedule.customers
-                         INNER JOIN first_level_divisions
-                              ON customers.Division_ID = first_level_divisions.Division_ID
-                         INNER JOIN countries
-                              ON first_level_divisions.Country_ID = countries.Country_ID
-                         """)) {
-            ResultSet resultSet = statement.executeQuery();
-            while (resultSet.next()) {
-                customersList.add(createRecordFromResultSet(resultSet));
-            }
-        }
+    /**
+     * {@inheritDoc}
+     * <p>Customers are ordered by Customer_ID.</p>
+     */
+    @Override
+    public ObservableList<Customer> getPageAfter(Customer after, int pageSize) throws SQLException {
+        return query(SELECT + """
+                WHERE Customer_ID > ?
+                ORDER BY Customer_ID
+                LIMIT ?
+                """, List.of(after == null ? Integer.MIN_VALUE : after.id(), pageSize));
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>Customers are ordered by Customer_ID.</p>
+     */
+    @Override
+    public ObservableList<Customer> getPageBefore(Customer before, int pageSize) throws SQLException {
+        ObservableList<Customer> customersList = query(SELECT + """
+                WHERE Customer_ID < ?
+                ORDER BY Customer_ID DESC
+                LIMIT ?
+                """, List.of(before.id(), pageSize));
+        FXCollections.reverse(customersList);   // read backwards, list forwards
         return customersList;
     }
 
@@ -63,21 +107,70 @@ public class CustomerDaoImpl extends DataAccessObject<Customer, User> {
      * {@inheritDoc}
      */
     @Override
+    public Comparator<Customer> keyOrder() {
+        return Comparator.comparing(Customer::id);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public LocalDateTime getLastUpdate() throws SQLException {
+        return queryLastUpdate("SELECT MAX(Last_Update) FROM client_schedule.customers");
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>Reads the database directly, so changes made by other clients are included.</p>
+     */
+    @Override
+    public Changes<Customer> getModifiedSince(LocalDateTime since) throws SQLException {
+        return queryChanges(SELECT + """
+                WHERE customers.Last_Update >= ?
+                """, List.of(since), since);
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>Served from the entity cache when the customer was read or written recently.</p>
+     */
+    @Override
     public Optional<Customer> getById(int id) throws SQLException {
-        try (Connection conn = dataSource.getConnection();
-             PreparedStatement statement = conn.prepareStatement(
-                 """
-                         SELECT Customer_ID, Customer_Name, Address, Postal_Code, Phone,
-                                customers.Division_ID, Division, Country
-                         FROM client_schedule.customers
-                         INNER JOIN first_level_divisions
-                              ON customers.Division_ID = first_level_divisions.Division_ID
-                         INNER JOIN countries
-                              ON first_level_divisions.Country_ID = countries.Country_ID
-                         WHERE Customer_ID = ?
-                         """)) {
+        return getCached(id, this::queryById);
+    }
+
+    /**
+     * Reads many customers at once, for a {@link BatchLoader}.
+     * <p>Cached customers are answered from the entity cache; the rest are read
+     * with one <code>WHERE Customer_ID IN (...)</code> query.</p>
+     * @param ids unique identifiers of the customers
+     * @return the customers found, by ID
+     * @throws SQLException if any error occurs.
+     */
+    public Map<Integer, Customer> getByIds(Collection<Integer> ids) throws SQLException {
+        return getCachedBatch(ids, placeholders -> SELECT + """
+                WHERE Customer_ID IN (%s)
+                """.formatted(inList(placeholders)));
+    }
+
+    /**
+     * Locks the customer's row until the current transaction ends. Adding an appointment
+     * read-locks the customer row for its foreign key, so none can be added for the customer
+     * meanwhile. Call it inside {@link DBUtil#inTransaction}, before checking for appointments.
+     * @param id unique identifier of the customer
+     * @return true if the customer exists
+     * @throws SQLException if any error occurs.
+     */
+    public boolean lockById(int id) throws SQLException {
+        return queryCount("SELECT 1 FROM client_schedule.customers WHERE Customer_ID = ? FOR UPDATE",
+                List.of(id)) > 0;
+    }
+
+    private Optional<Customer> queryById(int id) throws SQLException {
+        try (Connection conn = readSource.getConnection();
+             PreparedStatement statement = conn.prepareStatement(SELECT + "WHERE Customer_ID = ?")) {
             statement.setInt(1, id);
-            ResultSet resultSet = statement.executeQuery();
+            ResultSet resultSet = executeQuery(statement, QueryClass.LOOKUP);
             if (resultSet.next()) {
                 return Optional.of(createRecordFromResultSet(resultSet));
             } else {
@@ -90,56 +183,26 @@ public class CustomerDaoImpl extends DataAccessObject<Customer, User> {
      * {@inheritDoc}
      */
     @Override
-    public boolean add(Customer customer, User user) throws SQLException {
-        if (getById(customer.id()).isPresent())
-            return false;
-
-        try (Connection conn = dataSource.getConnection();
-             PreparedStatement statement = conn.prepareStatement(
-                 """
-                         INSERT INTO client_schedule.customers
-                         (Customer_Name, Address, Postal_Code, Phone, Division_ID,
-                         Created_By, Last_Updated_By, Create_Date, Last_Update)
-                         VALUES (?,?,?,?,?,?,?,CURRENT_TIMESTAMP,CURRENT_TIMESTAMP)
-                         """)) {
-            statement.setString(1, customer.name());
-            statement.setString(2, customer.address());
-            statement.setString(3, customer.postalCode());
-            statement.setString(4, customer.phone());
-            statement.setInt(5, customer.divisionId());
-            statement.setString(6, user.name());
-            statement.setString(7, user.name());
-            return statement.executeUpdate() > 0;
-        }
+    public Optional<Customer> add(Customer customer, User user) throws SQLException {
+        return insertReturningKey(customer, user);
     }
 
     /**
      * {@inheritDoc}
      */
     @Override
-    public boolean update(Customer customer, User user) throws SQLException {
+    public UpdateOutcome update(Customer customer, User user) throws SQLException {
         try (Connection conn = dataSource.getConnection();
-             PreparedStatement statement = conn.prepareStatement(
-                 """
-                         UPDATE client_schedule.customers SET
-                         Customer_Name = ?,
-                         Address = ?,
-                         Postal_Code = ?,
-                         Phone = ?,
-                         Division_ID = ?,
-                         Last_Update = CURRENT_TIMESTAMP,
-                         Last_Updated_By = ?
-                         WHERE Customer_ID = ?
-                         """)) {
-            statement.setString(1, customer.name());
-            statement.setString(2, customer.address());
-            statement.setString(3, customer.postalCode());
-            statement.setString(4, customer.phone());
-            statement.setInt(5, customer.divisionId());
-            statement.setString(6, user.name());
-            statement.setInt(7, customer.id());
-            return statement.executeUpdate() > 0;
+             PreparedStatement statement = conn.prepareStatement(getUpdateSql())) {
+            bindUpdate(statement, customer, user);
+            if (executeUpdate(statement, QueryClass.WRITE) > 0) {
+                writeThrough(withVersion(customer, customer.version() + 1));
+                return UpdateOutcome.UPDATED;
+            }
         }
+        // no row had this ID and version: tell a changed row from a deleted one by primary key
+        evict(customer.id());
+        return getById(customer.id()).isPresent() ? UpdateOutcome.CONFLICT : UpdateOutcome.NOT_FOUND;
     }
 
     /**
@@ -148,25 +211,148 @@ public class CustomerDaoImpl extends DataAccessObject<Customer, User> {
     @Override
     public boolean delete(int id) throws SQLException {
         try (Connection conn = dataSource.getConnection();
-             PreparedStatement statement = conn.prepareStatement(
-                 "DELETE FROM client_schedule.customers WHERE Customer_ID = ?")) {
+             PreparedStatement statement = conn.prepareStatement(getDeleteSql())) {
             statement.setInt(1, id);
-            return statement.executeUpdate() > 0;
+            evict(id);
+            return executeUpdate(statement, QueryClass.WRITE) > 0;
         }
     }
 
+    /**
+     * @return hit/miss/eviction counters of the customer entity cache
+     */
+    public static EntityCache.Stats getCacheStats() {
+        return cache.getStats();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected EntityCache<Customer> getEntityCache() {
+        return cache;
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>A customer needs its division and country names.</p>
+     */
+    @Override
+    protected boolean isComplete(Customer customer) {
+        return customer.division() != null && customer.country() != null;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected Customer withId(Customer customer, int id) {
+        return copy(customer, id, customer.version());
+    }
+
+    /**
+     * @param customer the customer to copy
+     * @param version the row version of the copy
+     * @return the customer with the given version
+     */
+    private static Customer withVersion(Customer customer, int version) {
+        return copy(customer, customer.id(), version);
+    }
+
+    private static Customer copy(Customer customer, int id, int version) {
+        return new Customer(id,
+                customer.name(),
+                customer.address(),
+                customer.postalCode(),
+                customer.phone(),
+                customer.divisionId(),
+                customer.division(),
+                customer.country(),
+                version);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected String getInsertSql() {
+        return """
+                INSERT INTO client_schedule.customers
+                (Customer_Name, Address, Postal_Code, Phone, Division_ID,
+                Created_By, Last_Updated_By, Create_Date, Last_Update)
+                VALUES (?,?,?,?,?,?,?,CURRENT_TIMESTAMP,CURRENT_TIMESTAMP)
+                """;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected void bindInsert(PreparedStatement statement, Customer customer, User user) throws SQLException {
+        statement.setString(1, customer.name());
+        statement.setString(2, customer.address());
+        statement.setString(3, customer.postalCode());
+        statement.setString(4, customer.phone());
+        statement.setInt(5, customer.divisionId());
+        statement.setString(6, user.name());
+        statement.setString(7, user.name());
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected String getUpdateSql() {
+        return """
+                UPDATE client_schedule.customers SET
+                Customer_Name = ?,
+                Address = ?,
+                Postal_Code = ?,
+                Phone = ?,
+                Division_ID = ?,
+                Last_Update = CURRENT_TIMESTAMP,
+                Last_Updated_By = ?,
+                Version = Version + 1
+                WHERE Customer_ID = ? AND Version = ?
+                """;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected void bindUpdate(PreparedStatement statement, Customer customer, User user) throws SQLException {
+        statement.setString(1, customer.name());
+        statement.setString(2, customer.address());
+        statement.setString(3, customer.postalCode());
+        statement.setString(4, customer.phone());
+        statement.setInt(5, customer.divisionId());
+        statement.setString(6, user.name());
+        statement.setInt(7, customer.id());
+        statement.setInt(8, customer.version());
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected String getDeleteSql() {
+        return "DELETE FROM client_schedule.customers WHERE Customer_ID = ?";
+    }
+
     /**
      * {@inheritDoc}
      */
     @Override
     protected Customer createRecordFromResultSet(ResultSet resultSet) throws SQLException {
-        return new Customer(resultSet.getInt("Customer_ID"),
-                resultSet.getString("Customer_Name"),
-                resultSet.getString("Address"),
-                resultSet.getString("Postal_Code"),
-                resultSet.getString("Phone"),
-                resultSet.getInt("Division_ID"),
-                resultSet.getString("Division"),
-                resultSet.getString("Country"));
+        return mapper.map(resultSet);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected RecordMapper.RowMapper<Customer> rowMapper(ResultSet resultSet) throws SQLException {
+        return mapper.forResultSet(resultSet);
     }
 }
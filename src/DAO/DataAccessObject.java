@@ -15,30 +15,93 @@
 
 package DAO;
 
+import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
 import model.DataTransferObject;
+import utility.CancellationToken;
+import utility.ChangeFeed;
 import utility.DBUtil;
+import utility.QueryClass;
+import utility.QueryResultCache;
+import utility.ReplicaRouter;
+import utility.ResilientDataSource;
+import utility.StaleReads;
+import utility.StatementCache;
+import utility.Transaction;
 
 import javax.sql.DataSource;
-import java.sql.ResultSet;
+import java.sql.*;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.IntFunction;
 
 /**
  * Data Access Object that interacts with Data Transfer Objects.
+ * <p>Every statement runs with the timeout of its {@link QueryClass}, and can be cancelled
+ * through the {@link CancellationToken} bound to the calling thread. Reads are retried after
+ * transient failures; writes only when the connection could not be opened, so they are never
+ * sent twice (see {@link ResilientDataSource}).</p>
  * @author Joseph Curtis
- * @version 2022.08.06
+ * @version 2026.10.18
  */
 public abstract class DataAccessObject <T extends DataTransferObject, U> {
 
+    /** Number of rows sent to the server per JDBC batch when no batch size is given. */
+    public static final int DEFAULT_BATCH_SIZE = 100;
+    /** Most IDs bound to one <code>IN (...)</code> list by {@link #getCachedBatch}. */
+    public static final int MAX_IN_LIST = 256;
+    /** Narrowest key range worth a partition of its own in {@link #queryPartitioned}. */
+    public static final int MIN_IDS_PER_PARTITION = 1_000;
+    /** Marks batch rows that were never sent to the server. */
+    private static final int NOT_EXECUTED = Integer.MIN_VALUE;
+
+    // shared by every scan, so a second scan queues instead of taking more pooled connections
+    private static final ExecutorService scanExecutor = Executors.newFixedThreadPool(DBUtil.getScanPartitions(), runnable -> {
+        Thread thread = new Thread(runnable, "dao-partition-scan");
+        thread.setDaemon(true);
+        return thread;
+    });
+
     protected final DataSource dataSource;
+    protected final DataSource readSource;
+    protected final QueryResultCache queryResults;
+    private final ResilientDataSource resilience;
 
     /**
      * Constructor for DAO with provided <code>dataSource</code> object from {@link DBUtil}.
      * Datasource is used to get connections to database.
-     * <p>Use <code>getConnection()</code> method within a try-with-resources block.</p>
+     * <p>Use <code>getConnection()</code> method within a try-with-resources block.
+     * Read-only queries borrow from <code>readSource</code> instead, which may be a read replica
+     * (see {@link DBUtil#getReplicaRouter()}).</p>
      */
     public DataAccessObject() {
         dataSource = DBUtil.getDataSource();
+        readSource = DBUtil.getReplicaRouter();
+        queryResults = DBUtil.getQueryResults();
+        resilience = DBUtil.getResilientDataSource();
+    }
+
+    /**
+     * Prepared statements are cached per pooled connection, keyed by SQL text,
+     * so the same DAO query is only parsed by the server once per connection.
+     * @return hit/miss counters for the prepared statement cache under all DAOs
+     */
+    public static StatementCache.Stats getStatementCacheStats() {
+        return StatementCache.getStats();
     }
 
     /**
@@ -56,20 +119,32 @@ public abstract class DataAccessObject <T extends DataTransferObject, U> {
     abstract Optional<T> getById(int id) throws Exception;
 
     /**
+     * Reads many records at once, such as for a {@link BatchLoader}.
+     * @param ids unique identifiers of the DTO records.
+     * @return the records found, by ID; IDs with no record are left out.
+     * @throws SQLException if any error occurs.
+     */
+    abstract Map<Integer, T> getByIds(Collection<Integer> ids) throws SQLException;
+
+    /**
+     * Inserts the DTO record in one statement. The ID of <code>dto</code> is ignored;
+     * the database assigns a new one.
      * @param dto the DTO record to be added.
      * @param user the currently logged-in user.
-     * @return true if DTO record was added, false if record already exists or if add failed.
+     * @return the persisted DTO record with its assigned ID, or an empty optional if add failed.
      * @throws Exception if any error occurs.
      */
-    abstract boolean add(T dto, U user) throws Exception;
+    abstract Optional<T> add(T dto, U user) throws Exception;
 
     /**
+     * Saves the DTO record if the database row still has the record's version.
      * @param dto the DTO record to be updated.
      * @param user the currently logged-in user.
-     * @return true if DTO record exists and is updated, else false.
+     * @return UPDATED if saved, CONFLICT if the row was changed since <code>dto</code> was read,
+     * or NOT_FOUND if it no longer exists.
      * @throws Exception if any error occurs.
      */
-    abstract boolean update(T dto, U user) throws Exception;
+    abstract UpdateOutcome update(T dto, U user) throws Exception;
 
     /**
      * @param id the ID of the record to be deleted.
@@ -78,11 +153,741 @@ public abstract class DataAccessObject <T extends DataTransferObject, U> {
      */
     abstract boolean delete(int id) throws Exception;
 
+    /**
+     * Adds all DTO records in one transaction, using JDBC batches of {@link #DEFAULT_BATCH_SIZE} rows.
+     * @param dtos the DTO records to be added.
+     * @param user the currently logged-in user.
+     * @return the outcome of each row, and whether the batch was committed.
+     * @throws SQLException if a connection cannot be obtained, the transaction cannot be ended,
+     * or a row fails inside an enclosing transaction.
+     */
+    public BatchResult<T> addAll(List<T> dtos, U user) throws SQLException {
+        return addAll(dtos, user, DEFAULT_BATCH_SIZE);
+    }
+
+    /**
+     * Adds all DTO records in one transaction, sending <code>batchSize</code> rows per JDBC batch.
+     * <p>If any row fails, the whole transaction is rolled back.
+     * When committed, each row's item is the persisted record with its assigned ID.</p>
+     * @param dtos the DTO records to be added.
+     * @param user the currently logged-in user.
+     * @param batchSize number of rows per round trip.
+     * @return the outcome of each row, and whether the batch was committed.
+     * @throws SQLException if a connection cannot be obtained, the transaction cannot be ended,
+     * or a row fails inside an enclosing transaction.
+     */
+    public BatchResult<T> addAll(List<T> dtos, U user, int batchSize) throws SQLException {
+        BatchResult<T> result = executeBatch(getInsertSql(), dtos, (statement, dto) -> bindInsert(statement, dto, user),
+                this::withId, batchSize);
+        result.itemsWith(BatchResult.Outcome.APPLIED).forEach(this::writeThrough);
+        return result;
+    }
+
+    /**
+     * Updates all DTO records in one transaction, using JDBC batches of {@link #DEFAULT_BATCH_SIZE} rows.
+     * @param dtos the DTO records to be updated.
+     * @param user the currently logged-in user.
+     * @return the outcome of each row, and whether the batch was committed.
+     * @throws SQLException if a connection cannot be obtained, the transaction cannot be ended,
+     * or a row fails inside an enclosing transaction.
+     */
+    public BatchResult<T> updateAll(List<T> dtos, U user) throws SQLException {
+        return updateAll(dtos, user, DEFAULT_BATCH_SIZE);
+    }
+
+    /**
+     * Updates all DTO records in one transaction, sending <code>batchSize</code> rows per JDBC batch.
+     * <p>Records that were changed since they were read (their version no longer matches) are
+     * reported as {@link BatchResult.Outcome#CONFLICT}, and records that no longer exist as
+     * {@link BatchResult.Outcome#NOT_FOUND}, as {@link #update} does. Neither rolls back the batch.</p>
+     * @param dtos the DTO records to be updated.
+     * @param user the currently logged-in user.
+     * @param batchSize number of rows per round trip.
+     * @return the outcome of each row, and whether the batch was committed.
+     * @throws SQLException if a connection cannot be obtained, the transaction cannot be ended,
+     * or a row fails inside an enclosing transaction.
+     */
+    public BatchResult<T> updateAll(List<T> dtos, U user, int batchSize) throws SQLException {
+        BatchResult<T> result = executeBatch(getUpdateSql(), dtos, (statement, dto) -> bindUpdate(statement, dto, user),
+                null, batchSize);
+        // the cached copies would carry the old version, so they are dropped rather than replaced
+        result.itemsWith(BatchResult.Outcome.APPLIED).forEach(dto -> evict(dto.id()));
+        return withConflicts(result);
+    }
+
+    /**
+     * Tells rows that matched no ID and version apart: those whose row still exists
+     * were changed by someone else, and are reported as conflicts.
+     * @param result the outcome of a batched update
+     * @return the outcome with changed rows as {@link BatchResult.Outcome#CONFLICT}
+     * @throws SQLException if the rows cannot be read.
+     */
+    private BatchResult<T> withConflicts(BatchResult<T> result) throws SQLException {
+        List<T> unmatched = result.itemsWith(BatchResult.Outcome.NOT_FOUND);
+        if (unmatched.isEmpty())
+            return result;
+        unmatched.forEach(dto -> evict(dto.id()));
+        Map<Integer, T> existing = getByIds(unmatched.stream().map(DataTransferObject::id).toList());
+        List<BatchResult.RowOutcome<T>> rows = result.rows().stream()
+                .map(row -> row.outcome() == BatchResult.Outcome.NOT_FOUND && existing.containsKey(row.item().id())
+                        ? new BatchResult.RowOutcome<>(row.item(), BatchResult.Outcome.CONFLICT)
+                        : row)
+                .toList();
+        return new BatchResult<>(rows, result.committed(), result.failure());
+    }
+
+    /**
+     * Deletes all records with the given IDs in one transaction,
+     * using JDBC batches of {@link #DEFAULT_BATCH_SIZE} rows.
+     * @param ids the IDs of the records to be deleted.
+     * @return the outcome of each ID, and whether the batch was committed.
+     * @throws SQLException if a connection cannot be obtained, the transaction cannot be ended,
+     * or a row fails inside an enclosing transaction.
+     */
+    public BatchResult<Integer> deleteAll(List<Integer> ids) throws SQLException {
+        return deleteAll(ids, DEFAULT_BATCH_SIZE);
+    }
+
+    /**
+     * Deletes all records with the given IDs in one transaction, sending <code>batchSize</code> rows per JDBC batch.
+     * @param ids the IDs of the records to be deleted.
+     * @param batchSize number of rows per round trip.
+     * @return the outcome of each ID, and whether the batch was committed.
+     * @throws SQLException if a connection cannot be obtained, the transaction cannot be ended,
+     * or a row fails inside an enclosing transaction.
+     */
+    public BatchResult<Integer> deleteAll(List<Integer> ids, int batchSize) throws SQLException {
+        BatchResult<Integer> result = executeBatch(getDeleteSql(), ids, (statement, id) -> statement.setInt(1, id),
+                null, batchSize);
+        result.itemsWith(BatchResult.Outcome.APPLIED).forEach(this::evict);
+        return result;
+    }
+
+    /**
+     * Inserts one DTO record and reads back its generated key, in a single round trip.
+     * <p>Subclasses implement {@link #add} with this.</p>
+     * @param dto the DTO record to be added.
+     * @param user the currently logged-in user.
+     * @return the persisted DTO record with its assigned ID, or an empty optional if nothing was inserted.
+     * @throws SQLException if any error occurs.
+     */
+    protected Optional<T> insertReturningKey(T dto, U user) throws SQLException {
+        try (Connection conn = dataSource.getConnection();
+             PreparedStatement statement = conn.prepareStatement(getInsertSql(), Statement.RETURN_GENERATED_KEYS)) {
+            bindInsert(statement, dto, user);
+            if (executeUpdate(statement, QueryClass.WRITE) == 0)
+                return Optional.empty();
+
+            ResultSet generatedKeys = statement.getGeneratedKeys();
+            if (!generatedKeys.next())
+                return Optional.empty();
+            T persisted = withId(dto, generatedKeys.getInt(1));
+            writeThrough(persisted);
+            return Optional.of(persisted);
+        }
+    }
+
+    /**
+     * Runs a list query through the query result cache, with the {@link QueryClass#LIST} timeout.
+     * @see #query(String, List, QueryClass)
+     * @param sql the query
+     * @param parameters values for the query's placeholders, in order (see {@link #bindParameters})
+     * @return the rows as a new list, which the caller may change
+     * @throws SQLException if the query fails.
+     */
+    protected final ObservableList<T> query(String sql, List<?> parameters) throws SQLException {
+        return query(sql, parameters, QueryClass.LIST);
+    }
+
+    /**
+     * Runs a list query through the query result cache.
+     * <p>A result is cached under its SQL and parameters until a DAO writes one of the tables the
+     * SQL reads. A result read inside a transaction is only cached once the transaction commits.</p>
+     * <p>The read is retried after transient failures (see {@link ResilientDataSource#read}). While the
+     * database is unreachable, the query's last known result is returned instead, if there is one,
+     * and reported to the {@link StaleReads} bound to the current thread.</p>
+     * @param sql the query
+     * @param parameters values for the query's placeholders, in order (see {@link #bindParameters})
+     * @param queryClass sets the query's timeout
+     * @return the rows as a new list, which the caller may change
+     * @throws SQLException if the query fails.
+     */
+    protected final ObservableList<T> query(String sql,
+                                            List<?> parameters,
+                                            QueryClass queryClass) throws SQLException {
+        List<T> cached = queryResults.get(sql, parameters);
+        if (cached != null)
+            return FXCollections.observableArrayList(cached);
+
+        long stamp = queryResults.getWriteStamp();
+        List<T> result;
+        try {
+            result = resilience.read(() -> {
+                List<T> rows = new ArrayList<>();
+                try (Connection conn = readSource.getConnection();
+                     PreparedStatement statement = conn.prepareStatement(sql)) {
+                    bindParameters(statement, parameters);
+                    ResultSet resultSet = executeQuery(statement, queryClass);
+                    RecordMapper.RowMapper<T> mapper = rowMapper(resultSet);
+                    while (resultSet.next()) {
+                        rows.add(mapper.map(resultSet));
+                    }
+                }
+                return List.copyOf(rows);
+            });
+        } catch (SQLException e) {
+            List<T> lastKnown = ResilientDataSource.isUnavailable(e) ? queryResults.getLastKnown(sql, parameters) : null;
+            if (lastKnown == null)
+                throw e;
+            StaleReads.report(e);
+            return FXCollections.observableArrayList(lastKnown);
+        }
+        Transaction.afterCommit(() -> {
+            queryResults.putIfUnchanged(sql, parameters, result, stamp);
+            queryResults.remember(sql, parameters, result);
+        });
+        return FXCollections.observableArrayList(result);
+    }
+
+    /**
+     * Reads every row of a table by splitting its ID range into partitions and reading them
+     * concurrently, each on its own pooled connection, bypassing the query result cache.
+     * <p>Partitions run on one pool of {@link DBUtil#getScanPartitions()} threads shared by all
+     * scans, so concurrent scans queue rather than take every connection from the UI thread.</p>
+     * <p>The partitions are merged in key order, so the rows are in key order if
+     * <code>rangeSql</code> orders each range by key. Tables whose ID range is too narrow for more
+     * than one partition of {@link #MIN_IDS_PER_PARTITION} IDs are read with one query.
+     * If any partition fails, the others are cancelled and the first failure is thrown.</p>
+     * <p>Worker threads cannot see a transaction on the calling thread, so inside a
+     * transaction the ranges are read one after another on its connection instead.</p>
+     * @param rangeSql query for one partition, ordered by ID, whose only placeholders are the lowest
+     *                 ID (inclusive) and the end of the range (exclusive), in that order
+     * @param boundsSql query returning the lowest and highest ID, such as <code>SELECT MIN(id), MAX(id)</code>
+     * @param partitions most ranges to read at once
+     * @return all rows, as a new list
+     * @throws SQLException if a query fails.
+     */
+    protected final ObservableList<T> queryPartitioned(String rangeSql,
+                                                       String boundsSql,
+                                                       int partitions) throws SQLException {
+        long[] bounds = resilience.read(() -> {
+            try (Connection conn = readSource.getConnection();
+                 PreparedStatement statement = conn.prepareStatement(boundsSql)) {
+                ResultSet resultSet = executeQuery(statement, QueryClass.LOOKUP);
+                if (!resultSet.next() || resultSet.getObject(1) == null)
+                    return null;
+                return new long[]{resultSet.getLong(1), resultSet.getLong(2)};
+            }
+        });
+        if (bounds == null)
+            return FXCollections.observableArrayList();     // empty table
+        long minId = bounds[0];
+        long maxId = bounds[1];
+        long width = maxId - minId + 1;
+        int ranges = (int) Math.max(1, Math.min(partitions, width / MIN_IDS_PER_PARTITION));
+        CancellationToken token = CancellationToken.current();
+        List<Callable<List<T>>> reads = new ArrayList<>();
+        for (int i = 0; i < ranges; i++) {
+            int from = (int) (minId + width * i / ranges);
+            int to = (int) (minId + width * (i + 1) / ranges);
+            reads.add(token == null
+                    ? () -> queryRange(rangeSql, from, to)
+                    : () -> token.run(() -> queryRange(rangeSql, from, to)));   // cancel every partition
+        }
+
+        ObservableList<T> rows = FXCollections.observableArrayList();
+        if (ranges == 1 || Transaction.isActive()) {
+            for (Callable<List<T>> read : reads) {
+                rows.addAll(call(read));
+            }
+            return rows;
+        }
+        List<Future<List<T>>> results = reads.stream().map(scanExecutor::submit).toList();
+        try {
+            for (Future<List<T>> result : results) {
+                rows.addAll(result.get());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for a partition", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof SQLException sqlException)
+                throw sqlException;
+            if (e.getCause() instanceof RuntimeException runtimeException)
+                throw runtimeException;
+            throw new SQLException(e.getCause());
+        } finally {
+            results.forEach(result -> result.cancel(true));
+        }
+        return rows;
+    }
+
+    private List<T> queryRange(String rangeSql, int from, int to) throws SQLException {
+        return resilience.read(() -> {
+            List<T> rows = new ArrayList<>();
+            try (Connection conn = readSource.getConnection();
+                 PreparedStatement statement = conn.prepareStatement(rangeSql)) {
+                statement.setInt(1, from);
+                statement.setInt(2, to);
+                ResultSet resultSet = executeQuery(statement, QueryClass.SCAN);
+                RecordMapper.RowMapper<T> mapper = rowMapper(resultSet);
+                while (resultSet.next()) {
+                    rows.add(mapper.map(resultSet));
+                }
+            }
+            return rows;
+        });
+    }
+
+    private static <R> R call(Callable<R> read) throws SQLException {
+        try {
+            return read.call();
+        } catch (SQLException | RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new SQLException(e);
+        }
+    }
+
+    /**
+     * Reads a single number, such as a <code>COUNT(*)</code>, bypassing the query result cache.
+     * <p>Counts and existence checks are answered from indexes, and are often re-checks just
+     * before a write, so they always ask the primary database.</p>
+     * @param sql a query returning one numeric column
+     * @param parameters values for the query's placeholders, in order (see {@link #bindParameters})
+     * @return the first column of the first row, or 0 if the query returns no rows
+     * @throws SQLException if the query fails.
+     */
+    protected final long queryCount(String sql, List<?> parameters) throws SQLException {
+        return resilience.read(() -> {
+            try (Connection conn = dataSource.getConnection();
+                 PreparedStatement statement = conn.prepareStatement(sql)) {
+                bindParameters(statement, parameters);
+                ResultSet resultSet = executeQuery(statement, QueryClass.LOOKUP);
+                return resultSet.next() ? resultSet.getLong(1) : 0L;
+            }
+        });
+    }
+
+    /**
+     * Reads the rows a delta query returns, bypassing the query result cache,
+     * and the latest <code>Last_Update</code> among them.
+     * <p>Read from the primary, so no change is missed while a replica lags.</p>
+     * @param sql a query that also selects the <code>Last_Update</code> column
+     * @param parameters values for the query's placeholders, in order
+     * @param since the high-water mark the query compares against
+     * @return the rows, and the new high-water mark (<code>since</code> if no rows changed)
+     * @throws SQLException if the query fails.
+     */
+    protected final DeltaSyncDAO.Changes<T> queryChanges(String sql,
+                                                          List<?> parameters,
+                                                          LocalDateTime since) throws SQLException {
+        return resilience.read(() -> {
+            List<T> modified = new ArrayList<>();
+            LocalDateTime highWater = since;
+            try (Connection conn = dataSource.getConnection();
+                 PreparedStatement statement = conn.prepareStatement(sql)) {
+                bindParameters(statement, parameters);
+                ResultSet resultSet = executeQuery(statement, QueryClass.LIST);
+                RecordMapper.RowMapper<T> mapper = rowMapper(resultSet);
+                while (resultSet.next()) {
+                    modified.add(mapper.map(resultSet));
+                    LocalDateTime lastUpdate = resultSet.getTimestamp("Last_Update").toLocalDateTime();
+                    if (lastUpdate.isAfter(highWater))
+                        highWater = lastUpdate;
+                }
+            }
+            return new DeltaSyncDAO.Changes<>(List.copyOf(modified), highWater);
+        });
+    }
+
+    /**
+     * @param sql a query selecting one <code>MAX(Last_Update)</code> value
+     * @return the value, or {@link DeltaSyncDAO#BEGINNING} if the table is empty
+     * @throws SQLException if the query fails.
+     */
+    protected final LocalDateTime queryLastUpdate(String sql) throws SQLException {
+        return resilience.read(() -> {
+            try (Connection conn = dataSource.getConnection();
+                 PreparedStatement statement = conn.prepareStatement(sql)) {
+                ResultSet resultSet = executeQuery(statement, QueryClass.LOOKUP);
+                Timestamp lastUpdate = resultSet.next() ? resultSet.getTimestamp(1) : null;
+                return lastUpdate == null ? DeltaSyncDAO.BEGINNING : lastUpdate.toLocalDateTime();
+            }
+        });
+    }
+
+    /**
+     * Sets each placeholder of a statement from a value: <code>Integer</code>, <code>String</code>
+     * or <code>LocalDateTime</code>.
+     * @param statement the prepared statement
+     * @param parameters values for the placeholders, in order
+     * @throws SQLException if a parameter cannot be set.
+     */
+    protected static void bindParameters(PreparedStatement statement, List<?> parameters) throws SQLException {
+        int index = 1;
+        for (Object value : parameters) {
+            if (value instanceof Integer intValue)
+                statement.setInt(index++, intValue);
+            else if (value instanceof LocalDateTime dateTime)
+                statement.setTimestamp(index++, Timestamp.valueOf(dateTime));
+            else
+                statement.setString(index++, (String) value);
+        }
+    }
+
+    /**
+     * Runs a query with its class's timeout, cancellable through the current thread's
+     * {@link CancellationToken}. Every DAO query goes through here.
+     * @param statement the prepared statement, with its parameters bound
+     * @param queryClass sets the query's timeout
+     * @return the query's result set
+     * @throws SQLException if the query fails, times out or is cancelled.
+     */
+    protected static ResultSet executeQuery(PreparedStatement statement, QueryClass queryClass) throws SQLException {
+        statement.setQueryTimeout(queryClass.getTimeoutSeconds());
+        return CancellationToken.execute(statement, statement::executeQuery);
+    }
+
+    /**
+     * Runs an insert, update or delete with its class's timeout, cancellable through the
+     * current thread's {@link CancellationToken}. Reads stay on the primary for a while after
+     * (see {@link ReplicaRouter#recordWrite()}).
+     * @param statement the prepared statement, with its parameters bound
+     * @param queryClass sets the statement's timeout
+     * @return the number of rows changed
+     * @throws SQLException if the statement fails, times out or is cancelled.
+     */
+    protected static int executeUpdate(PreparedStatement statement, QueryClass queryClass) throws SQLException {
+        DBUtil.getReplicaRouter().recordWrite();
+        statement.setQueryTimeout(queryClass.getTimeoutSeconds());
+        return CancellationToken.execute(statement, statement::executeUpdate);
+    }
+
+    private static int[] executeBatch(PreparedStatement statement, QueryClass queryClass) throws SQLException {
+        DBUtil.getReplicaRouter().recordWrite();
+        statement.setQueryTimeout(queryClass.getTimeoutSeconds());
+        return CancellationToken.execute(statement, statement::executeBatch);
+    }
+
+    /**
+     * @return the cache of this DAO's records by ID, or null if its records are not cached.
+     */
+    protected EntityCache<T> getEntityCache() {
+        return null;
+    }
+
+    /**
+     * Checks that a record written by a caller carries everything a query would return
+     * (such as the names joined from other tables), so it can stand in for a database read.
+     * @param dto a written DTO record
+     * @return true if the record can be cached as it is
+     */
+    protected boolean isComplete(T dto) {
+        return true;
+    }
+
+    /**
+     * Puts a record this DAO has just written into the entity cache, once the write commits,
+     * and drops cached query results that read this DAO's table.
+     * <p>The cached copy is dropped right away, so nothing reads the old version meanwhile, and
+     * a record that is not {@link #isComplete complete} is left to be read from the database.</p>
+     * @param dto the DTO record as written
+     */
+    protected final void writeThrough(T dto) {
+        invalidateQueries();
+        EntityCache<T> cache = getEntityCache();
+        if (cache == null)
+            return;
+        cache.invalidate(dto.id());
+        if (isComplete(dto))
+            Transaction.afterCommit(() -> cache.put(dto.id(), dto));
+        else
+            Transaction.afterCommit(() -> cache.invalidate(dto.id()));
+    }
+
+    /**
+     * Drops a record this DAO has just deleted from the entity cache, and cached query results
+     * that read this DAO's table, now and again once the delete commits.
+     * @param id the ID of the deleted record
+     */
+    protected final void evict(int id) {
+        invalidateQueries();
+        EntityCache<T> cache = getEntityCache();
+        if (cache == null)
+            return;
+        cache.invalidate(id);
+        Transaction.afterCommit(() -> cache.invalidate(id));
+    }
+
+    /**
+     * Drops cached query results that read this DAO's table, now and again once the write commits.
+     */
+    private void invalidateQueries() {
+        Set<String> tables = queryResults.tablesOf(getDeleteSql());
+        queryResults.invalidateTables(tables);
+        Transaction.afterCommit(() -> queryResults.invalidateTables(tables));
+    }
+
+    /**
+     * @param cache an entity cache
+     * @return a change feed listener that drops changed records from the cache
+     */
+    protected static ChangeFeed.Listener evictingListener(EntityCache<?> cache) {
+        return changes -> changes.forEach(change -> {
+            if (change.operation() == ChangeFeed.Operation.RESYNC)
+                cache.invalidateAll();
+            else
+                cache.invalidate(change.rowId());
+        });
+    }
+
+    /**
+     * Reads a record by ID through the entity cache.
+     * <p>A record read inside a transaction is only cached once the transaction commits.</p>
+     * @param id unique identifier of the DTO record.
+     * @param query reads the record from the database on a cache miss
+     * @return the record, if one with that ID exists
+     * @throws SQLException if the query fails.
+     */
+    protected final Optional<T> getCached(int id, CacheLoader<T> query) throws SQLException {
+        EntityCache<T> cache = getEntityCache();
+        T cached = cache.get(id);
+        if (cached != null)
+            return Optional.of(cached);
+
+        long stamp = cache.getWriteStamp();
+        Optional<T> loaded = resilience.read(() -> query.load(id));
+        loaded.ifPresent(dto -> Transaction.afterCommit(() -> cache.putIfUnchanged(id, dto, stamp)));
+        return loaded;
+    }
+
+    /**
+     * Reads records by ID through the entity cache, sending the IDs that are not cached
+     * in <code>IN (...)</code> lists of at most {@link #MAX_IN_LIST}.
+     * <p>Each list is padded to a power of two by repeating its last ID, so only a few distinct
+     * SQL strings are ever prepared and they stay in the statement cache.
+     * Records read inside a transaction are only cached once the transaction commits.</p>
+     * @param ids unique identifiers of the DTO records; duplicates are read once
+     * @param inListSql the record query for a given number of ID placeholders
+     * @return the records found, by ID; IDs with no record are left out
+     * @throws SQLException if a query fails.
+     */
+    protected final Map<Integer, T> getCachedBatch(Collection<Integer> ids,
+                                                   IntFunction<String> inListSql) throws SQLException {
+        EntityCache<T> cache = getEntityCache();
+        Map<Integer, T> found = new HashMap<>();
+        List<Integer> missing = new ArrayList<>();
+        for (Integer id : new LinkedHashSet<>(ids)) {
+            T cached = cache.get(id);
+            if (cached != null)
+                found.put(id, cached);
+            else
+                missing.add(id);
+        }
+        if (missing.isEmpty())
+            return found;
+
+        long stamp = cache.getWriteStamp();
+        List<T> loaded = resilience.read(() -> {
+            List<T> rows = new ArrayList<>();
+            try (Connection conn = readSource.getConnection()) {
+                for (int from = 0; from < missing.size(); from += MAX_IN_LIST) {
+                    List<Integer> chunk = missing.subList(from, Math.min(from + MAX_IN_LIST, missing.size()));
+                    int placeholders = Integer.highestOneBit(chunk.size() * 2 - 1);
+                    try (PreparedStatement statement = conn.prepareStatement(inListSql.apply(placeholders))) {
+                        for (int i = 0; i < placeholders; i++) {
+                            statement.setInt(i + 1, chunk.get(Math.min(i, chunk.size() - 1)));
+                        }
+                        ResultSet resultSet = executeQuery(statement, QueryClass.LOOKUP);
+                        RecordMapper.RowMapper<T> mapper = rowMapper(resultSet);
+                        while (resultSet.next()) {
+                            rows.add(mapper.map(resultSet));
+                        }
+                    }
+                }
+            }
+            return rows;
+        });
+        for (T dto : loaded) {
+            found.put(dto.id(), dto);
+        }
+        Transaction.afterCommit(() -> loaded.forEach(dto -> cache.putIfUnchanged(dto.id(), dto, stamp)));
+        return found;
+    }
+
+    /**
+     * @param placeholders number of placeholders
+     * @return <code>?, ?, ... ?</code>, for an <code>IN (...)</code> list
+     */
+    protected static String inList(int placeholders) {
+        return String.join(", ", Collections.nCopies(placeholders, "?"));
+    }
+
+    /**
+     * Reads one record from the database for {@link #getCached}.
+     * @param <T> the DTO record type
+     */
+    @FunctionalInterface
+    protected interface CacheLoader<T> {
+        Optional<T> load(int id) throws SQLException;
+    }
+
+    /**
+     * Copy a DTO record with a new ID, such as the key generated by an insert.
+     * @param dto the DTO record to copy
+     * @param id the ID of the copy
+     * @return the DTO record with the given ID
+     */
+    protected abstract T withId(T dto, int id);
+
+    /**
+     * @return parameterized INSERT statement for one DTO record.
+     */
+    protected abstract String getInsertSql();
+
+    /**
+     * Sets the parameters of {@link #getInsertSql()} for one DTO record.
+     * @param statement statement prepared from the insert SQL
+     * @param dto the DTO record to be added.
+     * @param user the currently logged-in user.
+     * @throws SQLException if a parameter cannot be set.
+     */
+    protected abstract void bindInsert(PreparedStatement statement, T dto, U user) throws SQLException;
+
+    /**
+     * @return parameterized UPDATE statement for one DTO record.
+     */
+    protected abstract String getUpdateSql();
+
+    /**
+     * Sets the parameters of {@link #getUpdateSql()} for one DTO record.
+     * @param statement statement prepared from the update SQL
+     * @param dto the DTO record to be updated.
+     * @param user the currently logged-in user.
+     * @throws SQLException if a parameter cannot be set.
+     */
+    protected abstract void bindUpdate(PreparedStatement statement, T dto, U user) throws SQLException;
+
+    /**
+     * @return DELETE statement with the record ID as its only parameter.
+     */
+    protected abstract String getDeleteSql();
+
+    /**
+     * Sets the parameters of a batched statement for one item.
+     * @param <E> the item type
+     */
+    @FunctionalInterface
+    private interface StatementBinder<E> {
+        void bind(PreparedStatement statement, E item) throws SQLException;
+    }
+
+    /**
+     * Copies a batched item with the key the database generated for it.
+     * @param <E> the item type
+     */
+    @FunctionalInterface
+    private interface KeyAssigner<E> {
+        E withId(E item, int id);
+    }
+
+    /**
+     * Runs one statement per item as JDBC batches inside a single transaction.
+     * <p>A failed batch rolls back the transaction; the driver's update counts are
+     * kept so that each row can report what happened to it. Inside an enclosing
+     * {@link DBUtil#inTransaction} the batch joins it, and a failure is thrown instead,
+     * so the caller's earlier writes are not rolled back without it knowing.</p>
+     * <p>When <code>keyAssigner</code> is given, generated keys are read back after each
+     * chunk and the reported items carry their new IDs.</p>
+     */
+    private <E> BatchResult<E> executeBatch(String sql,
+                                            List<E> items,
+                                            StatementBinder<E> binder,
+                                            KeyAssigner<E> keyAssigner,
+                                            int batchSize) throws SQLException {
+        if (batchSize < 1)
+            throw new IllegalArgumentException("Batch size must be at least 1");
+
+        List<E> results = new ArrayList<>(items);
+        int[] updateCounts = new int[items.size()];
+        Arrays.fill(updateCounts, NOT_EXECUTED);
+        boolean nested = Transaction.isActive();
+
+        return DBUtil.inTransaction(transaction -> {
+            try (Connection conn = dataSource.getConnection();
+                 PreparedStatement statement = keyAssigner == null
+                         ? conn.prepareStatement(sql)
+                         : conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
+                for (int start = 0; start < items.size(); start += batchSize) {
+                    int end = Math.min(start + batchSize, items.size());
+                    for (int i = start; i < end; i++) {
+                        binder.bind(statement, items.get(i));
+                        statement.addBatch();
+                    }
+                    try {
+                        int[] chunkCounts = executeBatch(statement, QueryClass.WRITE);
+                        System.arraycopy(chunkCounts, 0, updateCounts, start, Math.min(chunkCounts.length, end - start));
+                        if (keyAssigner != null) {
+                            ResultSet generatedKeys = statement.getGeneratedKeys();
+                            for (int i = start; i < end && generatedKeys.next(); i++) {
+                                results.set(i, keyAssigner.withId(items.get(i), generatedKeys.getInt(1)));
+                            }
+                        }
+                    } catch (BatchUpdateException e) {
+                        if (nested)
+                            throw e;    // the enclosing transaction decides whether to roll back
+                        int[] chunkCounts = e.getUpdateCounts() == null ? new int[0] : e.getUpdateCounts();
+                        int executed = Math.min(chunkCounts.length, end - start);
+                        System.arraycopy(chunkCounts, 0, updateCounts, start, executed);
+                        if (executed < end - start)
+                            updateCounts[start + executed] = Statement.EXECUTE_FAILED;  // driver stopped here
+                        transaction.setRollbackOnly();
+                        return toBatchResult(items, updateCounts, false, e);   // report the items as submitted
+                    }
+                }
+                return toBatchResult(results, updateCounts, true, null);
+            }
+        });
+    }
+
+    private static <E> BatchResult<E> toBatchResult(List<E> items,
+                                                    int[] updateCounts,
+                                                    boolean committed,
+                                                    SQLException failure) {
+        List<BatchResult.RowOutcome<E>> rows = new ArrayList<>(items.size());
+        for (int i = 0; i < items.size(); i++) {
+            int count = updateCounts[i];
+            BatchResult.Outcome outcome;
+            if (count == NOT_EXECUTED)
+                outcome = BatchResult.Outcome.NOT_EXECUTED;
+            else if (count == Statement.EXECUTE_FAILED)
+                outcome = BatchResult.Outcome.FAILED;
+            else if (count == 0)
+                outcome = BatchResult.Outcome.NOT_FOUND;
+            else    // row count, or SUCCESS_NO_INFO for rewritten batches
+                outcome = committed ? BatchResult.Outcome.APPLIED : BatchResult.Outcome.ROLLED_BACK;
+            rows.add(new BatchResult.RowOutcome<>(items.get(i), outcome));
+        }
+        return new BatchResult<>(List.copyOf(rows), committed, failure);
+    }
+
     /**
      * Create a DTO from SQL result set.
      * @param resultSet object from SQL query
      * @return the Data Transfer Object
-     * @throws Exception if any error occurs.
+     * @throws SQLException if a column cannot be read.
      */
-    protected abstract T createRecordFromResultSet(ResultSet resultSet) throws Exception;
+    protected abstract T createRecordFromResultSet(ResultSet resultSet) throws SQLException;
+
+    /**
+     * Prepares to create DTOs from every row of one SQL result set, such as by resolving
+     * its columns once. Read loops call this before the first row.
+     * @param resultSet object from SQL query, before its first row
+     * @return creates the Data Transfer Object from the current row of <code>resultSet</code>
+     * @throws SQLException if the result set lacks a column.
+     */
+    protected RecordMapper.RowMapper<T> rowMapper(ResultSet resultSet) throws SQLException {
+        return this::createRecordFromResultSet;
+    }
 }
@@ -0,0 +1,58 @@
+/*
+ Copyright 2022 Joseph Curtis Licensed under the Educational
+ Community License, Version 2.0 (the "License"); you may not use this file
+ except in compliance with the License. You may obtain a copy of the License at
+
+ http://opensource.org/licenses/ECL-2.0
+
+ Unless required by applicable law or agreed to in writing, software
+ distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ License for the specific language governing permissions and limitations under
+ the License.
+
+ ******************************************************************************/
+
+package DAO;
+
+import model.DataTransferObject;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Interface for a Data Access Object that can read just the records changed since a point in time.
+ * <p>Changes are found by the table's <code>Last_Update</code> column, which the database sets on
+ * every insert and update. Take a high-water mark with {@link #getLastUpdate()} before a full load,
+ * then pass each {@link Changes#highWater()} to the next {@link #getModifiedSince} call.</p>
+ * <p>The mark is compared inclusively (<code>Last_Update</code> only holds whole seconds), so a row
+ * may be returned twice; merge the rows by ID. Deleted rows are not reported.</p>
+ * @author Joseph Curtis
+ * @version 2026.10.18
+ */
+public interface DeltaSyncDAO <T extends DataTransferObject> {
+
+    /** High-water mark of an empty table. */
+    LocalDateTime BEGINNING = LocalDateTime.of(1970, 1, 1, 0, 0);
+
+    /**
+     * Records changed since a high-water mark.
+     * @param modified records inserted or updated at or after the mark
+     * @param highWater the mark to pass to the next call
+     * @param <T> the DTO record type
+     */
+    record Changes<T>(List<T> modified, LocalDateTime highWater) {}
+
+    /**
+     * @return the latest <code>Last_Update</code> in the table, or {@link #BEGINNING} if it is empty.
+     * @throws Exception if any error occurs.
+     */
+    LocalDateTime getLastUpdate() throws Exception;
+
+    /**
+     * @param since a high-water mark from {@link #getLastUpdate()} or a previous call.
+     * @return the records changed at or after <code>since</code>, and the new high-water mark.
+     * @throws Exception if any error occurs.
+     */
+    Changes<T> getModifiedSince(LocalDateTime since) throws Exception;
+}
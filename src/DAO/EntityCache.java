@@ -0,0 +1,391 @@
+/*
+ Copyright 2022 Joseph Curtis Licensed under the Educational
+ Community License, Version 2.0 (the "License"); you may not use this file
+ except in compliance with the License. You may obtain a copy of the License at
+
+ http://opensource.org/licenses/ECL-2.0
+
+ Unless required by applicable law or agreed to in writing, software
+ distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ License for the specific language governing permissions and limitations under
+ the License.
+
+ ******************************************************************************/
+
+package DAO;
+
+import java.util.Arrays;
+
+/**
+ * Size-bounded cache of DTO records keyed by their <code>int</code> ID, with W-TinyLFU admission.
+ * <p>New entries go into a small LRU <em>window</em> (1% of the size). When the window
+ * overflows, its oldest entry competes with the main area's eviction victim, and is only
+ * admitted if it has been requested more often, according to a count-min frequency sketch.
+ * The main area is a segmented LRU: entries requested again move from <em>probation</em>
+ * to <em>protected</em> (80% of the main area). One-off lookups (such as scrolling past a
+ * row once) therefore cannot push out records that are used again and again.</p>
+ * <p>Keys are stored unboxed in an open-addressing table, and entries are linked by index
+ * in parallel arrays, so the cache allocates nothing per lookup.</p>
+ * @param <V> the cached record type
+ * @author Joseph Curtis
+ * @version 2026.10.18
+ */
+public final class EntityCache <V> {
+
+    /**
+     * Snapshot of the cache counters.
+     * @param hits lookups answered from the cache
+     * @param misses lookups that had to query the database
+     * @param evictions entries dropped to stay within the maximum size
+     * @param size entries currently cached
+     */
+    public record Stats(long hits, long misses, long evictions, int size) {
+        /**
+         * @return fraction of lookups answered from the cache, 0 if there were none yet
+         */
+        public double hitRatio() {
+            long total = hits + misses;
+            return total == 0 ? 0 : (double) hits / total;
+        }
+    }
+
+    private static final int NIL = -1;
+    private static final byte WINDOW = 0;
+    private static final byte PROBATION = 1;
+    private static final byte PROTECTED = 2;
+
+    private final int windowMax;
+    private final int mainMax;
+    private final int protectedMax;
+
+    // entries, linked into one list per segment by index
+    private final int[] keys;
+    private final Object[] values;
+    private final int[] previous;
+    private final int[] next;
+    private final byte[] segments;
+    private final int[] heads = {NIL, NIL, NIL};
+    private final int[] tails = {NIL, NIL, NIL};
+    private final int[] sizes = new int[3];
+    private int freeList;
+
+    // key -> entry index, linear probing
+    private final int[] slotKeys;
+    private final int[] slotEntries;
+    private final int slotMask;
+
+    private final FrequencySketch sketch;
+    private long hits = 0;
+    private long misses = 0;
+    private long evictions = 0;
+    private long writeStamp = 0;
+
+    /**
+     * @param maximumSize most records held at once (at least 2)
+     */
+    public EntityCache(int maximumSize) {
+        if (maximumSize < 2)
+            throw new IllegalArgumentException("maximumSize must be at least 2");
+        windowMax = Math.max(1, maximumSize / 100);
+        mainMax = maximumSize - windowMax;
+        protectedMax = Math.max(1, mainMax * 4 / 5);
+
+        int entries = maximumSize + 1;      // room for the new entry before one is evicted
+        keys = new int[entries];
+        values = new Object[entries];
+        previous = new int[entries];
+        next = new int[entries];
+        segments = new byte[entries];
+        for (int i = 0; i < entries; i++) {
+            next[i] = i + 1 < entries ? i + 1 : NIL;
+        }
+        freeList = 0;
+
+        int slots = Integer.highestOneBit(entries * 2 - 1) << 1;
+        slotKeys = new int[slots];
+        slotEntries = new int[slots];
+        Arrays.fill(slotEntries, NIL);
+        slotMask = slots - 1;
+
+        sketch = new FrequencySketch(maximumSize);
+    }
+
+    /**
+     * @param id record ID
+     * @return the cached record, or null if not cached
+     */
+    @SuppressWarnings("unchecked")
+    public synchronized V get(int id) {
+        sketch.increment(id);
+        int entry = find(id);
+        if (entry == NIL) {
+            misses++;
+            return null;
+        }
+        hits++;
+        touch(entry);
+        return (V) values[entry];
+    }
+
+    /**
+     * Caches a record, replacing any cached copy.
+     * @param id record ID
+     * @param value the record
+     */
+    public synchronized void put(int id, V value) {
+        writeStamp++;
+        store(id, value);
+    }
+
+    /**
+     * Caches a record read from the database, unless a write or invalidation happened
+     * since the read began; the read may then have returned data that is already old.
+     * @param id record ID
+     * @param value the record as read
+     * @param stamp value of {@link #getWriteStamp()} taken before the read
+     */
+    public synchronized void putIfUnchanged(int id, V value, long stamp) {
+        if (stamp == writeStamp)
+            store(id, value);
+    }
+
+    /**
+     * @return a counter that changes on every write or invalidation, for {@link #putIfUnchanged}
+     */
+    public synchronized long getWriteStamp() {
+        return writeStamp;
+    }
+
+    /**
+     * Removes a record from the cache.
+     * @param id record ID
+     */
+    public synchronized void invalidate(int id) {
+        writeStamp++;
+        int entry = find(id);
+        if (entry != NIL) {
+            unlink(entry);
+            release(entry);
+        }
+    }
+
+    /**
+     * Removes every record from the cache.
+     */
+    public synchronized void invalidateAll() {
+        writeStamp++;
+        for (byte segment = WINDOW; segment <= PROTECTED; segment++) {
+            while (heads[segment] != NIL) {
+                int entry = heads[segment];
+                unlink(entry);
+                release(entry);
+            }
+        }
+    }
+
+    /**
+     * @return current hit/miss/eviction counters and size
+     */
+    public synchronized Stats getStats() {
+        return new Stats(hits, misses, evictions, sizes[WINDOW] + sizes[PROBATION] + sizes[PROTECTED]);
+    }
+
+    private void store(int id, V value) {
+        int entry = find(id);
+        if (entry != NIL) {
+            values[entry] = value;
+            touch(entry);
+            return;
+        }
+        entry = freeList;
+        freeList = next[entry];
+        keys[entry] = id;
+        values[entry] = value;
+        insertSlot(id, entry);
+        linkLast(WINDOW, entry);
+
+        if (sizes[WINDOW] > windowMax) {
+            int candidate = heads[WINDOW];
+            unlink(candidate);
+            admit(candidate);
+        }
+    }
+
+    /**
+     * Moves an entry leaving the window into the main area, if it is used more than the main area's victim.
+     */
+    private void admit(int candidate) {
+        if (sizes[PROBATION] + sizes[PROTECTED] < mainMax) {
+            linkLast(PROBATION, candidate);
+            return;
+        }
+        int victim = heads[PROBATION] != NIL ? heads[PROBATION] : heads[PROTECTED];
+        if (sketch.frequency(keys[candidate]) > sketch.frequency(keys[victim])) {
+            unlink(victim);
+            evict(victim);
+            linkLast(PROBATION, candidate);
+        } else {
+            evict(candidate);
+        }
+    }
+
+    /**
+     * Records a request for an entry: probation entries are promoted, others move to the end of their segment.
+     */
+    private void touch(int entry) {
+        byte segment = segments[entry];
+        unlink(entry);
+        if (segment != PROBATION) {
+            linkLast(segment, entry);
+            return;
+        }
+        linkLast(PROTECTED, entry);
+        if (sizes[PROTECTED] > protectedMax) {
+            int demoted = heads[PROTECTED];
+            unlink(demoted);
+            linkLast(PROBATION, demoted);
+        }
+    }
+
+    private void evict(int entry) {
+        evictions++;
+        release(entry);
+    }
+
+    /**
+     * Frees an unlinked entry and its table slot.
+     */
+    private void release(int entry) {
+        removeSlot(keys[entry]);
+        values[entry] = null;
+        next[entry] = freeList;
+        freeList = entry;
+    }
+
+    private void linkLast(byte segment, int entry) {
+        segments[entry] = segment;
+        previous[entry] = tails[segment];
+        next[entry] = NIL;
+        if (tails[segment] == NIL)
+            heads[segment] = entry;
+        else
+            next[tails[segment]] = entry;
+        tails[segment] = entry;
+        sizes[segment]++;
+    }
+
+    private void unlink(int entry) {
+        byte segment = segments[entry];
+        if (previous[entry] == NIL)
+            heads[segment] = next[entry];
+        else
+            next[previous[entry]] = next[entry];
+        if (next[entry] == NIL)
+            tails[segment] = previous[entry];
+        else
+            previous[next[entry]] = previous[entry];
+        sizes[segment]--;
+    }
+
+    private int find(int id) {
+        for (int slot = spread(id) & slotMask; slotEntries[slot] != NIL; slot = (slot + 1) & slotMask) {
+            if (slotKeys[slot] == id)
+                return slotEntries[slot];
+        }
+        return NIL;
+    }
+
+    private void insertSlot(int id, int entry) {
+        int slot = spread(id) & slotMask;
+        while (slotEntries[slot] != NIL) {
+            slot = (slot + 1) & slotMask;
+        }
+        slotKeys[slot] = id;
+        slotEntries[slot] = entry;
+    }
+
+    /**
+     * Removes a key, shifting later keys of the same probe run back so lookups never need tombstones.
+     */
+    private void removeSlot(int id) {
+        int slot = spread(id) & slotMask;
+        while (slotKeys[slot] != id || slotEntries[slot] == NIL) {
+            slot = (slot + 1) & slotMask;
+        }
+        slotEntries[slot] = NIL;
+        int hole = slot;
+        for (int scan = (hole + 1) & slotMask; slotEntries[scan] != NIL; scan = (scan + 1) & slotMask) {
+            int home = spread(slotKeys[scan]) & slotMask;
+            boolean homeBetweenHoleAndScan = hole <= scan
+                    ? hole < home && home <= scan
+                    : hole < home || home <= scan;
+            if (!homeBetweenHoleAndScan) {
+                slotKeys[hole] = slotKeys[scan];
+                slotEntries[hole] = slotEntries[scan];
+                slotEntries[scan] = NIL;
+                hole = scan;
+            }
+        }
+    }
+
+    private static int spread(int id) {
+        int hash = id * 0x9E3779B9;
+        return hash ^ (hash >>> 16);
+    }
+
+    /**
+     * Count-min sketch of 4-bit counters estimating how often each ID was requested recently.
+     * All counters are halved every <code>10 * maximumSize</code> increments, so old popularity fades.
+     */
+    private static final class FrequencySketch {
+        private static final int[] SEEDS = {0x97CB3127, 0xE1E5A5C1, 0x2C1B3C6D, 0x68E31DA4};
+        private static final int MAX_COUNT = 15;
+
+        private final byte[] counters;
+        private final int widthMask;
+        private final int sampleSize;
+        private int additions = 0;
+
+        FrequencySketch(int maximumSize) {
+            int width = Math.max(16, Integer.highestOneBit(maximumSize - 1) << 1);
+            counters = new byte[width * SEEDS.length];
+            widthMask = width - 1;
+            sampleSize = 10 * maximumSize;
+        }
+
+        void increment(int id) {
+            boolean added = false;
+            for (int row = 0; row < SEEDS.length; row++) {
+                int index = indexOf(row, id);
+                if (counters[index] < MAX_COUNT) {
+                    counters[index]++;
+                    added = true;
+                }
+            }
+            if (added && ++additions >= sampleSize)
+                age();
+        }
+
+        int frequency(int id) {
+            int frequency = MAX_COUNT;
+            for (int row = 0; row < SEEDS.length; row++) {
+                frequency = Math.min(frequency, counters[indexOf(row, id)]);
+            }
+            return frequency;
+        }
+
+        private int indexOf(int row, int id) {
+            int hash = (id ^ SEEDS[row]) * 0x9E3779B9;
+            hash ^= hash >>> 15;
+            return row * (widthMask + 1) + (hash & widthMask);
+        }
+
+        private void age() {
+            for (int i = 0; i < counters.length; i++) {
+                counters[i] >>= 1;
+            }
+            additions /= 2;
+        }
+    }
+}
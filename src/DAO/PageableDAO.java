@@ -0,0 +1,53 @@
+/*
+ Copyright 2022 Joseph Curtis Licensed under the Educational
+ Community License, Version 2.0 (the "License"); you may not use this file
+ except in compliance with the License. You may obtain a copy of the License at
+
+ http://opensource.org/licenses/ECL-2.0
+
+ Unless required by applicable law or agreed to in writing, software
+ distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ License for the specific language governing permissions and limitations under
+ the License.
+
+ ******************************************************************************/
+
+package DAO;
+
+import javafx.collections.ObservableList;
+import model.DataTransferObject;
+
+import java.util.Comparator;
+
+/**
+ * Interface for a Data Access Object that can read records one page at a time.
+ * <p>Pages use keyset (seek) pagination: a page is requested relative to the last
+ * (or first) record of the neighbouring page, not by row offset. Each page is an
+ * index range scan, however deep into the table it is.</p>
+ * @author Joseph Curtis
+ * @version 2026.10.18
+ */
+public interface PageableDAO <T extends DataTransferObject> {
+
+    /**
+     * @param after the last record of the previous page, or null for the first page.
+     * @param pageSize maximum number of records to return.
+     * @return the records that follow <code>after</code> in key order.
+     * @throws Exception if any error occurs.
+     */
+    ObservableList<T> getPageAfter(T after, int pageSize) throws Exception;
+
+    /**
+     * @param before the first record of the next page.
+     * @param pageSize maximum number of records to return.
+     * @return the records that precede <code>before</code>, in key order.
+     * @throws Exception if any error occurs.
+     */
+    ObservableList<T> getPageBefore(T before, int pageSize) throws Exception;
+
+    /**
+     * @return the order that pages are read in.
+     */
+    Comparator<T> keyOrder();
+}
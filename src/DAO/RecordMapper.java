@@ -0,0 +1,219 @@
+/*
+ Copyright 2022 Joseph Curtis Licensed under the Educational
+ Community License, Version 2.0 (the "License"); you may not use this file
+ except in compliance with the License. You may obtain a copy of the License at
+
+ http://opensource.org/licenses/ECL-2.0
+
+ Unless required by applicable law or agreed to in writing, software
+ distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ License for the specific language governing permissions and limitations under
+ the License.
+
+ ******************************************************************************/
+
+package DAO;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.RecordComponent;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.StringJoiner;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Maps ResultSet rows to a DTO record through the record's canonical constructor.
+ * <p>Each record component is read from a named column. Column names are resolved to
+ * indexes once per ResultSet <em>shape</em> (its list of column labels), and the column
+ * reads and the constructor call are compiled into a single MethodHandle for that shape.
+ * Mapping a row is then one handle call: no name lookups and no reflection.</p>
+ * <p>Read loops resolve the shape once with {@link #forResultSet(ResultSet)} and map every row
+ * with the returned {@link RowMapper}, which is confined to the calling thread like the ResultSet.</p>
+ * <p>Supported component types: <code>Integer</code>, <code>int</code>, <code>long</code>,
+ * <code>boolean</code>, <code>String</code> and <code>LocalDateTime</code>.</p>
+ * @param <T> the DTO record type
+ * @author Joseph Curtis
+ * @version 2026.10.18
+ */
+public final class RecordMapper <T extends Record> {
+
+    private static final MethodHandles.Lookup lookup = MethodHandles.lookup();
+
+    private final Class<T> type;
+    private final String[] columnLabels;
+    private final Class<?>[] componentTypes;
+    private final MethodHandle constructor;
+    private final Map<String, MethodHandle> compiledShapes = new ConcurrentHashMap<>();
+
+    /**
+     * Builds records from the rows of one ResultSet, whose columns are already resolved.
+     * @param <T> the DTO record type
+     */
+    @FunctionalInterface
+    public interface RowMapper<T> {
+        /**
+         * @param resultSet the ResultSet this row mapper was made for, positioned on a row
+         * @return the record built from the row
+         * @throws SQLException if a column cannot be read.
+         */
+        T map(ResultSet resultSet) throws SQLException;
+    }
+
+    private RecordMapper(Class<T> type, String[] columnLabels) {
+        RecordComponent[] components = type.getRecordComponents();
+        if (components == null || components.length != columnLabels.length)
+            throw new IllegalArgumentException(type.getSimpleName()
+                    + " needs one column label per record component");
+        this.type = type;
+        this.columnLabels = columnLabels.clone();
+        this.componentTypes = new Class<?>[components.length];
+        for (int i = 0; i < components.length; i++) {
+            componentTypes[i] = components[i].getType();
+        }
+        try {
+            this.constructor = MethodHandles.publicLookup().findConstructor(
+                    type, MethodType.methodType(void.class, componentTypes));
+        } catch (NoSuchMethodException | IllegalAccessException e) {
+            throw new IllegalArgumentException("No public canonical constructor for " + type.getName(), e);
+        }
+    }
+
+    /**
+     * @param type the DTO record type
+     * @param columnLabels the column read for each record component, in component order
+     * @param <T> the DTO record type
+     * @return a mapper for the record
+     */
+    public static <T extends Record> RecordMapper<T> of(Class<T> type, String... columnLabels) {
+        return new RecordMapper<>(type, columnLabels);
+    }
+
+    /**
+     * Resolves the ResultSet's columns once, for mapping each of its rows.
+     * @param resultSet the ResultSet to read
+     * @return maps rows of that ResultSet (and of others of the same shape)
+     * @throws SQLException if the ResultSet lacks a mapped column.
+     */
+    public RowMapper<T> forResultSet(ResultSet resultSet) throws SQLException {
+        MethodHandle handle = compile(resultSet);
+        return row -> invoke(handle, row);
+    }
+
+    /**
+     * Maps the current row of the ResultSet, such as the only row of a lookup.
+     * Use {@link #forResultSet(ResultSet)} to map many rows.
+     * @param resultSet a ResultSet positioned on a row
+     * @return the record built from the row
+     * @throws SQLException if a column is missing or cannot be read.
+     */
+    public T map(ResultSet resultSet) throws SQLException {
+        return invoke(compile(resultSet), resultSet);
+    }
+
+    private T invoke(MethodHandle handle, ResultSet resultSet) throws SQLException {
+        try {
+            return type.cast((Object) handle.invokeExact(resultSet));
+        } catch (SQLException | RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new SQLException("Cannot map row to " + type.getSimpleName(), e);
+        }
+    }
+
+    /**
+     * @param resultSet any ResultSet of the shape to compile
+     * @return handle of type <code>(ResultSet)Object</code> for the ResultSet's shape
+     * @throws SQLException if the ResultSet lacks a mapped column.
+     */
+    private MethodHandle compile(ResultSet resultSet) throws SQLException {
+        ResultSetMetaData metaData = resultSet.getMetaData();
+        StringJoiner shape = new StringJoiner(",");
+        for (int column = 1; column <= metaData.getColumnCount(); column++) {
+            shape.add(metaData.getColumnLabel(column));
+        }
+        MethodHandle handle = compiledShapes.get(shape.toString());
+        if (handle == null) {
+            handle = build(metaData);
+            compiledShapes.put(shape.toString(), handle);
+        }
+        return handle;
+    }
+
+    private MethodHandle build(ResultSetMetaData metaData) throws SQLException {
+        MethodHandle[] readers = new MethodHandle[columnLabels.length];
+        for (int i = 0; i < columnLabels.length; i++) {
+            readers[i] = MethodHandles.insertArguments(
+                    readerFor(componentTypes[i]), 1, indexOf(metaData, columnLabels[i]));
+        }
+        // (ResultSet, ResultSet, ...) -> T, then one ResultSet feeding every reader
+        MethodHandle handle = MethodHandles.filterArguments(constructor, 0, readers);
+        handle = MethodHandles.permuteArguments(handle,
+                MethodType.methodType(type, ResultSet.class),
+                new int[columnLabels.length]);
+        return handle.asType(MethodType.methodType(Object.class, ResultSet.class));
+    }
+
+    private static int indexOf(ResultSetMetaData metaData, String columnLabel) throws SQLException {
+        for (int column = 1; column <= metaData.getColumnCount(); column++) {
+            if (metaData.getColumnLabel(column).equalsIgnoreCase(columnLabel))
+                return column;
+        }
+        throw new SQLException("Column '" + columnLabel + "' not found.");
+    }
+
+    private static MethodHandle readerFor(Class<?> componentType) {
+        String name;
+        if (componentType == Integer.class)
+            name = "readInteger";
+        else if (componentType == int.class)
+            name = "readInt";
+        else if (componentType == long.class)
+            name = "readLong";
+        else if (componentType == boolean.class)
+            name = "readBoolean";
+        else if (componentType == String.class)
+            name = "readString";
+        else if (componentType == LocalDateTime.class)
+            name = "readLocalDateTime";
+        else
+            throw new IllegalArgumentException("Unsupported record component type " + componentType.getName());
+        try {
+            return lookup.findStatic(RecordMapper.class, name,
+                    MethodType.methodType(componentType, ResultSet.class, int.class));
+        } catch (NoSuchMethodException | IllegalAccessException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static Integer readInteger(ResultSet resultSet, int column) throws SQLException {
+        return resultSet.getInt(column);
+    }
+
+    private static int readInt(ResultSet resultSet, int column) throws SQLException {
+        return resultSet.getInt(column);
+    }
+
+    private static long readLong(ResultSet resultSet, int column) throws SQLException {
+        return resultSet.getLong(column);
+    }
+
+    private static boolean readBoolean(ResultSet resultSet, int column) throws SQLException {
+        return resultSet.getBoolean(column);
+    }
+
+    private static String readString(ResultSet resultSet, int column) throws SQLException {
+        return resultSet.getString(column);
+    }
+
+    private static LocalDateTime readLocalDateTime(ResultSet resultSet, int column) throws SQLException {
+        Timestamp timestamp = resultSet.getTimestamp(column);
+        return timestamp == null ? null : timestamp.toLocalDateTime();
+    }
+}
@@ -0,0 +1,30 @@
+/*
+ Copyright 2022 Joseph Curtis Licensed under the Educational
+ Community License, Version 2.0 (the "License"); you may not use this file
+ except in compliance with the License. You may obtain a copy of the License at
+
+ http://opensource.org/licenses/ECL-2.0
+
+ Unless required by applicable law or agreed to in writing, software
+ distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ License for the specific language governing permissions and limitations under
+ the License.
+
+ ******************************************************************************/
+
+package DAO;
+
+/**
+ * What happened to a versioned update (see {@link DataAccessObject#update}).
+ * @author Joseph Curtis
+ * @version 2026.10.18
+ */
+public enum UpdateOutcome {
+    /** the record was saved, and its version incremented */
+    UPDATED,
+    /** someone else saved the record after it was read; nothing was changed */
+    CONFLICT,
+    /** the record no longer exists */
+    NOT_FOUND
+}
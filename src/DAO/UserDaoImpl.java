@@ -19,6 +19,8 @@ import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
 import model.User;
 import utility.DBUtil;
+import utility.QueryClass;
+import utility.ReferenceDataCache;
 
 import javax.sql.DataSource;
 import java.sql.Connection;
@@ -29,63 +31,41 @@ import java.util.Optional;
 
 /**
  * Implementation of {@link DAO.ImmutableDAO} to read User objects from a database.
+ * <p>Users are read from the shared {@link ReferenceDataCache}; only login queries the database.</p>
  * <p>Datasource constant is used to get connections to database using {@link DBUtil} class.</p>
  * <p>Use <code>getConnection()</code> method within a try-with-resources block.</p>
  * @author Joseph Curtis
- * @version 2022.07.23
+ * @version 2026.10.18
  */
 public class UserDaoImpl implements ImmutableDAO<User> {
 
     protected static final DataSource dataSource = DBUtil.getDataSource();
+    private static final ReferenceDataCache referenceData = DBUtil.getReferenceData();
+    private static final RecordMapper<User> mapper = RecordMapper.of(User.class, "User_ID", "User_Name");
 
     /**
      * {@inheritDoc}
+     * <p>Served from the reference data cache.</p>
      */
     @Override
     public ObservableList<User> getAll() {
-        ObservableList<User> usersList = FXCollections.observableArrayList();
-        try (Connection connection = dataSource.getConnection();
-             PreparedStatement preparedStatement = connection.prepareStatement(
-                     """
-                             SELECT User_ID, User_Name
-                             FROM client_schedule.users
-                             """)) {
-            ResultSet resultSet = preparedStatement.executeQuery();
-            while (resultSet.next()) {
-                usersList.add(new User(
-                        resultSet.getInt("User_ID"),
-                        resultSet.getString("User_Name")
-                ));
-            }
+        try {
+            return FXCollections.observableArrayList(referenceData.getUsers());
         } catch (SQLException e) {
             System.out.println("SQL error: " + e.getMessage());
             e.printStackTrace();
         }
-        return usersList;
+        return FXCollections.observableArrayList();
     }
 
     /**
      * {@inheritDoc}
+     * <p>Served from the reference data cache.</p>
      */
     @Override
     public Optional<User> getById(int id) {
-        try (Connection conn = dataSource.getConnection();
-             PreparedStatement statement = conn.prepareStatement(
-                     """
-                             SELECT User_ID, User_Name
-                             FROM client_schedule.users
-                             WHERE User_ID = ?
-                             """)) {
-            statement.setInt(1, id);
-            ResultSet resultSet = statement.executeQuery();
-
-            if (resultSet.next()) {
-                // user found, return it:
-                return Optional.of(new User(
-                        resultSet.getInt("User_ID"),
-                        resultSet.getString("User_Name")
-                ));
-            }
+        try {
+            return referenceData.getUser(id);
         } catch (SQLException e) {
             System.out.println("SQL error: " + e.getMessage());
             e.printStackTrace();
@@ -109,14 +89,12 @@ public class UserDaoImpl implements ImmutableDAO<User> {
                              """)) {
             preparedStatement.setString(1, username);
             preparedStatement.setString(2, password);
+            preparedStatement.setQueryTimeout(QueryClass.LOOKUP.getTimeoutSeconds());
             ResultSet resultSet = preparedStatement.executeQuery();
 
             if (resultSet.next()) {
                 // authentication success! return user that logged in
-                return Optional.of(new User(
-                        resultSet.getInt("User_ID"),
-                        resultSet.getString("User_Name")
-                ));
+                return Optional.of(mapper.map(resultSet));
             }
         } catch (SQLException e) {
             System.out.println("SQL error: " + e.getMessage());
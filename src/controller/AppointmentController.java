@@ -16,6 +16,9 @@
 package controller;
 
 import DAO.AppointmentDaoImpl;
+import DAO.AppointmentQuery;
+import DAO.AsyncDAO;
+import DAO.AsyncImmutableDAO;
 import DAO.ContactDaoImpl;
 import DAO.CustomerDaoImpl;
 import DAO.UserDaoImpl;
@@ -31,17 +34,21 @@ import utility.*;
 import java.net.URL;
 import java.sql.SQLException;
 import java.time.*;
+import java.util.Optional;
 import java.util.ResourceBundle;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * Controller for the add or modify Appointment form.
  * @author Joseph Curtis
- * @version 2022.07.23
+ * @version 2026.10.18
  */
 public class AppointmentController implements AuthenticatedController, Initializable {
 
     Appointment existingAppointment;    // The Appointment in the database to modify
+    Appointment persistedAppointment;   // The Appointment as saved to the database
     User user;                          // The currently logged-in user
+    CompletableFuture<Void> choicesLoaded;  // Completes once the combo boxes are filled
 
     @FXML private Label currentOperationLabel;
     @FXML private TextField descriptionTxt;
@@ -94,21 +101,29 @@ public class AppointmentController implements AuthenticatedController, Initializ
         startDatePicker.setValue(existingAppointment.start().toLocalDate());
         endDatePicker.setValue(existingAppointment.end().toLocalDate());
 
-        // set customer combo box:
-        CustomerDaoImpl dbCustomers = new CustomerDaoImpl();
-        try {
-            customerComboBox.setValue(dbCustomers.getById(existingAppointment.customerId()).get());
-        } catch (SQLException e) {
-            e.printStackTrace();
-        }
-
-        // set contact combo box:
-        ContactDaoImpl dbContacts = new ContactDaoImpl();
-        contactComboBox.setValue(dbContacts.getById(existingAppointment.contactId()).get());
+        // select customer, contact and user once the combo boxes are filled:
+        choicesLoaded.thenRunAsync(() -> {
+            for (Customer customer : customerComboBox.getItems()) {
+                if (customer.id().equals(existingAppointment.customerId()))
+                    customerComboBox.setValue(customer);
+            }
+            for (Contact contact : contactComboBox.getItems()) {
+                if (contact.id().equals(existingAppointment.contactId()))
+                    contactComboBox.setValue(contact);
+            }
+            for (User assignedUser : userComboBox.getItems()) {
+                if (assignedUser.id().equals(existingAppointment.userId()))
+                    userComboBox.setValue(assignedUser);
+            }
+        }, AsyncDAO.FX_THREAD);
+    }
 
-        // set user combo box:
-        UserDaoImpl dbUsers = new UserDaoImpl();
-        userComboBox.setValue(dbUsers.getById(existingAppointment.userId()).get());
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Optional<DataTransferObject> getSavedRecord() {
+        return Optional.ofNullable(persistedAppointment);
     }
 
     /**
@@ -134,33 +149,21 @@ public class AppointmentController implements AuthenticatedController, Initializ
         endHourSpinner.setValueFactory(endHourSvf);
         endMinuteSpinner.setValueFactory(endMinSvf);
 
-        // set customer combo-box:
-        CustomerDaoImpl dbCustomers = new CustomerDaoImpl();
-        try {
-            ObservableList<Customer> allCustomersList = dbCustomers.getAll();
-
-            for (Customer customer: allCustomersList) {
-                customerComboBox.getItems().add(customer);
-            }
-        } catch (SQLException e) {
-            e.printStackTrace();
-        }
-
-        // set contact combo-box:
-        ContactDaoImpl dbContacts = new ContactDaoImpl();
-        ObservableList<Contact> allContactsList = dbContacts.getAll();
-
-        for (Contact contact: allContactsList) {
-            contactComboBox.getItems().add(contact);
-        }
-
-        // set user combo-box:
-        UserDaoImpl dbUsers = new UserDaoImpl();
-        ObservableList<User> allUsersList = dbUsers.getAll();
-
-        for (User user: allUsersList) {
-            userComboBox.getItems().add(user);
-        }
+        // read customers, contacts and users concurrently, then fill the combo-boxes:
+        CompletableFuture<ObservableList<Customer>> customers = new AsyncDAO<>(new CustomerDaoImpl()).getAll();
+        CompletableFuture<ObservableList<Contact>> contacts = new AsyncImmutableDAO<>(new ContactDaoImpl()).getAll();
+        CompletableFuture<ObservableList<User>> users = new AsyncImmutableDAO<>(new UserDaoImpl()).getAll();
+
+        choicesLoaded = CompletableFuture.allOf(customers, contacts, users)
+                .thenRunAsync(() -> {
+                    customerComboBox.getItems().setAll(customers.join());
+                    contactComboBox.getItems().setAll(contacts.join());
+                    userComboBox.getItems().setAll(users.join());
+                }, AsyncDAO.FX_THREAD)
+                .exceptionally(e -> {
+                    e.printStackTrace();
+                    return null;
+                });
     }
 
     /**
@@ -175,10 +178,9 @@ public class AppointmentController implements AuthenticatedController, Initializ
     /**
      * Save this new or modified Appointment.
      * <p>Updates existing appointment, or adds new appointment to database.</p>
-     * <p>A lambda is used to filter out the current appointment we are editing when checking for
-     * overlapping appointments. The collections method <code>removeIf</code> is a much cleaner, more concise way of
-     * filtering without using if statements nested in for or while loops. The <code>removeIf</code> method
-     * requires a predicate, and so provide a lambda as an anonymous function (in this case a one-line statement).</p>
+     * <p>Overlapping appointments are checked with a single SQL <code>EXISTS</code> query for the
+     * customer's appointments that overlap the new start and end, excluding the appointment being
+     * edited, so the database answers without reading the customer's appointments.</p>
      * @param event the user generated event (a button being clicked) that caused this to execute
      */
     @FXML
@@ -239,12 +241,8 @@ public class AppointmentController implements AuthenticatedController, Initializ
 
 
 
-            // setup AppointmentDaoImpl and Appointment List for Logical error checks:
+            // setup AppointmentDaoImpl for Logical error checks:
             AppointmentDaoImpl dbAppointments = new AppointmentDaoImpl();
-            ObservableList<Appointment> overlappingAppointmentList =
-                    dbAppointments.getAllByCustomerId(customerId);
-            // skip over the current appointment we are editing (using lambda)
-            overlappingAppointmentList.removeIf(a -> a.id().equals(id));
 
             // // // // // // // // // // // // // // // // // // // // // // //
             // ======  Validate start/end input logical error checks: ======= //
@@ -284,45 +282,41 @@ public class AppointmentController implements AuthenticatedController, Initializ
 
             //// check for customer overlapping appointments
             {
-                LocalDateTime start = startLocalDT;
-                LocalDateTime end = endLocalDT;
-                //// check for overlapping appointments
-                for (Appointment a : overlappingAppointmentList) {
-                    if (start.isEqual(a.start()) || end.isEqual(a.end())  // edge cases
-                            // when start is in the window
-                            || (start.isAfter(a.start()) && start.isBefore(a.end()))
-                            // when end is in the window
-                            || (end.isAfter(a.start()) && end.isBefore(a.end()))
-                            // when start AND end are both outside of the window
-                            || (start.isBefore(a.start()) && end.isAfter(a.end()))
-                    ) {
-                        throw new InvalidInputException("Proposed Appointment Time conflicts with an existing appointment!");
-                    }
-                }
+                // any of the customer's appointments starting before this one ends and ending after it starts
+                // skipping the current appointment we are editing (a new one's ID of zero matches none)
+                if (dbAppointments.exists(new AppointmentQuery()
+                        .forCustomer(customerId)
+                        .overlapping(startLocalDT, endLocalDT)
+                        .excluding(id)))
+                    throw new InvalidInputException("Proposed Appointment Time conflicts with an existing appointment!");
             }
 
 
-            // create Appointment to save:
+            // create Appointment to save (joined names are filled in so the saved record is complete):
             savedAppointment = new Appointment(id, title, description, location, type,
                     startLocalDT, endLocalDT,
-                    customerId, "", inputUserId, contactId, "", "");
+                    customerId, customerComboBox.getValue().name(), inputUserId,
+                    contactId, contactComboBox.getValue().name(), contactComboBox.getValue().email(),
+                    existingAppointment == null ? 0 : existingAppointment.version());
 
             // update database with Appointment (add or modify):
             if (existingAppointment == null) {
-                // add new appointment:
-                if (!dbAppointments.add(savedAppointment, user))
-                    throw new DataObjNotFoundException("Attempt to add Appointment failed!", savedAppointment);
+                // add new appointment, keeping the record with its new ID:
+                Appointment newAppointment = savedAppointment;
+                savedAppointment = dbAppointments.add(newAppointment, user).orElseThrow(() ->
+                        new DataObjNotFoundException("Attempt to add Appointment failed!", newAppointment));
             } else {
-                // save modified appointment:
-                if (!dbAppointments.update(savedAppointment, user)) {
-                    int index = dbAppointments.getAll().indexOf(existingAppointment);
-                    // check for record update fail:
-                    if (index < 0)
-                        throw new DataObjNotFoundException("Existing Appointment to modify no longer exists!", savedAppointment);
-                    else
-                        throw new SQLException();
+                // save modified appointment, unless someone else saved it since it was opened:
+                switch (dbAppointments.update(savedAppointment, user)) {
+                    case NOT_FOUND -> throw new DataObjNotFoundException(
+                            "Existing Appointment to modify no longer exists!", savedAppointment);
+                    case CONFLICT -> throw new InvalidInputException(
+                            "This Appointment was changed by another user after you opened it.\n"
+                                    + "Close this window and open the Appointment again to see their changes.");
+                    case UPDATED -> { }
                 }
             }
+            persistedAppointment = savedAppointment;
             // go back to the Main screen:
             ((Node)(event.getSource())).getScene().getWindow().hide();
 
@@ -4,10 +4,12 @@ import javafx.event.ActionEvent;
 import javafx.stage.Modality;
 import model.DataTransferObject;
 
+import java.util.Optional;
+
 /**
  * Interface for controllers that make use of a user object for authenticated access.
  * @author Joseph Curtis
- * @version 2022.05.25
+ * @version 2026.10.18
  */
 public interface AuthenticatedController {
     /**
@@ -23,4 +25,14 @@ public interface AuthenticatedController {
      * @param passedObject existing Data Transfer Object to be edited
      */
     void passExistingRecord(DataTransferObject passedObject);
+
+    /**
+     * Gets the record this controller saved to the database, if any.
+     * <p>After an add or modify window closes, the caller can use this to update its
+     * table in place instead of querying the database again.</p>
+     * @return the persisted record (with its database ID), or an empty optional if nothing was saved
+     */
+    default Optional<DataTransferObject> getSavedRecord() {
+        return Optional.empty();
+    }
 }
@@ -29,16 +29,18 @@ import utility.*;
 
 import java.net.URL;
 import java.sql.SQLException;
+import java.util.Optional;
 import java.util.ResourceBundle;
 
 /**
  * Controller for the add or modify Customer form.
  * @author Joseph Curtis
- * @version 2022.06.08
+ * @version 2026.10.18
  */
 public class CustomerController implements AuthenticatedController, Initializable {
 
     Customer existingCustomer;  // The Customer in the database to modify
+    Customer persistedCustomer; // The Customer as saved to the database
     User user;           // The currently logged-in user
 
     @FXML private Label currentOperationLabel;
@@ -82,6 +84,14 @@ public class CustomerController implements AuthenticatedController, Initializabl
         divisionComboBox.setValue(DBUtil.getDivisionById(existingCustomer.divisionId()).get());
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Optional<DataTransferObject> getSavedRecord() {
+        return Optional.ofNullable(persistedCustomer);
+    }
+
     /**
      * Initializes the controller class, setting the combo-box properties
      * @param location The location used to resolve relative paths for the root object,
@@ -150,26 +160,30 @@ public class CustomerController implements AuthenticatedController, Initializabl
             if (phone.length() > 50)
                 throw new InvalidInputException("Phone number is too long!");
 
-            // create Customer to save:
-            savedCustomer = new Customer(id, name, address, postCode, phone, divisionId, "", "");
+            // create Customer to save (joined names are filled in so the saved record is complete):
+            savedCustomer = new Customer(id, name, address, postCode, phone, divisionId,
+                    divisionComboBox.getValue().division(), countryComboBox.getValue().country(),
+                    existingCustomer == null ? 0 : existingCustomer.version());
 
             // update database with Customer (add or modify):
             CustomerDaoImpl dbCustomers = new CustomerDaoImpl();
             if (existingCustomer == null) {
-                // add new customer:
-                if (!dbCustomers.add(savedCustomer, user))
-                    throw new DataObjNotFoundException("Attempt to add Customer failed!", savedCustomer);
+                // add new customer, keeping the record with its new ID:
+                Customer newCustomer = savedCustomer;
+                savedCustomer = dbCustomers.add(newCustomer, user).orElseThrow(() ->
+                        new DataObjNotFoundException("Attempt to add Customer failed!", newCustomer));
             } else {
-                // save modified customer:
-                if (!dbCustomers.update(savedCustomer, user)) {
-                    int index = dbCustomers.getAll().indexOf(existingCustomer);
-                    // check for record update fail:
-                    if (index < 0)
-                        throw new DataObjNotFoundException("Existing Customer to modify no longer exists!", savedCustomer);
-                    else
-                        throw new SQLException();
+                // save modified customer, unless someone else saved it since it was opened:
+                switch (dbCustomers.update(savedCustomer, user)) {
+                    case NOT_FOUND -> throw new DataObjNotFoundException(
+                            "Existing Customer to modify no longer exists!", savedCustomer);
+                    case CONFLICT -> throw new InvalidInputException(
+                            "This Customer was changed by another user after you opened it.\n"
+                                    + "Close this window and open the Customer again to see their changes.");
+                    case UPDATED -> { }
                 }
             }
+            persistedCustomer = savedCustomer;
             // go back to the Main screen:
             ((Node)(event.getSource())).getScene().getWindow().hide();
 
@@ -21,11 +21,12 @@ import javafx.event.ActionEvent;
 import javafx.fxml.FXML;
 import javafx.fxml.Initializable;
 import javafx.scene.Node;
+import javafx.scene.control.ProgressIndicator;
 import javafx.scene.control.TextField;
 import model.Customer;
+import utility.ViewLoader;
 
 import java.net.URL;
-import java.sql.SQLException;
 import java.util.List;
 import java.util.ResourceBundle;
 import java.util.stream.Collectors;
@@ -33,7 +34,7 @@ import java.util.stream.Collectors;
 /**
  * Controller for the Custom Report (customer total by country).
  * @author Joseph Curtis
- * @version 2022.08.15
+ * @version 2026.10.18
  */
 public class CustomersReportController implements Initializable {
 
@@ -47,12 +48,14 @@ public class CustomersReportController implements Initializable {
     @FXML private TextField ukTxtField;
     @FXML private TextField canadaTxtField;
     @FXML private TextField otherTxtField;
+    @FXML private ProgressIndicator loadingProgress;
 
     /**
      * Initializes the controller class, getting the list of all customers from the database,
      * and setting a filtered list for each output and displaying the totals for each list.
      * Stream is used here to filter out a collection in order to make a new collection.  Streams utilize
      * lambda functions to determine what to keep and what to discard from the output stream.
+     * <p>Customers are read in the background while the window opens; closing it cancels the read.</p>
      * @param location The location used to resolve relative paths for the root object,
      *            or null if the location is not known.
      * @param resources The resources used to localize the root object,
@@ -60,13 +63,20 @@ public class CustomersReportController implements Initializable {
      */
     @Override
     public void initialize(URL location, ResourceBundle resources) {
-        // save all appointments as list
-        try {
-            CustomerDaoImpl customersDb = new CustomerDaoImpl();
-            allCustomers = customersDb.getAll();
-        } catch (SQLException e) {
-            e.printStackTrace();
-        }
+        // save all customers as list, then show the totals
+        CustomerDaoImpl customersDb = new CustomerDaoImpl();
+        ViewLoader loader = new ViewLoader(loadingProgress);
+        loader.cancelWhenHidden(otherTxtField);
+        loader.load(customersDb::getAll, customers -> {
+            allCustomers = customers;
+            showTotals();
+        });
+    }
+
+    /**
+     * Filters the customers by country and displays the total for each.
+     */
+    private void showTotals() {
         // save each filtered list :
         usCustomers = allCustomers.stream()
                 .filter((Customer customer) -> customer.country().equalsIgnoreCase("us")
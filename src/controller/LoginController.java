@@ -15,11 +15,13 @@
 
 package controller;
 
+import DAO.AsyncDAO;
 import DAO.UserDaoImpl;
 import javafx.event.ActionEvent;
 import javafx.fxml.FXML;
 import javafx.fxml.FXMLLoader;
 import javafx.fxml.Initializable;
+import javafx.scene.Node;
 import javafx.scene.Parent;
 import javafx.scene.Scene;
 import javafx.scene.control.*;
@@ -28,6 +30,7 @@ import javafx.scene.input.MouseEvent;
 import javafx.stage.Modality;
 import javafx.stage.Stage;
 import model.User;
+import utility.DBUtil;
 import utility.GuiUtil;
 
 import java.io.FileInputStream;
@@ -154,13 +157,26 @@ public class LoginController implements Initializable {
                 activityLog.info("user [" + usernameTxt.getText().toLowerCase()
                         + "] successfully logged in.");
 
-                // Go to primary stage
-                GuiUtil.newStage(event,
-                        currentUserLogin,
-                        "/view/primary-view.fxml",
-                        GuiUtil.languageRb.getString("primaryStage.title"),
-                        Modality.NONE,
-                        GuiUtil.languageRb);
+                // Go to primary stage, once its queries can read the columns the schema migration adds
+                ((Node) event.getSource()).setDisable(true);
+                DBUtil.getSchemaMigration().whenCompleteAsync((migrated, failure) -> {
+                    if (failure != null) {
+                        GuiUtil.handleSchemaMigrationFailure(failure);
+                        System.exit(1);
+                    }
+                    try {
+                        GuiUtil.newStage(event,
+                                currentUserLogin,
+                                "/view/primary-view.fxml",
+                                GuiUtil.languageRb.getString("primaryStage.title"),
+                                Modality.NONE,
+                                GuiUtil.languageRb);
+                    } catch (IOException e) {
+                        e.printStackTrace();
+                    } finally {
+                        ((Node) event.getSource()).setDisable(false);
+                    }
+                }, AsyncDAO.FX_THREAD);
             } else {
                 // log the user login attempt
                 activityLog.warning("username [" + usernameTxt.getText().toLowerCase()
@@ -16,7 +16,9 @@
 package controller;
 
 import DAO.AppointmentDaoImpl;
+import DAO.BatchLoader;
 import DAO.CustomerDaoImpl;
+import DAO.DeltaSyncDAO;
 import javafx.beans.property.SimpleIntegerProperty;
 import javafx.beans.property.SimpleStringProperty;
 import javafx.collections.ObservableList;
@@ -36,19 +38,28 @@ import model.Appointment;
 import model.Customer;
 import model.DataTransferObject;
 import model.User;
+import utility.ChangeFeed;
+import utility.DBUtil;
 import utility.GuiUtil;
+import utility.PagedTableModel;
+import utility.ViewLoader;
 
 import java.io.IOException;
 import java.net.URL;
 import java.sql.SQLException;
 import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.ResourceBundle;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.BooleanSupplier;
 
 /**
  * Controller for the main menu.
  * @author Joseph Curtis
- * @version 2022.08.15
+ * @version 2026.10.18
  */
 public class PrimaryController implements Initializable, AuthenticatedController {
 
@@ -81,9 +92,37 @@ public class PrimaryController implements Initializable, AuthenticatedController
     @FXML private TableColumn<Customer, String> country_col;
     @FXML private Label appointmentCanceledLabel;
     @FXML private Label customerDeletedLabel;
+    @FXML private Label appointmentsOfflineLabel;
+    @FXML private Label customersOfflineLabel;
     @FXML private TabPane userOperationTabPane;
     @FXML private Tab appointmentsTab;
     @FXML private Tab customersTab;
+    @FXML private ProgressIndicator appointmentsProgress;
+    @FXML private ProgressIndicator customersProgress;
+    private PagedTableModel<Appointment> appointmentPages;     // backs the "view all" appointments table
+    private PagedTableModel<Customer> customerPages;
+    private LocalDateTime appointmentsSyncedTo = DeltaSyncDAO.BEGINNING;   // Last_Update high-water marks
+    private LocalDateTime customersSyncedTo = DeltaSyncDAO.BEGINNING;
+    private final ChangeFeed.Listener changeListener = this::onDatabaseChanges;
+    private ViewLoader appointmentsLoader;      // reads whole views, off the JavaFX thread
+    private ViewLoader customersLoader;
+    private final ViewLoader appointmentsRefresher = new ViewLoader();     // reads changed rows
+    private final ViewLoader customersRefresher = new ViewLoader();
+    private final ViewLoader changedAppointmentsReader = new ViewLoader();    // reads rows the feed reports
+    private final ViewLoader changedCustomersReader = new ViewLoader();
+    private final Set<Integer> changedAppointmentIds = new LinkedHashSet<>();  // reported, not yet shown
+    private final Set<Integer> changedCustomerIds = new LinkedHashSet<>();
+
+    /**
+     * Rows read in the background, with the <code>Last_Update</code> high-water mark read just before them.
+     * @param syncedTo the high-water mark
+     * @param rows the rows (or first pages) read
+     * @param <R> the type holding the rows
+     */
+    private record Loaded<R>(LocalDateTime syncedTo, R rows) {}
+
+    /** How a confirmed customer deletion ended, once re-checked inside its transaction. */
+    private enum CustomerDeletion { DELETED, NOT_FOUND, HAS_APPOINTMENTS, FAILED }
 
     /**
      * {@inheritDoc}
@@ -112,6 +151,18 @@ public class PrimaryController implements Initializable, AuthenticatedController
      */
     @Override
     public void initialize(URL location, ResourceBundle resources) {
+        appointmentPages = new PagedTableModel<>(appointmentsTable, new AppointmentDaoImpl());
+        customerPages = new PagedTableModel<>(customersTable, new CustomerDaoImpl());
+        appointmentsLoader = new ViewLoader(appointmentsProgress);
+        customersLoader = new ViewLoader(customersProgress);
+        // say so while a view shows last known rows because the database is unreachable
+        appointmentsOfflineLabel.visibleProperty().bind(appointmentsLoader.showingLastKnownProperty());
+        appointmentsOfflineLabel.managedProperty().bind(appointmentsLoader.showingLastKnownProperty());
+        customersOfflineLabel.visibleProperty().bind(customersLoader.showingLastKnownProperty());
+        customersOfflineLabel.managedProperty().bind(customersLoader.showingLastKnownProperty());
+        // patch the tables as any client changes appointments or customers
+        GuiUtil.subscribeWhileShowing(appointmentsTable, changeListener, "appointments", "customers");
+
         // set listener for tab selection change:
         userOperationTabPane.getSelectionModel().selectedItemProperty().addListener((observable, oldTab, newTab) -> {
             if(newTab == appointmentsTab)
@@ -196,13 +247,14 @@ public class PrimaryController implements Initializable, AuthenticatedController
                     user,
                     fxmlFile,
                     "Add Appointment",
-                    Modality.WINDOW_MODAL);
+                    Modality.WINDOW_MODAL)
+                    .getSavedRecord()
+                    // read just the changed rows, not the whole table
+                    .ifPresent(saved -> refreshAppointmentsTable());
         } catch (IOException e) {
             System.out.println("Error finding file: " + fxmlFile);
             e.printStackTrace();
         }
-        // refresh the tableview to reflect possible changes
-        setAppointmentsTable();
         appointmentCanceledLabel.setText("");      // clear any previous deletion notification
     }
 
@@ -218,13 +270,14 @@ public class PrimaryController implements Initializable, AuthenticatedController
                     user,
                     fxmlFile,
                     "Add Customer",
-                    Modality.WINDOW_MODAL);
+                    Modality.WINDOW_MODAL)
+                    .getSavedRecord()
+                    // read just the changed rows, not the whole table
+                    .ifPresent(saved -> refreshCustomersTable());
         } catch (IOException e) {
             System.out.println("Error finding file: " + fxmlFile);
             e.printStackTrace();
         }
-        // refresh the tableview to reflect possible changes
-        setCustomersTable();
         customerDeletedLabel.setText("");      // clear any previous deletion notification
     }
 
@@ -245,13 +298,14 @@ public class PrimaryController implements Initializable, AuthenticatedController
                     user,
                     fxmlFile,
                     "Update Appointment",
-                    Modality.WINDOW_MODAL);
+                    Modality.WINDOW_MODAL)
+                    .getSavedRecord()
+                    // read just the changed rows, not the whole table
+                    .ifPresent(saved -> refreshAppointmentsTable());
         } catch (IOException e) {
             System.out.println("Error finding file: " + fxmlFile);
             e.printStackTrace();
         }
-        // refresh the tableview to reflect possible changes
-        setAppointmentsTable();
         appointmentCanceledLabel.setText("");      // clear any previous deletion notification
     }
 
@@ -272,13 +326,14 @@ public class PrimaryController implements Initializable, AuthenticatedController
                     user,
                     fxmlFile,
                     "Update Customer",
-                    Modality.WINDOW_MODAL);
+                    Modality.WINDOW_MODAL)
+                    .getSavedRecord()
+                    // read just the changed rows, not the whole table
+                    .ifPresent(saved -> refreshCustomersTable());
         } catch (IOException e) {
             System.out.println("Error finding file: " + fxmlFile);
             e.printStackTrace();
         }
-        // refresh the tableview to reflect possible changes
-        setCustomersTable();
         customerDeletedLabel.setText("");      // clear any previous deletion notification
     }
 
@@ -320,12 +375,14 @@ public class PrimaryController implements Initializable, AuthenticatedController
             appointmentCanceledLabel.setTextFill(Paint.valueOf("RED"));
             appointmentCanceledLabel.setText("Appointment (" + deletedAppointment.title() + ") ID: "
                     + deletedAppointment.id() + ", type: " + deletedAppointment.type() + " -- CANCELED.");
+            // drop the row in place, so a paged table keeps its scroll position
+            removeAppointmentRow(deletedAppointment.id());
         } else {
             appointmentCanceledLabel.setTextFill(Paint.valueOf("BLACK"));
             appointmentCanceledLabel.setText("interrupted delete appointment.");
+            // refresh the tableview to reflect possible changes
+            refreshAppointmentsTable();
         }
-        // refresh the tableview to reflect possible changes
-        setAppointmentsTable();
     }
 
     /**
@@ -340,49 +397,87 @@ public class PrimaryController implements Initializable, AuthenticatedController
 
         AppointmentDaoImpl dbAppointments = new AppointmentDaoImpl();
         try {
-            ObservableList<Appointment> appointmentsList = dbAppointments.getAllByCustomerId(deletedCustomer.id());
+            long appointmentCount = dbAppointments.countByCustomerId(deletedCustomer.id());
 
-            if (appointmentsList.isEmpty()) {
+            if (appointmentCount == 0) {
                 CustomerDaoImpl dbCustomers = new CustomerDaoImpl();
-                if (GuiUtil.confirmDeletion(
+                AtomicReference<CustomerDeletion> outcome = new AtomicReference<>();
+                GuiUtil.confirmDeletion(
                         "Delete Customer Confirmation",
                         "Delete Selected Customer \"" + deletedCustomer.name() + "\" ?" ,
                         "Customer will be deleted.  This CANNOT be undone!" ,
                         ()-> {
                             try {
-                                return dbCustomers.delete(deletedCustomer.id());
+                                // lock the customer first, so no appointment is added between the re-check and the delete
+                                outcome.set(DBUtil.inTransaction(transaction -> {
+                                    if (!dbCustomers.lockById(deletedCustomer.id()))
+                                        return CustomerDeletion.NOT_FOUND;
+                                    if (dbAppointments.existsByCustomerId(deletedCustomer.id()))
+                                        return CustomerDeletion.HAS_APPOINTMENTS;
+                                    return dbCustomers.delete(deletedCustomer.id())
+                                            ? CustomerDeletion.DELETED
+                                            : CustomerDeletion.NOT_FOUND;
+                                }));
+                                return true;    // the re-check's outcome is shown below
                             } catch (SQLException e) {
                                 e.printStackTrace();
                             }
+                            outcome.set(CustomerDeletion.FAILED);
                             return false;
                         }
-                )) {
-                    customerDeletedLabel.setTextFill(Paint.valueOf("RED"));
-                    customerDeletedLabel.setText("Customer: \"" + deletedCustomer.name() + "\" was deleted.");
-                } else {
+                );
+                if (outcome.get() == null) {
                     customerDeletedLabel.setTextFill(Paint.valueOf("BLACK"));
                     customerDeletedLabel.setText("canceled delete customer.");
                 }
+                else {
+                    switch (outcome.get()) {
+                        case DELETED -> {
+                            customerDeletedLabel.setTextFill(Paint.valueOf("RED"));
+                            customerDeletedLabel.setText("Customer: \"" + deletedCustomer.name() + "\" was deleted.");
+                            customerPages.remove(deletedCustomer.id());
+                            return;     // row removed in place, no refresh needed
+                        }
+                        case NOT_FOUND -> {
+                            customerDeletedLabel.setTextFill(Paint.valueOf("BLACK"));
+                            customerDeletedLabel.setText("Customer: \"" + deletedCustomer.name() + "\" no longer exists.");
+                            customerPages.remove(deletedCustomer.id());
+                            return;
+                        }
+                        // an appointment was added since the count above
+                        case HAS_APPOINTMENTS -> warnCustomerHasAppointments(deletedCustomer,
+                                dbAppointments.countByCustomerId(deletedCustomer.id()));
+                        case FAILED -> { }      // the database error was already shown
+                    }
+                }
             }
             else {
-                // customer with associated appointments cannot be deleted
-                Alert warningDelete = new Alert(Alert.AlertType.WARNING);
-                warningDelete.setHeaderText("Unable to Delete \"" + deletedCustomer.name() + "\"");
-                warningDelete.setContentText("This Customer has " + appointmentsList.size()
-                        + " associated Appointments.\nPlease remove all associated Appointments first.");
-                // set css theme
-                warningDelete.getDialogPane().getStylesheets().add(
-                        getClass().getResource("/view/modena-red.css").toExternalForm());
-                // add window icon:
-                Stage stage = (Stage) warningDelete.getDialogPane().getScene().getWindow();
-                stage.getIcons().add(new Image("/images/wile-e.png"));
-                warningDelete.showAndWait();
+                warnCustomerHasAppointments(deletedCustomer, appointmentCount);
             }
         } catch (SQLException e) {
             e.printStackTrace();
         }
         // refresh the tableview to reflect possible changes
-        setCustomersTable();
+        refreshCustomersTable();
+    }
+
+    /**
+     * Warns that a customer with associated appointments cannot be deleted.
+     * @param customer the customer the user tried to delete
+     * @param appointmentCount number of the customer's appointments
+     */
+    private void warnCustomerHasAppointments(Customer customer, long appointmentCount) {
+        Alert warningDelete = new Alert(Alert.AlertType.WARNING);
+        warningDelete.setHeaderText("Unable to Delete \"" + customer.name() + "\"");
+        warningDelete.setContentText("This Customer has " + appointmentCount
+                + " associated Appointments.\nPlease remove all associated Appointments first.");
+        // set css theme
+        warningDelete.getDialogPane().getStylesheets().add(
+                getClass().getResource("/view/modena-red.css").toExternalForm());
+        // add window icon:
+        Stage stage = (Stage) warningDelete.getDialogPane().getScene().getWindow();
+        stage.getIcons().add(new Image("/images/wile-e.png"));
+        warningDelete.showAndWait();
     }
 
     /**
@@ -432,25 +527,39 @@ public class PrimaryController implements Initializable, AuthenticatedController
 
     /**
      * Initializes or updates the Appointments table.
+     * <p>The week and month views are loaded whole; the "all" view is read a page at a time
+     * as the user scrolls (see {@link PagedTableModel}).</p>
+     * <p>Rows are read in the background (see {@link ViewLoader}); switching views before they
+     * arrive cancels the load, so only the selected view is ever shown.</p>
      * <p>This uses Lambdas in order to make use of Java Records classes
      * when setting table cell-value factories.</p>
      */
     public void setAppointmentsTable() {
         AppointmentDaoImpl appointmentsDb = new AppointmentDaoImpl();
-        try {
-            if (radioViewMonth.isSelected()) {
-
-                appointmentsTable.setItems(appointmentsDb.getAllBetweenDates(
-                        LocalDate.now(), LocalDate.now().plusMonths(1)
-                ));
-            }
-            else if (radioViewWeek.isSelected()) {
-                appointmentsTable.setItems(appointmentsDb.getAllBetweenDates(
-                        LocalDate.now(), LocalDate.now().plusWeeks(1)
-                ));
-            }
-            else appointmentsTable.setItems(appointmentsDb.getAll());
+        appointmentsRefresher.cancel();     // the new load includes every change
+        changedAppointmentsReader.cancel();
+        changedAppointmentIds.clear();
+        // the high-water mark is read first (arguments are evaluated in order), so no change is missed
+        if (radioViewMonth.isSelected() || radioViewWeek.isSelected()) {
+            LocalDate lastDay = radioViewMonth.isSelected()
+                    ? LocalDate.now().plusMonths(1)
+                    : LocalDate.now().plusWeeks(1);
+            appointmentsLoader.load(
+                    () -> new Loaded<>(appointmentsDb.getLastUpdate(),
+                            appointmentsDb.getAllBetweenDates(LocalDate.now(), lastDay)),
+                    loaded -> {
+                        appointmentsSyncedTo = loaded.syncedTo();
+                        appointmentsTable.setItems(loaded.rows());
+                    });
+        }
+        else appointmentsLoader.load(
+                () -> new Loaded<>(appointmentsDb.getLastUpdate(), appointmentPages.readFirstPages()),
+                loaded -> {
+                    appointmentsSyncedTo = loaded.syncedTo();
+                    appointmentPages.show(loaded.rows());
+                });
 
+        try {
             appointment_id_col.setCellValueFactory(a -> new SimpleIntegerProperty(a.getValue().id()).asObject());
             title_col.setCellValueFactory(a -> new SimpleStringProperty(a.getValue().title()));
             description_col.setCellValueFactory(a -> new SimpleStringProperty(a.getValue().description()));
@@ -463,20 +572,29 @@ public class PrimaryController implements Initializable, AuthenticatedController
             contact_name_col.setCellValueFactory(a -> new SimpleStringProperty(a.getValue().contactName()));
             contact_email_col.setCellValueFactory(a -> new SimpleStringProperty(a.getValue().contactEmail()));
             user_id_col.setCellValueFactory(a -> new SimpleIntegerProperty(a.getValue().userId()).asObject());
-        } catch (SQLException e) {
+        } catch (Exception e) {
             e.printStackTrace();
         }
     }
 
     /**
      * Initializes or updates the Customers table.
+     * <p>Customers are read a page at a time as the user scrolls (see {@link PagedTableModel}).</p>
      * <p>This uses Lambdas in order to make use of Java Records classes
      *      * when setting table cell-value factories.</p>
      */
     public void setCustomersTable() {
         CustomerDaoImpl customersDb = new CustomerDaoImpl();
+        customersRefresher.cancel();
+        changedCustomersReader.cancel();
+        changedCustomerIds.clear();
+        customersLoader.load(
+                () -> new Loaded<>(customersDb.getLastUpdate(), customerPages.readFirstPages()),
+                loaded -> {
+                    customersSyncedTo = loaded.syncedTo();
+                    customerPages.show(loaded.rows());
+                });
         try {
-            customersTable.setItems(customersDb.getAll());
             customer_id_col.setCellValueFactory(a -> new SimpleIntegerProperty(a.getValue().id()).asObject());
             name_col.setCellValueFactory(a -> new SimpleStringProperty(a.getValue().name()));
             address_col.setCellValueFactory(a -> new SimpleStringProperty(a.getValue().address()));
@@ -484,9 +602,196 @@ public class PrimaryController implements Initializable, AuthenticatedController
             phone_col.setCellValueFactory(a -> new SimpleStringProperty(a.getValue().phone()));
             division_col.setCellValueFactory(a -> new SimpleStringProperty(a.getValue().division()));
             country_col.setCellValueFactory(a -> new SimpleStringProperty(a.getValue().country()));
-        } catch (SQLException e) {
+        } catch (Exception e) {
             e.printStackTrace();
         }
     }
 
+    /**
+     * Updates the Appointments table with only the appointments changed since it was last read.
+     * <p>Each changed row replaces its old row by ID (see {@link DeltaSyncDAO}).
+     * Changed rows are read in the background; if the whole table is still loading,
+     * it is loaded again instead, since its high-water mark may predate the change.</p>
+     */
+    private void refreshAppointmentsTable() {
+        if (appointmentsLoader.isLoading()) {
+            setAppointmentsTable();
+            return;
+        }
+        LocalDateTime since = appointmentsSyncedTo;
+        appointmentsRefresher.load(() -> new AppointmentDaoImpl().getModifiedSince(since), changes -> {
+            changes.modified().forEach(this::mergeAppointment);
+            appointmentsSyncedTo = changes.highWater();
+        });
+    }
+
+    /**
+     * Updates the Customers table with only the customers changed since it was last read.
+     */
+    private void refreshCustomersTable() {
+        if (customersLoader.isLoading()) {
+            setCustomersTable();
+            return;
+        }
+        LocalDateTime since = customersSyncedTo;
+        customersRefresher.load(() -> new CustomerDaoImpl().getModifiedSince(since), changes -> {
+            changes.modified().forEach(customerPages::upsert);
+            customersSyncedTo = changes.highWater();
+        });
+    }
+
+    /**
+     * Patches the tables with changes published by the database change feed.
+     * <p>Deleted rows are removed by ID; inserted and updated rows are read by ID, with one
+     * <code>IN (...)</code> query per table (see {@link #readChangedAppointments()}). A table
+     * still loading is loaded again instead, since the load may have read the rows before they changed.</p>
+     * @param changes changes to appointments and customers, oldest first
+     */
+    private void onDatabaseChanges(List<ChangeFeed.Change> changes) {
+        boolean appointmentsMissed = false;
+        boolean customersMissed = false;
+        for (ChangeFeed.Change change : changes) {
+            boolean isAppointment = change.table().equals("appointments");
+            switch (change.operation()) {
+                case DELETE -> {
+                    if (isAppointment) {
+                        changedAppointmentIds.remove(change.rowId());
+                        removeAppointmentRow(change.rowId());
+                    } else {
+                        changedCustomerIds.remove(change.rowId());
+                        customerPages.remove(change.rowId());
+                    }
+                }
+                case RESYNC -> {
+                    appointmentsMissed |= isAppointment;
+                    customersMissed |= !isAppointment;
+                }
+                default -> {
+                    if (isAppointment)
+                        changedAppointmentIds.add(change.rowId());
+                    else
+                        changedCustomerIds.add(change.rowId());
+                }
+            }
+            // a load still running may have read the row before it changed
+            appointmentsMissed |= isAppointment && appointmentsLoader.isLoading();
+            customersMissed |= !isAppointment && customersLoader.isLoading();
+        }
+        if (appointmentsMissed)
+            setAppointmentsTable();
+        else if (!changedAppointmentIds.isEmpty())
+            readChangedAppointments();
+        if (customersMissed)
+            setCustomersTable();
+        else if (!changedCustomerIds.isEmpty())
+            readChangedCustomers();
+    }
+
+    /**
+     * Reads every Appointment the change feed reported as inserted or updated, and not yet shown,
+     * in the background with one query (see {@link BatchLoader}), then puts them in the table.
+     * <p>Rows are read by ID, whatever their <code>Last_Update</code>. A read cancelled by the next
+     * change leaves its IDs queued, so that read includes them.</p>
+     */
+    private void readChangedAppointments() {
+        List<Integer> ids = List.copyOf(changedAppointmentIds);
+        BatchLoader<Appointment> rows = new BatchLoader<>(new AppointmentDaoImpl()::getByIds);
+        ids.forEach(rows::load);
+        changedAppointmentsReader.load(() -> {
+            rows.dispatch();
+            return rows;
+        }, loaded -> {
+            for (Integer id : ids) {
+                if (changedAppointmentIds.remove(id))     // not deleted meanwhile
+                    loaded.getLoaded(id).ifPresentOrElse(this::mergeAppointment, () -> removeAppointmentRow(id));
+            }
+        });
+    }
+
+    /**
+     * Reads every Customer the change feed reported as inserted or updated, and not yet shown,
+     * in the background with one query, then puts them in the table.
+     */
+    private void readChangedCustomers() {
+        List<Integer> ids = List.copyOf(changedCustomerIds);
+        BatchLoader<Customer> rows = new BatchLoader<>(new CustomerDaoImpl()::getByIds);
+        ids.forEach(rows::load);
+        changedCustomersReader.load(() -> {
+            rows.dispatch();
+            return rows;
+        }, loaded -> {
+            for (Integer id : ids) {
+                if (changedCustomerIds.remove(id))
+                    loaded.getLoaded(id).ifPresentOrElse(customerPages::upsert, () -> customerPages.remove(id));
+            }
+        });
+    }
+
+    /**
+     * Removes an Appointment's row from the table, if listed.
+     * @param id unique identifier of the deleted Appointment
+     */
+    private void removeAppointmentRow(int id) {
+        if (appointmentPages.isShowing())
+            appointmentPages.remove(id);
+        else
+            appointmentsTable.getItems().removeIf(a -> a.id() == id);
+    }
+
+    /**
+     * Puts a saved or changed Appointment into the table in place of its old row (if any).
+     * <p>Rows outside the selected week or month view are removed instead.</p>
+     * @param saved the Appointment as persisted
+     */
+    private void mergeAppointment(Appointment saved) {
+        if (appointmentPages.isShowing()) {
+            appointmentPages.upsert(saved);
+            return;
+        }
+        ObservableList<Appointment> items = appointmentsTable.getItems();
+        int index = indexOfId(items, saved.id());
+        boolean visible = isInSelectedView(saved);
+
+        if (index >= 0 && visible)
+            items.set(index, saved);
+        else if (index >= 0)
+            items.remove(index);
+        else if (visible)
+            items.add(saved);
+    }
+
+    /**
+     * Checks if an Appointment belongs in the currently selected view (all, month or week).
+     * <p>Matches {@link AppointmentDaoImpl#getAllBetweenDates(LocalDate, LocalDate)}:
+     * the appointment overlaps the window.</p>
+     * @param appointment the appointment to check
+     * @return true if the appointment would be listed by the selected view
+     */
+    private boolean isInSelectedView(Appointment appointment) {
+        LocalDate lastDay;
+        if (radioViewMonth.isSelected())
+            lastDay = LocalDate.now().plusMonths(1);
+        else if (radioViewWeek.isSelected())
+            lastDay = LocalDate.now().plusWeeks(1);
+        else
+            return true;
+
+        LocalDateTime windowStart = LocalDate.now().atStartOfDay();
+        LocalDateTime windowEnd = lastDay.plusDays(1).atStartOfDay();
+        return appointment.start().isBefore(windowEnd) && appointment.end().isAfter(windowStart);
+    }
+
+    /**
+     * @param items table rows
+     * @param id record ID to find
+     * @return index of the row with that ID, or -1 if not listed
+     */
+    private static int indexOfId(ObservableList<? extends DataTransferObject> items, int id) {
+        for (int i = 0; i < items.size(); i++) {
+            if (items.get(i).id() == id)
+                return i;
+        }
+        return -1;
+    }
+
 }
@@ -16,6 +16,7 @@
 package controller;
 
 import DAO.AppointmentDaoImpl;
+import DAO.BatchLoader;
 import DAO.ContactDaoImpl;
 import javafx.beans.property.SimpleIntegerProperty;
 import javafx.beans.property.SimpleStringProperty;
@@ -26,27 +27,33 @@ import javafx.fxml.FXML;
 import javafx.fxml.Initializable;
 import javafx.scene.Node;
 import javafx.scene.control.ComboBox;
+import javafx.scene.control.ProgressIndicator;
 import javafx.scene.control.TableColumn;
 import javafx.scene.control.TableView;
 import javafx.scene.control.cell.PropertyValueFactory;
 import model.Appointment;
 import model.Contact;
+import utility.ChangeFeed;
+import utility.GuiUtil;
+import utility.ViewLoader;
 
 import java.net.URL;
-import java.sql.SQLException;
+import java.util.List;
 import java.util.ResourceBundle;
 import java.util.stream.Collectors;
 
 /**
  * Controller for the Contacts Schedule reports screen.
  * @author Joseph Curtis
- * @version 2022.08.16
+ * @version 2026.10.18
  */
 public class ScheduleReportController implements Initializable {
 
-    ObservableList<Appointment> allAppointments;
+    ObservableList<Appointment> allAppointments = FXCollections.observableArrayList();
     ObservableList<Contact> allContacts;
     ObservableList<Appointment> filteredAppointments;
+    private final ChangeFeed.Listener changeListener = this::onAppointmentChanges;
+    private ViewLoader loader;
 
     @FXML private TableView<Appointment> appointmentsTable;
     @FXML private TableColumn<Appointment, Integer> appointment_id_col;
@@ -58,10 +65,12 @@ public class ScheduleReportController implements Initializable {
     @FXML private TableColumn<Appointment, Integer> appointment_cust_id_col;
     @FXML private TableColumn<Appointment, String> appointment_cust_name_col;
     @FXML private ComboBox<Contact> contactComboBox;
+    @FXML private ProgressIndicator loadingProgress;
 
     /**
      * Initializes the controller class, setting the combo-box properties
      * and getting the list of all contacts from the database (filtering is done later in java method)
+     * <p>Appointments are read in the background while the window opens; closing it cancels the read.</p>
      * @param location The location used to resolve relative paths for the root object,
      *            or null if the location is not known.
      * @param resources The resources used to localize the root object,
@@ -69,13 +78,9 @@ public class ScheduleReportController implements Initializable {
      */
     @Override
     public void initialize(URL location, ResourceBundle resources) {
-        // save all appointments as list
-        try {
-            AppointmentDaoImpl appointmentsDb = new AppointmentDaoImpl();
-            allAppointments = appointmentsDb.getAll();
-        } catch (SQLException e) {
-            e.printStackTrace();
-        }
+        loader = new ViewLoader(loadingProgress);
+        loader.cancelWhenHidden(appointmentsTable);
+        loadAppointments();
         // save all contacts as list
         ContactDaoImpl contactsDb = new ContactDaoImpl();
         allContacts = contactsDb.getAll();
@@ -83,6 +88,21 @@ public class ScheduleReportController implements Initializable {
         for (Contact contact : allContacts) {
             contactComboBox.getItems().add(contact);
         }
+        // keep the schedule current while the report is open
+        GuiUtil.subscribeWhileShowing(appointmentsTable, changeListener, "appointments");
+    }
+
+    /**
+     * Reads all appointments in the background, reading ranges of the table in parallel,
+     * then lists the selected contact's schedule again.
+     */
+    private void loadAppointments() {
+        AppointmentDaoImpl appointmentsDb = new AppointmentDaoImpl();
+        loader.load(appointmentsDb::getAllParallel, appointments -> {
+            allAppointments = appointments;
+            if (contactComboBox.getValue() != null)
+                showSchedule();
+        });
     }
 
     /**
@@ -100,6 +120,13 @@ public class ScheduleReportController implements Initializable {
      */
     @FXML
     void onActionShowSchedule(ActionEvent event) {
+        showSchedule();
+    }
+
+    /**
+     * Lists the selected contact's appointments.
+     */
+    private void showSchedule() {
         filteredAppointments = allAppointments.stream()
                 .filter((Appointment appointment) -> appointment.contactId().equals(contactComboBox.getValue().id()))
                 .collect(Collectors.toCollection(FXCollections::observableArrayList));
@@ -116,4 +143,35 @@ public class ScheduleReportController implements Initializable {
         appointment_cust_name_col.setCellValueFactory(a -> new SimpleStringProperty(a.getValue().customerName()));
     }
 
+    /**
+     * Patches the list of appointments with changes published by the database change feed,
+     * then lists the selected contact's schedule again.
+     * <p>Changed rows are read in the background, in one query. All appointments are read again
+     * instead if changes were missed, or if they are still loading (the load may predate the changes).</p>
+     * @param changes changes to appointments, oldest first
+     */
+    private void onAppointmentChanges(List<ChangeFeed.Change> changes) {
+        if (loader.isLoading()
+                || changes.stream().anyMatch(change -> change.operation() == ChangeFeed.Operation.RESYNC)) {
+            loadAppointments();
+            return;
+        }
+        BatchLoader<Appointment> rows = new BatchLoader<>(new AppointmentDaoImpl()::getByIds);
+        changes.stream()
+                .filter(change -> change.operation() != ChangeFeed.Operation.DELETE)
+                .forEach(change -> rows.load(change.rowId()));
+        loader.load(() -> {
+            rows.dispatch();
+            return rows;
+        }, loaded -> {
+            for (ChangeFeed.Change change : changes) {
+                allAppointments.removeIf(appointment -> appointment.id() == change.rowId());
+                if (change.operation() != ChangeFeed.Operation.DELETE)
+                    loaded.getLoaded(change.rowId()).ifPresent(allAppointments::add);
+            }
+            if (contactComboBox.getValue() != null)
+                showSchedule();
+        });
+    }
+
 }
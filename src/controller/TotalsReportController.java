@@ -16,40 +16,62 @@
 package controller;
 
 import DAO.AppointmentDaoImpl;
-import javafx.collections.FXCollections;
-import javafx.collections.ObservableList;
+import DAO.BatchLoader;
 import javafx.event.ActionEvent;
 import javafx.fxml.FXML;
 import javafx.fxml.Initializable;
 import javafx.scene.Node;
 import javafx.scene.control.ComboBox;
+import javafx.scene.control.ProgressIndicator;
 import javafx.scene.control.TextField;
 import model.Appointment;
+import utility.ChangeFeed;
+import utility.GuiUtil;
+import utility.UncheckedSQLException;
+import utility.ViewLoader;
 
 import java.net.URL;
-import java.sql.SQLException;
 import java.time.Month;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.ResourceBundle;
-import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 /**
  * Controller for the Appointment-totals Report.
  * @author Joseph Curtis
- * @version 2022.08.15
+ * @version 2026.10.18
  */
 public class TotalsReportController implements Initializable {
 
-    ObservableList<Appointment> allAppointments;
+    Map<Month, Map<String, Long>> totalsByMonthAndType = new HashMap<>();
     HashSet<String> allTypes = new HashSet<>();
 
+    /** The month and type an appointment was counted under. */
+    private record Tally(Month month, String type) {
+        static Tally of(Appointment appointment) {
+            return new Tally(appointment.start().getMonth(), appointment.type());
+        }
+    }
+
+    private final Map<Integer, Tally> talliesById = new HashMap<>();
+    private final ChangeFeed.Listener changeListener = this::onAppointmentChanges;
+    private ViewLoader loader;
+
     @FXML private ComboBox<Month> monthComboBox;
     @FXML private ComboBox<String> typeComboBox;
     @FXML private TextField totalTxtField;
+    @FXML private ProgressIndicator loadingProgress;
 
     /**
      * Initializes the controller class, setting the combo-box properties
-     * and getting the list of all appointments from the database (will for type later in java method)
+     * and counting all appointments in the database by month and type (looked up later in java method).
+     * <p>Appointments are streamed from the database and tallied as they arrive, so no list of
+     * all appointments is ever held in memory. Only each appointment's month and type are kept,
+     * so that changed appointments can be re-counted while the report is open.</p>
+     * <p>Appointments are read in the background while the window opens; closing it cancels the read.</p>
      * @param location The location used to resolve relative paths for the root object,
      *            or null if the location is not known.
      * @param resources The resources used to localize the root object,
@@ -62,21 +84,88 @@ public class TotalsReportController implements Initializable {
         for (int x = 0; x < 12; x++) {
             monthComboBox.getItems().add(months[x]);
         }
-        // save all appointments as list
-        try {
-            AppointmentDaoImpl appointmentsDb = new AppointmentDaoImpl();
-            allAppointments = appointmentsDb.getAll();
-        } catch (SQLException e) {
-            e.printStackTrace();
-        }
-        // get all unique appointment types
-        for (Appointment appointment : allAppointments) {
-            allTypes.add(appointment.type());
-        }
-        // set type combo box
-        for (String type : allTypes) {
-            typeComboBox.getItems().add(type);
+        loader = new ViewLoader(loadingProgress);
+        loader.cancelWhenHidden(totalTxtField);
+        countAll();
+        // keep the totals current while the report is open
+        GuiUtil.subscribeWhileShowing(totalTxtField, changeListener, "appointments");
+    }
+
+    /**
+     * Counts all appointments by month, then by type.
+     * <p>Each appointment's month and type are read in the background, then counted on the JavaFX thread.</p>
+     */
+    private void countAll() {
+        AppointmentDaoImpl appointmentsDb = new AppointmentDaoImpl();
+        loader.load(() -> {
+            Map<Integer, Tally> tallies = new HashMap<>();
+            try (Stream<Appointment> appointments = appointmentsDb.streamAll()) {
+                appointments.forEach(appointment -> tallies.put(appointment.id(), Tally.of(appointment)));
+            } catch (UncheckedSQLException e) {
+                throw e.getCause();
+            }
+            return tallies;
+        }, tallies -> {
+            totalsByMonthAndType.clear();
+            talliesById.clear();
+            tallies.forEach(this::count);
+            if (monthComboBox.getValue() != null && typeComboBox.getValue() != null)
+                showTotal(monthComboBox.getValue(), typeComboBox.getValue());
+        });
+    }
+
+    /**
+     * Adds an appointment to the totals, and its type to the type combo box if new.
+     * @param id unique identifier of the appointment
+     * @param tally the appointment's month and type
+     */
+    private void count(int id, Tally tally) {
+        talliesById.put(id, tally);
+        totalsByMonthAndType.computeIfAbsent(tally.month, month -> new HashMap<>())
+                .merge(tally.type, 1L, Long::sum);
+        if (allTypes.add(tally.type))
+            typeComboBox.getItems().add(tally.type);
+    }
+
+    /**
+     * Removes an appointment from the totals, if it was counted.
+     * @param id unique identifier of the appointment
+     */
+    private void uncount(int id) {
+        Tally tally = talliesById.remove(id);
+        if (tally != null)
+            totalsByMonthAndType.get(tally.month).merge(tally.type, -1L, Long::sum);
+    }
+
+    /**
+     * Re-counts the appointments published by the database change feed, then shows the new total.
+     * <p>Changed rows are read in the background, in one query. Everything is counted again
+     * instead if changes were missed, or if counting is still running (it may predate the changes).</p>
+     * @param changes changes to appointments, oldest first
+     */
+    private void onAppointmentChanges(List<ChangeFeed.Change> changes) {
+        if (loader.isLoading()
+                || changes.stream().anyMatch(change -> change.operation() == ChangeFeed.Operation.RESYNC)) {
+            countAll();
+            return;
         }
+        BatchLoader<Appointment> rows = new BatchLoader<>(new AppointmentDaoImpl()::getByIds);
+        changes.stream()
+                .filter(change -> change.operation() != ChangeFeed.Operation.DELETE)
+                .forEach(change -> rows.load(change.rowId()));
+        loader.load(() -> {
+            rows.dispatch();
+            return rows;
+        }, loaded -> {
+            for (ChangeFeed.Change change : changes) {
+                uncount(change.rowId());
+                if (change.operation() != ChangeFeed.Operation.DELETE)
+                    loaded.getLoaded(change.rowId())
+                            .ifPresent(appointment -> count(appointment.id(), Tally.of(appointment)));
+            }
+            if (monthComboBox.getValue() != null && typeComboBox.getValue() != null)
+                showTotal(monthComboBox.getValue(), typeComboBox.getValue());
+        });
     }
 
     /**
@@ -109,22 +198,15 @@ public class TotalsReportController implements Initializable {
     }
 
     /**
-     * Calculates total and displays it inside the total text box.
-     * This utilizes a data stream to filter out the list of all appointments to only those
-     * which match the criteria set by the user; namely by month and appointment type.
-     * We must use a lambda to set the conditions for which each appointment item will be filtered out
-     * or included in the filtered list.  We then convert back to ta collection so that we may easily count
-     * the total filtered items by using <code>size()</code> method.
+     * Looks up the total and displays it inside the total text box.
+     * The totals are counted per month and appointment type when the report opens (and kept
+     * current as appointments change), so this is a map lookup rather than another pass over every appointment.
      * @param month month total filter
      * @param type type total filter
      */
     void showTotal(Month month, String type) {
-    ObservableList<Appointment> filteredAppointments =
-            allAppointments.stream().filter((Appointment appointment) ->
-                appointment.type().equals(type) && appointment.start().getMonth().equals(month))
-                    // turn stream back into collection
-                    .collect(Collectors.toCollection(FXCollections::observableArrayList));
+        long total = totalsByMonthAndType.getOrDefault(month, Map.of()).getOrDefault(type, 0L);
 
-        totalTxtField.setText(String.valueOf((long) filteredAppointments.size()));
+        totalTxtField.setText(String.valueOf(total));
     }
 }
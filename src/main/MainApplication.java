@@ -21,6 +21,7 @@ import javafx.scene.Parent;
 import javafx.scene.Scene;
 import javafx.scene.image.Image;
 import javafx.stage.Stage;
+import utility.DBUtil;
 
 import java.io.IOException;
 import java.util.Locale;
@@ -45,6 +46,7 @@ public class MainApplication extends Application {
      */
     @Override
     public void start(Stage primaryStage) throws IOException {
+        DBUtil.warmUpConnectionPool();    // open pooled connections while the login screen shows
         ResourceBundle languageRb = ResourceBundle.getBundle("Localization", Locale.getDefault());
         Parent root = FXMLLoader.load(getClass().getResource("/view/login-view.fxml"), languageRb);
 
@@ -12,8 +12,10 @@ import java.time.format.DateTimeFormatter;
  * as {@link java.sql.Timestamp} object, then convert to LocalDateTime object.
  * MySQL driver v8.0.x automatically converts to SystemDefault time
  * when extracting from ResultSet.</p>
+ * <p>version is the row version read from the database; an update only applies
+ * if the row still has it (use 0 for a new appointment).</p>
  * @author Joseph Curtis
- * @version 2022.06.01
+ * @version 2026.10.18
  */
 public record Appointment(Integer id,
                           String title,
@@ -27,7 +29,8 @@ public record Appointment(Integer id,
                           Integer userId,
                           Integer contactId,
                           String contactName,
-                          String contactEmail) implements DataTransferObject {
+                          String contactEmail,
+                          Integer version) implements DataTransferObject {
 
     /**
      * Property used for Cell Value Factories
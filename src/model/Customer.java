@@ -6,8 +6,10 @@ package model;
  * division and country are saved here for convenience and
  * must be obtained through table joins. Likewise equals does not
  * compare division or country name.</p>
+ * <p>version is the row version read from the database; an update only applies
+ * if the row still has it (use 0 for a new customer).</p>
  * @author Joseph Curtis
- * @version 2022.06.08
+ * @version 2026.10.18
  */
 public record Customer(Integer id,
                        String name,
@@ -16,7 +18,8 @@ public record Customer(Integer id,
                        String phone,
                        Integer divisionId,
                        String division,
-                       String country) implements DataTransferObject {
+                       String country,
+                       Integer version) implements DataTransferObject {
 
     @Override
     public String toString() {
@@ -0,0 +1,15 @@
+-- Indexes for the date-window overlap query:
+--     WHERE Start < :windowEnd AND End > :windowStart
+-- End leads each index: the week and month views start today, so the range
+-- scan on End reads only appointments that have not yet ended, however many
+-- past appointments the table holds. Start is then checked within the index.
+
+CREATE INDEX appointments_end_start
+    ON client_schedule.appointments (End, Start);
+
+-- per-user and per-contact windows (the login alert, contact schedules)
+CREATE INDEX appointments_user_end_start
+    ON client_schedule.appointments (User_ID, End, Start);
+
+CREATE INDEX appointments_contact_end_start
+    ON client_schedule.appointments (Contact_ID, End, Start);
@@ -0,0 +1,13 @@
+-- Indexes for the remaining DAO lookups.
+
+-- keyset paging of the "all appointments" view: ORDER BY Start, Appointment_ID
+CREATE INDEX appointments_start_id
+    ON client_schedule.appointments (Start, Appointment_ID);
+
+-- a customer's appointments (delete check, overlap validation)
+CREATE INDEX appointments_customer_start
+    ON client_schedule.appointments (Customer_ID, Start);
+
+-- customers by division (customer report, division joins)
+CREATE INDEX customers_division
+    ON client_schedule.customers (Division_ID);
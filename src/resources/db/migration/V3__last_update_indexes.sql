@@ -0,0 +1,7 @@
+-- Delta refresh: rows changed since a Last_Update high-water mark.
+
+CREATE INDEX appointments_last_update
+    ON client_schedule.appointments (Last_Update);
+
+CREATE INDEX customers_last_update
+    ON client_schedule.customers (Last_Update);
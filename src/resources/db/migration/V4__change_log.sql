@@ -0,0 +1,46 @@
+-- Change feed: every insert, update and delete of appointments and customers leaves a row here,
+-- so clients can patch their views (including removing deleted rows) instead of reloading.
+
+CREATE TABLE IF NOT EXISTS client_schedule.change_log (
+    Change_ID BIGINT NOT NULL AUTO_INCREMENT PRIMARY KEY,
+    Table_Name VARCHAR(50) NOT NULL,
+    Row_ID INT NOT NULL,
+    Operation CHAR(1) NOT NULL,
+    Changed_At TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP
+);
+
+-- pruning of old entries
+CREATE INDEX change_log_changed_at
+    ON client_schedule.change_log (Changed_At);
+
+-- each trigger is dropped first, so a run that failed part-way (such as for lack of the TRIGGER
+-- privilege) can be repeated
+DROP TRIGGER IF EXISTS client_schedule.appointments_log_insert;
+CREATE TRIGGER appointments_log_insert AFTER INSERT ON client_schedule.appointments
+    FOR EACH ROW INSERT INTO client_schedule.change_log (Table_Name, Row_ID, Operation)
+    VALUES ('appointments', NEW.Appointment_ID, 'I');
+
+DROP TRIGGER IF EXISTS client_schedule.appointments_log_update;
+CREATE TRIGGER appointments_log_update AFTER UPDATE ON client_schedule.appointments
+    FOR EACH ROW INSERT INTO client_schedule.change_log (Table_Name, Row_ID, Operation)
+    VALUES ('appointments', NEW.Appointment_ID, 'U');
+
+DROP TRIGGER IF EXISTS client_schedule.appointments_log_delete;
+CREATE TRIGGER appointments_log_delete AFTER DELETE ON client_schedule.appointments
+    FOR EACH ROW INSERT INTO client_schedule.change_log (Table_Name, Row_ID, Operation)
+    VALUES ('appointments', OLD.Appointment_ID, 'D');
+
+DROP TRIGGER IF EXISTS client_schedule.customers_log_insert;
+CREATE TRIGGER customers_log_insert AFTER INSERT ON client_schedule.customers
+    FOR EACH ROW INSERT INTO client_schedule.change_log (Table_Name, Row_ID, Operation)
+    VALUES ('customers', NEW.Customer_ID, 'I');
+
+DROP TRIGGER IF EXISTS client_schedule.customers_log_update;
+CREATE TRIGGER customers_log_update AFTER UPDATE ON client_schedule.customers
+    FOR EACH ROW INSERT INTO client_schedule.change_log (Table_Name, Row_ID, Operation)
+    VALUES ('customers', NEW.Customer_ID, 'U');
+
+DROP TRIGGER IF EXISTS client_schedule.customers_log_delete;
+CREATE TRIGGER customers_log_delete AFTER DELETE ON client_schedule.customers
+    FOR EACH ROW INSERT INTO client_schedule.change_log (Table_Name, Row_ID, Operation)
+    VALUES ('customers', OLD.Customer_ID, 'D');
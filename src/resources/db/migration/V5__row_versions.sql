@@ -0,0 +1,8 @@
+-- Optimistic concurrency: every update increments the row's version, and only applies
+-- if the row still has the version the editor read.
+
+ALTER TABLE client_schedule.appointments
+    ADD COLUMN Version INT NOT NULL DEFAULT 0;
+
+ALTER TABLE client_schedule.customers
+    ADD COLUMN Version INT NOT NULL DEFAULT 0;
@@ -0,0 +1,163 @@
+/*
+ Copyright 2022 Joseph Curtis Licensed under the Educational
+ Community License, Version 2.0 (the "License"); you may not use this file
+ except in compliance with the License. You may obtain a copy of the License at
+
+ http://opensource.org/licenses/ECL-2.0
+
+ Unless required by applicable law or agreed to in writing, software
+ distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ License for the specific language governing permissions and limitations under
+ the License.
+
+ ******************************************************************************/
+
+
+package utility;
+
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Lets the user stop long-running DAO calls.
+ * <p>Work {@link #run run} with a token is bound to it on the current thread, like a
+ * {@link Transaction}: every statement the DAOs execute for that work (see {@link #execute})
+ * is registered with the token while it runs. {@link #cancel()} calls
+ * {@link Statement#cancel()} on those statements, so the server stops the queries and the
+ * DAO calls fail right away, closing their statements and returning their connections to
+ * the pool. Statements started after cancelling fail before they are sent.</p>
+ * <pre>
+ * CancellationToken token = new CancellationToken();
+ * cancelButton.setOnAction(event -> token.cancel());
+ * token.run(() -> dbAppointments.getAll());
+ * </pre>
+ * @author Joseph Curtis
+ * @version 2026.10.18
+ */
+public final class CancellationToken {
+
+    /** SQLState of statements failed by {@link #cancel()} (MySQL's "query execution was interrupted"). */
+    public static final String CANCELLED_STATE = "70100";
+
+    private static final ThreadLocal<CancellationToken> bound = new ThreadLocal<>();
+    private static final ExecutorService canceller = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "query-cancel");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * A statement execution, such as <code>statement::executeQuery</code>.
+     * @param <R> the execution's result type
+     */
+    @FunctionalInterface
+    public interface Execution<R> {
+        /**
+         * @return the execution's result
+         * @throws SQLException if the statement fails.
+         */
+        R execute() throws SQLException;
+    }
+
+    private final Set<Statement> executing = new HashSet<>();   // guarded by this
+    private volatile boolean cancelled = false;
+
+    /**
+     * Runs the work with this token bound to the current thread; work already bound to
+     * another token (such as a nested call) is bound to this one until it returns.
+     * @param work the DAO calls to run
+     * @param <R> the result type of the work
+     * @return the result of the work
+     * @throws Exception whatever the work throws; a {@link SQLException} with
+     * {@link #CANCELLED_STATE} if it was cancelled.
+     */
+    public <R> R run(Callable<R> work) throws Exception {
+        CancellationToken outer = bound.get();
+        bound.set(this);
+        try {
+            return work.call();
+        } finally {
+            if (outer == null)
+                bound.remove();
+            else
+                bound.set(outer);
+        }
+    }
+
+    /**
+     * Cancels the statements running for this token, and any the work starts later.
+     * <p>Returns at once: the driver's cancel (a <code>KILL QUERY</code> sent on a separate
+     * connection) runs on a background thread, so this can be called from the JavaFX thread.</p>
+     */
+    public void cancel() {
+        if (cancelled)
+            return;
+        cancelled = true;
+        canceller.execute(() -> {
+            synchronized (this) {
+                for (Statement statement : executing) {
+                    try {
+                        statement.cancel();
+                    } catch (SQLException e) {
+                        System.out.println("Unable to cancel query: " + e.getMessage());
+                    }
+                }
+            }
+        });
+    }
+
+    /**
+     * @return true once {@link #cancel()} has been called
+     */
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    /**
+     * @return the token bound to the current thread, or null if there is none
+     */
+    public static CancellationToken current() {
+        return bound.get();
+    }
+
+    /**
+     * Executes a statement, registered with the current thread's token (if any) while it runs.
+     * @param statement the statement being executed
+     * @param execution the call that executes it
+     * @param <R> the execution's result type
+     * @return the execution's result
+     * @throws SQLException if the statement fails, or with {@link #CANCELLED_STATE}
+     * if the token was cancelled before or while it ran.
+     */
+    public static <R> R execute(Statement statement, Execution<R> execution) throws SQLException {
+        CancellationToken token = bound.get();
+        if (token == null)
+            return execution.execute();
+        synchronized (token) {
+            token.throwIfCancelled(null);
+            token.executing.add(statement);
+        }
+        try {
+            return execution.execute();
+        } catch (SQLException e) {
+            token.throwIfCancelled(e);
+            throw e;
+        } finally {
+            // waits for a cancel in progress, so the statement is never cancelled after it is reused
+            synchronized (token) {
+                token.executing.remove(statement);
+            }
+        }
+    }
+
+    private void throwIfCancelled(SQLException cause) throws SQLException {
+        if (cancelled)
+            throw new SQLException("Query cancelled", CANCELLED_STATE, cause);
+    }
+}
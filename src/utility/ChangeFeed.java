@@ -0,0 +1,352 @@
+/*
+ Copyright 2022 Joseph Curtis Licensed under the Educational
+ Community License, Version 2.0 (the "License"); you may not use this file
+ except in compliance with the License. You may obtain a copy of the License at
+
+ http://opensource.org/licenses/ECL-2.0
+
+ Unless required by applicable law or agreed to in writing, software
+ distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ License for the specific language governing permissions and limitations under
+ the License.
+
+ ******************************************************************************/
+
+package utility;
+
+import javafx.application.Platform;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Publishes inserts, updates and deletes of database rows, read from the <code>change_log</code>
+ * table that triggers fill (see <code>resources/db/migration/V4__change_log.sql</code>).
+ * <p>A background thread polls the log for entries newer than the last one it saw. The poll
+ * interval adapts: it drops to the minimum as soon as changes arrive and doubles after each
+ * quiet poll, up to the maximum. Polling runs only while a view is subscribed.</p>
+ * <p>Views {@link #subscribe} and are called on the JavaFX application thread, so they can patch
+ * their tables directly. Caches {@link #addCacheListener register} to be called on the polling
+ * thread, before any view, so views re-reading changed rows do not get cached copies.</p>
+ * <p>Concurrent writers take <code>Change_ID</code>s before they commit, so an entry can become
+ * visible after entries with higher IDs. IDs skipped by a poll are kept as open gaps and
+ * looked up again by each poll until they appear, or until {@link #GAP_TIMEOUT_MILLIS} has
+ * passed (a rolled-back write leaves a gap that never fills).</p>
+ * <p>Entries older than the retention period are pruned. A client that has not polled for longer
+ * than that receives a {@link Operation#RESYNC} change for each table instead of the missed entries.</p>
+ * @author Joseph Curtis
+ * @version 2026.10.18
+ */
+public final class ChangeFeed {
+
+    /**
+     * What happened to a row.
+     */
+    public enum Operation {
+        INSERT, UPDATE, DELETE,
+        /** changes were missed; reload the whole table (the row ID is 0) */
+        RESYNC;
+
+        private static Operation of(String code) {
+            return switch (code) {
+                case "I" -> INSERT;
+                case "U" -> UPDATE;
+                case "D" -> DELETE;
+                default -> throw new IllegalArgumentException("Unknown change_log operation " + code);
+            };
+        }
+    }
+
+    /**
+     * One changed row.
+     * @param table table name, lower case and without schema
+     * @param rowId primary key of the row
+     * @param operation what happened to the row
+     */
+    public record Change(String table, int rowId, Operation operation) {}
+
+    /**
+     * Receives the changes found by one poll, oldest first.
+     */
+    @FunctionalInterface
+    public interface Listener {
+        void onChanges(List<Change> changes);
+    }
+
+    private record Subscription(Listener listener, Set<String> tables, boolean view) {}
+
+    /** How long a skipped <code>Change_ID</code> is looked for; longer than any write transaction should take. */
+    public static final long GAP_TIMEOUT_MILLIS = 60_000;
+
+    private static final int MAX_CHANGES_PER_POLL = 1_000;
+    private static final int MAX_OPEN_GAPS = 256;
+    private static final long PRUNE_INTERVAL_NANOS = TimeUnit.HOURS.toNanos(1);
+
+    private final DataSource dataSource;
+    private final long minIntervalMillis;
+    private final long maxIntervalMillis;
+    private final Duration retention;
+    private final List<Subscription> subscriptions = new CopyOnWriteArrayList<>();
+    private final ScheduledExecutorService poller = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "change-feed-poll");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    // owned by the polling thread, except where noted
+    private boolean polling = false;            // guarded by this
+    private long lastSeenId = -1;               // -1 until the first poll finds the end of the log
+    private final Map<Long, Long> openGaps = new LinkedHashMap<>();    // skipped Change_ID -> nanoTime noticed, oldest first
+    private long lastPollNanos;
+    private long lastPruneNanos;
+    private long intervalMillis;
+    private boolean failing = false;
+
+    /**
+     * @param dataSource database holding the change log
+     * @param minInterval delay between polls while changes keep arriving
+     * @param maxInterval longest delay between polls when nothing changes
+     * @param retention how long log entries are kept
+     */
+    public ChangeFeed(DataSource dataSource, Duration minInterval, Duration maxInterval, Duration retention) {
+        this.dataSource = dataSource;
+        this.minIntervalMillis = minInterval.toMillis();
+        this.maxIntervalMillis = Math.max(minIntervalMillis, maxInterval.toMillis());
+        this.retention = retention;
+        this.lastPruneNanos = System.nanoTime() - PRUNE_INTERVAL_NANOS;
+    }
+
+    /**
+     * Calls the view with each poll's changes to the tables, on the JavaFX application thread.
+     * Starts polling if it is not running.
+     * @param listener the view's handler
+     * @param tables table names to receive changes for
+     */
+    public void subscribe(Listener listener, String... tables) {
+        subscriptions.add(new Subscription(listener, Set.of(tables), true));
+        synchronized (this) {
+            if (!polling) {
+                polling = true;
+                intervalMillis = minIntervalMillis;
+                poller.execute(this::poll);
+            }
+        }
+    }
+
+    /**
+     * Calls the cache with each poll's changes to the tables, on the polling thread.
+     * <p>When polling (re)starts, the cache first receives a {@link Operation#RESYNC} change,
+     * since writes by other clients were not tracked while the feed was stopped.</p>
+     * @param listener the cache's handler; it must not block
+     * @param tables table names to receive changes for
+     */
+    public void addCacheListener(Listener listener, String... tables) {
+        subscriptions.add(new Subscription(listener, Set.of(tables), false));
+    }
+
+    /**
+     * Stops calling a listener. Polling stops once no view is subscribed.
+     * @param listener a listener passed to {@link #subscribe} or {@link #addCacheListener}
+     */
+    public void unsubscribe(Listener listener) {
+        subscriptions.removeIf(subscription -> subscription.listener == listener);
+    }
+
+    private void poll() {
+        synchronized (this) {
+            if (subscriptions.stream().noneMatch(Subscription::view)) {
+                polling = false;
+                lastSeenId = -1;    // the next start re-reads the end of the log
+                return;
+            }
+        }
+        try (Connection conn = dataSource.getConnection()) {
+            List<Change> changes;
+            boolean cachesOnly = false;
+            if (lastSeenId < 0) {
+                // (re)starting: views have just loaded their data, only caches may be out of date
+                lastSeenId = readLastId(conn);
+                changes = resyncAll();
+                cachesOnly = true;
+            } else if (System.nanoTime() - lastPollNanos > retention.toNanos()) {
+                // entries may have been pruned since the last poll (such as after a sleep)
+                lastSeenId = readLastId(conn);
+                changes = resyncAll();
+            } else {
+                changes = readChangesAfterLastSeen(conn);
+            }
+            lastPollNanos = System.nanoTime();
+            if (System.nanoTime() - lastPruneNanos > PRUNE_INTERVAL_NANOS) {
+                prune(conn);
+                lastPruneNanos = System.nanoTime();
+            }
+            publish(changes, cachesOnly);
+
+            intervalMillis = changes.isEmpty() || cachesOnly
+                    ? Math.min(intervalMillis * 2, maxIntervalMillis)
+                    : minIntervalMillis;
+            failing = false;
+        } catch (SQLException | RuntimeException e) {
+            if (!failing)
+                System.out.println("Unable to read change log: " + e.getMessage());
+            failing = true;
+            intervalMillis = maxIntervalMillis;
+        }
+        poller.schedule(this::poll, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    private long readLastId(Connection conn) throws SQLException {
+        openGaps.clear();
+        try (PreparedStatement statement = conn.prepareStatement(
+                "SELECT COALESCE(MAX(Change_ID), 0) FROM client_schedule.change_log")) {
+            ResultSet resultSet = statement.executeQuery();
+            resultSet.next();
+            return resultSet.getLong(1);
+        }
+    }
+
+    private List<Change> readChangesAfterLastSeen(Connection conn) throws SQLException {
+        List<Change> changes = readFilledGaps(conn);
+        try (PreparedStatement statement = conn.prepareStatement(
+                """
+                        SELECT Change_ID, Table_Name, Row_ID, Operation
+                        FROM client_schedule.change_log
+                        WHERE Change_ID > ?
+                        ORDER BY Change_ID
+                        LIMIT ?
+                        """)) {
+            statement.setLong(1, lastSeenId);
+            statement.setInt(2, MAX_CHANGES_PER_POLL);
+            ResultSet resultSet = statement.executeQuery();
+            while (resultSet.next()) {
+                long id = resultSet.getLong("Change_ID");
+                openGapsBetween(lastSeenId, id);
+                lastSeenId = id;
+                changes.add(changeOf(resultSet));
+            }
+        }
+        return changes;
+    }
+
+    /**
+     * Reads the entries that have appeared in open gaps since the last poll, and drops gaps
+     * older than {@link #GAP_TIMEOUT_MILLIS}.
+     * <p>The gap IDs are padded to a power of two by repeating the last one, so only a few
+     * distinct SQL strings are prepared.</p>
+     */
+    private List<Change> readFilledGaps(Connection conn) throws SQLException {
+        long expired = System.nanoTime() - TimeUnit.MILLISECONDS.toNanos(GAP_TIMEOUT_MILLIS);
+        openGaps.values().removeIf(noticed -> noticed - expired < 0);
+        List<Change> changes = new ArrayList<>();
+        if (openGaps.isEmpty())
+            return changes;
+
+        List<Long> gaps = new ArrayList<>(openGaps.keySet());
+        int placeholders = Integer.highestOneBit(gaps.size() * 2 - 1);
+        try (PreparedStatement statement = conn.prepareStatement(
+                """
+                        SELECT Change_ID, Table_Name, Row_ID, Operation
+                        FROM client_schedule.change_log
+                        WHERE Change_ID IN (%s)
+                        ORDER BY Change_ID
+                        """.formatted(String.join(", ", Collections.nCopies(placeholders, "?"))))) {
+            for (int i = 0; i < placeholders; i++) {
+                statement.setLong(i + 1, gaps.get(Math.min(i, gaps.size() - 1)));
+            }
+            ResultSet resultSet = statement.executeQuery();
+            while (resultSet.next()) {
+                openGaps.remove(resultSet.getLong("Change_ID"));
+                changes.add(changeOf(resultSet));
+            }
+        }
+        return changes;
+    }
+
+    /**
+     * Opens a gap for each ID between two consecutive entries read, keeping the newest
+     * {@link #MAX_OPEN_GAPS} open gaps.
+     * @param previousId the entry read before (or the last seen ID)
+     * @param id the entry just read
+     */
+    private void openGapsBetween(long previousId, long id) {
+        long noticed = System.nanoTime();
+        for (long missing = Math.max(previousId + 1, id - MAX_OPEN_GAPS); missing < id; missing++) {
+            openGaps.put(missing, noticed);
+        }
+        Iterator<Long> oldest = openGaps.keySet().iterator();
+        while (openGaps.size() > MAX_OPEN_GAPS) {
+            oldest.next();
+            oldest.remove();
+        }
+    }
+
+    private static Change changeOf(ResultSet resultSet) throws SQLException {
+        return new Change(resultSet.getString("Table_Name"),
+                resultSet.getInt("Row_ID"),
+                Operation.of(resultSet.getString("Operation")));
+    }
+
+    /**
+     * @return a {@link Operation#RESYNC} change for every table any listener follows
+     */
+    private List<Change> resyncAll() {
+        return subscriptions.stream()
+                .flatMap(subscription -> subscription.tables.stream())
+                .distinct()
+                .map(table -> new Change(table, 0, Operation.RESYNC))
+                .toList();
+    }
+
+    private void prune(Connection conn) throws SQLException {
+        try (PreparedStatement statement = conn.prepareStatement(
+                "DELETE FROM client_schedule.change_log WHERE Changed_At < TIMESTAMPADD(HOUR, -?, CURRENT_TIMESTAMP)")) {
+            statement.setLong(1, retention.toHours());
+            statement.executeUpdate();
+        }
+    }
+
+    /**
+     * Calls cache listeners now, then queues the view listeners on the JavaFX application thread.
+     * @param changes the changes found by a poll
+     * @param cachesOnly true to skip the views
+     */
+    private void publish(List<Change> changes, boolean cachesOnly) {
+        if (changes.isEmpty())
+            return;
+        for (Subscription subscription : subscriptions) {
+            List<Change> relevant = changes.stream()
+                    .filter(change -> subscription.tables.contains(change.table()))
+                    .toList();
+            if (relevant.isEmpty() || (cachesOnly && subscription.view))
+                continue;
+            if (!subscription.view) {
+                try {
+                    subscription.listener.onChanges(relevant);
+                } catch (RuntimeException e) {
+                    e.printStackTrace();
+                }
+            } else {
+                Platform.runLater(() -> {
+                    if (subscriptions.contains(subscription))     // not unsubscribed meanwhile
+                        subscription.listener.onChanges(relevant);
+                });
+            }
+        }
+    }
+}
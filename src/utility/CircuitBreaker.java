@@ -0,0 +1,121 @@
+/*
+ Copyright 2022 Joseph Curtis Licensed under the Educational
+ Community License, Version 2.0 (the "License"); you may not use this file
+ except in compliance with the License. You may obtain a copy of the License at
+
+ http://opensource.org/licenses/ECL-2.0
+
+ Unless required by applicable law or agreed to in writing, software
+ distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ License for the specific language governing permissions and limitations under
+ the License.
+
+ ******************************************************************************/
+
+
+package utility;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Stops calls to the database while it is unreachable, so they fail at once instead of each
+ * waiting out a connect timeout.
+ * <p>The breaker starts <em>closed</em>. After <code>failureThreshold</code> connection failures
+ * in a row it <em>opens</em>, and {@link #tryAcquire()} refuses every call for the open period.
+ * After that, one trial call is let through (<em>half-open</em>): if it connects, the breaker
+ * closes; if not, it opens again for another period.</p>
+ * @author Joseph Curtis
+ * @version 2026.10.18
+ */
+public final class CircuitBreaker {
+
+    /**
+     * Whether calls are let through.
+     */
+    public enum State {
+        /** the database is reachable; all calls go through */
+        CLOSED,
+        /** the database is unreachable; calls fail at once */
+        OPEN,
+        /** the open period is over; one trial call is running */
+        HALF_OPEN
+    }
+
+    private final int failureThreshold;
+    private final long openNanos;
+
+    // guarded by this
+    private State state = State.CLOSED;
+    private int consecutiveFailures = 0;
+    private long openedAtNanos;
+
+    /**
+     * @param failureThreshold connection failures in a row that open the breaker
+     * @param openMillis how long the breaker stays open before a trial call
+     */
+    public CircuitBreaker(int failureThreshold, long openMillis) {
+        this.failureThreshold = Math.max(1, failureThreshold);
+        this.openNanos = TimeUnit.MILLISECONDS.toNanos(openMillis);
+    }
+
+    /**
+     * Asks to make a call. A caller that is let through must report the outcome with
+     * {@link #recordSuccess()}, {@link #recordFailure()} or {@link #release()}.
+     * @return true if the call may go ahead, false if the database is considered unreachable
+     */
+    public synchronized boolean tryAcquire() {
+        return switch (state) {
+            case CLOSED -> true;
+            case OPEN -> {
+                if (System.nanoTime() - openedAtNanos < openNanos)
+                    yield false;
+                state = State.HALF_OPEN;    // this caller makes the trial call
+                yield true;
+            }
+            case HALF_OPEN -> false;        // a trial call is already running
+        };
+    }
+
+    /**
+     * Reports that a call reached the database; closes the breaker.
+     */
+    public synchronized void recordSuccess() {
+        if (state != State.CLOSED)
+            System.out.println("Database available again");
+        state = State.CLOSED;
+        consecutiveFailures = 0;
+    }
+
+    /**
+     * Reports that a call could not reach the database; may open the breaker.
+     */
+    public synchronized void recordFailure() {
+        consecutiveFailures++;
+        if (state == State.HALF_OPEN || (state == State.CLOSED && consecutiveFailures >= failureThreshold)) {
+            if (state == State.CLOSED)
+                System.out.println("Database unavailable; failing fast for "
+                        + TimeUnit.NANOSECONDS.toMillis(openNanos) + "ms at a time");
+            state = State.OPEN;
+            openedAtNanos = System.nanoTime();
+        }
+    }
+
+    /**
+     * Reports that a call ended without showing whether the database is reachable (such as
+     * when the pool had no free connection); a trial call may then be made by the next caller.
+     */
+    public synchronized void release() {
+        if (state == State.HALF_OPEN) {
+            state = State.OPEN;
+            openedAtNanos = System.nanoTime() - openNanos;    // the period is already over
+        }
+    }
+
+    /**
+     * @return the breaker's current state
+     */
+    public synchronized State getState() {
+        return state;
+    }
+}
@@ -0,0 +1,482 @@
+/*
+ Copyright 2022 Joseph Curtis Licensed under the Educational
+ Community License, Version 2.0 (the "License"); you may not use this file
+ except in compliance with the License. You may obtain a copy of the License at
+
+ http://opensource.org/licenses/ECL-2.0
+
+ Unless required by applicable law or agreed to in writing, software
+ distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ License for the specific language governing permissions and limitations under
+ the License.
+
+ ******************************************************************************/
+
+package utility;
+
+import javax.sql.DataSource;
+import java.io.PrintWriter;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.sql.SQLTransientConnectionException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Logger;
+
+/**
+ * A small, self-contained JDBC connection pool that sits behind {@link DBUtil#getDataSource()}.
+ * <p>Physical connections are created from the wrapped (unpooled) DataSource and handed out
+ * as logical connections. Calling <code>close()</code> on a logical connection returns
+ * the physical connection to the pool instead of closing the socket, so DAO code keeps
+ * using the usual try-with-resources block.</p>
+ * <p>The pool keeps between <code>minSize</code> and <code>maxSize</code> physical connections,
+ * evicts connections that sit idle past the idle timeout, validates idle connections when
+ * they are borrowed, and reports the borrowing stack trace of any connection that is held
+ * longer than the leak detection threshold.</p>
+ * @author Joseph Curtis
+ * @version 2026.10.18
+ */
+public final class ConnectionPool implements DataSource, AutoCloseable {
+
+    /** A connection returned this recently is assumed alive and skips validation. */
+    private static final long VALIDATION_BYPASS_MILLIS = 500;
+    /** How often idle eviction, refill and leak detection run. */
+    private static final long HOUSEKEEPING_PERIOD_MILLIS = 5_000;
+
+    /**
+     * Pool configuration.
+     * @param minSize connections kept open (and pre-warmed) even when idle
+     * @param maxSize upper bound on open connections
+     * @param idleTimeoutMillis idle time after which connections above <code>minSize</code> are closed
+     * @param borrowTimeoutMillis how long <code>getConnection()</code> waits for a free connection
+     * @param validationTimeoutSeconds timeout passed to {@link Connection#isValid(int)} on borrow
+     * @param leakDetectionThresholdMillis time a connection may be held before it is reported (0 disables)
+     * @param statementCacheSize prepared statements kept open per connection (0 disables)
+     */
+    public record Settings(int minSize,
+                           int maxSize,
+                           long idleTimeoutMillis,
+                           long borrowTimeoutMillis,
+                           int validationTimeoutSeconds,
+                           long leakDetectionThresholdMillis,
+                           int statementCacheSize) {
+
+        /**
+         * Reads pool settings from connection properties, falling back to defaults.
+         * @param properties the loaded <code>DbConnection.properties</code>
+         * @return settings for a new pool
+         */
+        public static Settings fromProperties(Properties properties) {
+            int max = Integer.parseInt(properties.getProperty("db.pool.maxSize", "10"));
+            int min = Math.min(max, Integer.parseInt(properties.getProperty("db.pool.minSize", "2")));
+            return new Settings(min, max,
+                    Long.parseLong(properties.getProperty("db.pool.idleTimeoutMillis", "600000")),
+                    Long.parseLong(properties.getProperty("db.pool.borrowTimeoutMillis", "30000")),
+                    Integer.parseInt(properties.getProperty("db.pool.validationTimeoutSeconds", "2")),
+                    Long.parseLong(properties.getProperty("db.pool.leakDetectionThresholdMillis", "60000")),
+                    Integer.parseInt(properties.getProperty("db.pool.statementCacheSize", "50")));
+        }
+    }
+
+    private final DataSource physicalSource;
+    private final Settings settings;
+
+    private final BlockingDeque<PooledConnection> idleConnections = new LinkedBlockingDeque<>();
+    private final Set<PooledConnection> borrowedConnections = ConcurrentHashMap.newKeySet();
+    private final Semaphore borrowPermits;
+    private final AtomicInteger totalConnections = new AtomicInteger();
+    private final ScheduledExecutorService housekeeper;
+    private volatile boolean closed = false;
+
+    /**
+     * Creates a pool over the given unpooled DataSource. No connections are opened
+     * until {@link #warmUp()} is called or the first connection is borrowed.
+     * @param physicalSource DataSource used to open physical connections
+     * @param settings pool sizing, timeout and leak detection settings
+     */
+    public ConnectionPool(DataSource physicalSource, Settings settings) {
+        this.physicalSource = physicalSource;
+        this.settings = settings;
+        this.borrowPermits = new Semaphore(settings.maxSize(), true);
+        this.housekeeper = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "connection-pool-housekeeper");
+            thread.setDaemon(true);
+            return thread;
+        });
+        housekeeper.scheduleWithFixedDelay(this::houseKeep,
+                HOUSEKEEPING_PERIOD_MILLIS, HOUSEKEEPING_PERIOD_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Opens physical connections until the pool holds at least <code>minSize</code>.
+     * @throws SQLException if a connection cannot be opened.
+     */
+    public void warmUp() throws SQLException {
+        while (!closed && totalConnections.get() < settings.minSize()) {
+            idleConnections.offerLast(openPhysicalConnection());
+        }
+    }
+
+    /**
+     * Borrows a connection from the pool, waiting up to the borrow timeout for one to become free.
+     * <p>Use within a try-with-resources block; closing the returned connection gives it back to the pool.</p>
+     * <p>Inside a {@link Transaction} on this pool, the transaction's connection is returned instead.</p>
+     * @return a logical connection backed by a pooled physical connection
+     * @throws SQLException if the pool is closed, exhausted, or a new connection cannot be opened.
+     */
+    @Override
+    public Connection getConnection() throws SQLException {
+        Connection transactionConnection = Transaction.boundConnection(this);
+        if (transactionConnection != null)
+            return transactionConnection;
+        if (closed)
+            throw new SQLException("Connection pool is closed");
+        try {
+            if (!borrowPermits.tryAcquire(settings.borrowTimeoutMillis(), TimeUnit.MILLISECONDS))
+                throw new SQLTransientConnectionException("Timed out after " + settings.borrowTimeoutMillis()
+                        + "ms waiting for a pooled connection (max " + settings.maxSize() + ")");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLTransientConnectionException("Interrupted while waiting for a pooled connection", e);
+        }
+
+        try {
+            PooledConnection pooled = takeValidIdleConnection();
+            if (pooled == null)
+                pooled = openPhysicalConnection();
+
+            pooled.borrowedAt = System.currentTimeMillis();
+            pooled.borrowTrace = settings.leakDetectionThresholdMillis() > 0
+                    ? new Throwable("Connection borrowed here") : null;
+            pooled.leakReported = false;
+            borrowedConnections.add(pooled);
+            return pooled.newLogicalConnection();
+        } catch (SQLException | RuntimeException e) {
+            borrowPermits.release();
+            throw e;
+        }
+    }
+
+    /**
+     * @return number of physical connections currently open (idle and borrowed)
+     */
+    public int getTotalConnections() {
+        return totalConnections.get();
+    }
+
+    /**
+     * @return number of open connections waiting in the pool
+     */
+    public int getIdleConnections() {
+        return idleConnections.size();
+    }
+
+    /**
+     * @return number of connections currently borrowed by callers
+     */
+    public int getActiveConnections() {
+        return borrowedConnections.size();
+    }
+
+    /**
+     * @return the maximum number of connections this pool will open
+     */
+    public int getMaxSize() {
+        return settings.maxSize();
+    }
+
+    /**
+     * Closes all idle connections and stops housekeeping.
+     * Borrowed connections are closed as they are returned.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        housekeeper.shutdownNow();
+        PooledConnection pooled;
+        while ((pooled = idleConnections.pollFirst()) != null) {
+            closePhysicalConnection(pooled);
+        }
+    }
+
+    /**
+     * Polls the most recently returned idle connection, validating it first.
+     * Invalid connections are discarded.
+     * @return a live idle connection, or null if none remain
+     */
+    private PooledConnection takeValidIdleConnection() {
+        PooledConnection pooled;
+        while ((pooled = idleConnections.pollFirst()) != null) {
+            if (System.currentTimeMillis() - pooled.lastReturnedAt < VALIDATION_BYPASS_MILLIS)
+                return pooled;
+            try {
+                if (pooled.physical.isValid(settings.validationTimeoutSeconds()))
+                    return pooled;
+            } catch (SQLException e) {
+                // fall through and discard
+            }
+            closePhysicalConnection(pooled);
+        }
+        return null;
+    }
+
+    private PooledConnection openPhysicalConnection() throws SQLException {
+        totalConnections.incrementAndGet();
+        try {
+            return new PooledConnection(physicalSource.getConnection());
+        } catch (SQLException | RuntimeException e) {
+            totalConnections.decrementAndGet();
+            throw e;
+        }
+    }
+
+    private void closePhysicalConnection(PooledConnection pooled) {
+        totalConnections.decrementAndGet();
+        if (pooled.statementCache != null)
+            pooled.statementCache.closeAll();
+        try {
+            pooled.physical.close();
+        } catch (SQLException e) {
+            System.out.println("Error closing pooled connection: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Gives a physical connection back to the pool after resetting its session state.
+     * Broken connections are closed instead.
+     */
+    private void release(PooledConnection pooled) {
+        borrowedConnections.remove(pooled);
+        try {
+            if (closed || pooled.physical.isClosed()) {
+                closePhysicalConnection(pooled);
+                return;
+            }
+            pooled.resetSessionState();
+            pooled.lastReturnedAt = System.currentTimeMillis();
+            idleConnections.offerFirst(pooled);
+        } catch (SQLException e) {
+            closePhysicalConnection(pooled);
+        } finally {
+            borrowPermits.release();
+        }
+    }
+
+    /**
+     * Evicts idle connections past the idle timeout, refills to <code>minSize</code>
+     * and reports connections held past the leak detection threshold.
+     */
+    private void houseKeep() {
+        long now = System.currentTimeMillis();
+
+        Iterator<PooledConnection> idleIterator = idleConnections.descendingIterator();  // oldest first
+        while (idleIterator.hasNext() && totalConnections.get() > settings.minSize()) {
+            PooledConnection pooled = idleIterator.next();
+            if (now - pooled.lastReturnedAt > settings.idleTimeoutMillis() && idleConnections.remove(pooled))
+                closePhysicalConnection(pooled);
+        }
+
+        try {
+            warmUp();
+        } catch (SQLException e) {
+            System.out.println("Unable to refill connection pool: " + e.getMessage());
+        }
+
+        if (settings.leakDetectionThresholdMillis() > 0) {
+            for (PooledConnection pooled : borrowedConnections) {
+                long heldFor = now - pooled.borrowedAt;
+                if (!pooled.leakReported && heldFor > settings.leakDetectionThresholdMillis()) {
+                    pooled.leakReported = true;
+                    System.out.println("Possible connection leak: connection held for " + heldFor + "ms");
+                    if (pooled.borrowTrace != null)
+                        pooled.borrowTrace.printStackTrace(System.out);
+                }
+            }
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>Pooled connections all share the configured credentials, so this is not supported.</p>
+     */
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        throw new SQLFeatureNotSupportedException("Pooled connections use the configured credentials");
+    }
+
+    @Override
+    public PrintWriter getLogWriter() throws SQLException {
+        return physicalSource.getLogWriter();
+    }
+
+    @Override
+    public void setLogWriter(PrintWriter out) throws SQLException {
+        physicalSource.setLogWriter(out);
+    }
+
+    @Override
+    public void setLoginTimeout(int seconds) throws SQLException {
+        physicalSource.setLoginTimeout(seconds);
+    }
+
+    @Override
+    public int getLoginTimeout() throws SQLException {
+        return physicalSource.getLoginTimeout();
+    }
+
+    @Override
+    public Logger getParentLogger() throws SQLFeatureNotSupportedException {
+        return physicalSource.getParentLogger();
+    }
+
+    @Override
+    public <T> T unwrap(Class<T> iface) throws SQLException {
+        if (iface.isInstance(this))
+            return iface.cast(this);
+        return physicalSource.unwrap(iface);
+    }
+
+    @Override
+    public boolean isWrapperFor(Class<?> iface) throws SQLException {
+        return iface.isInstance(this) || physicalSource.isWrapperFor(iface);
+    }
+
+    /**
+     * A physical connection owned by the pool, plus its borrow bookkeeping.
+     */
+    private final class PooledConnection {
+        final Connection physical;
+        final int defaultIsolation;
+        final StatementCache statementCache;
+        volatile long borrowedAt;
+        volatile long lastReturnedAt = System.currentTimeMillis();
+        volatile Throwable borrowTrace;
+        volatile boolean leakReported;
+
+        PooledConnection(Connection physical) throws SQLException {
+            this.physical = physical;
+            this.defaultIsolation = physical.getTransactionIsolation();
+            this.statementCache = settings.statementCacheSize() > 0
+                    ? new StatementCache(physical, settings.statementCacheSize()) : null;
+        }
+
+        /**
+         * Rolls back any unfinished transaction and restores connection defaults
+         * so that the next borrower starts from a clean session.
+         */
+        void resetSessionState() throws SQLException {
+            if (!physical.getAutoCommit()) {
+                physical.rollback();
+                physical.setAutoCommit(true);
+            }
+            if (physical.isReadOnly())
+                physical.setReadOnly(false);
+            if (physical.getTransactionIsolation() != defaultIsolation)
+                physical.setTransactionIsolation(defaultIsolation);
+            physical.clearWarnings();
+        }
+
+        Connection newLogicalConnection() {
+            return (Connection) Proxy.newProxyInstance(
+                    Connection.class.getClassLoader(),
+                    new Class<?>[]{Connection.class},
+                    new LogicalConnectionHandler(this));
+        }
+    }
+
+    /**
+     * Forwards calls to the physical connection until the logical connection is closed,
+     * at which point the physical connection is returned to the pool.
+     * <p><code>prepareStatement(sql)</code> and <code>prepareStatement(sql, autoGeneratedKeys)</code>
+     * are served from the connection's {@link StatementCache}. Statements the caller forgot to
+     * close are closed along with the logical connection.</p>
+     */
+    private final class LogicalConnectionHandler implements InvocationHandler {
+        private final PooledConnection pooled;
+        private final AtomicBoolean logicallyClosed = new AtomicBoolean(false);
+        private final List<Statement> openStatements = new ArrayList<>();
+
+        LogicalConnectionHandler(PooledConnection pooled) {
+            this.pooled = pooled;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close":
+                    if (logicallyClosed.compareAndSet(false, true)) {
+                        closeOpenStatements();
+                        release(pooled);
+                    }
+                    return null;
+                case "isClosed":
+                    return logicallyClosed.get() || pooled.physical.isClosed();
+                case "unwrap":
+                    if (((Class<?>) args[0]).isInstance(proxy))
+                        return proxy;
+                    break;
+                case "isWrapperFor":
+                    if (((Class<?>) args[0]).isInstance(proxy))
+                        return true;
+                    break;
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "Pooled" + pooled.physical;
+                default:
+                    break;
+            }
+            if (logicallyClosed.get())
+                throw new SQLException("Connection has already been returned to the pool");
+
+            Object result;
+            if (isCacheablePrepare(method, args)) {
+                result = pooled.statementCache.prepare((Connection) proxy, (String) args[0],
+                        args.length == 2 ? (Integer) args[1] : null);
+            } else {
+                try {
+                    result = method.invoke(pooled.physical, args);
+                } catch (InvocationTargetException e) {
+                    throw e.getCause();
+                }
+            }
+            if (result instanceof Statement statement)
+                openStatements.add(statement);
+            return result;
+        }
+
+        private boolean isCacheablePrepare(Method method, Object[] args) {
+            if (pooled.statementCache == null || !method.getName().equals("prepareStatement"))
+                return false;
+            Class<?>[] parameterTypes = method.getParameterTypes();
+            return parameterTypes.length == 1
+                    || (parameterTypes.length == 2 && parameterTypes[1] == int.class);
+        }
+
+        private void closeOpenStatements() {
+            for (Statement statement : openStatements) {
+                try {
+                    statement.close();
+                } catch (SQLException e) {
+                    // connection is being returned anyway
+                }
+            }
+            openStatements.clear();
+        }
+    }
+}
@@ -25,16 +25,25 @@ import javax.sql.DataSource;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.sql.*;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.Properties;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Collectors;
 
 /**
  * Database Object (abstract) for executing SQL using Strings as input.
  * <p>Connects to the MySql database using JDBC driver and DriverManager for creating connections.</p>
- * <p>This is the generalized datasource object.</p>
+ * <p>This is the generalized datasource object. DAOs borrow connections from a {@link ConnectionPool}
+ * configured by the <code>db.pool.*</code> keys in DbConnection.properties. Read replicas listed in
+ * <code>db.replica.urls</code> get a pool each, and serve read-only queries (see {@link #getReplicaRouter()}).</p>
  * <p>ResultSet is stored as static variable, retrieve by calling getResultSet</p>
  * @author Joseph Curtis
- * @version 2022.06.21
+ * @version 2026.10.18
  */
 public abstract class DBUtil {
     // connection string parameters
@@ -43,32 +52,262 @@ public abstract class DBUtil {
     private static final String USERNAME = "db.username";
     private static final String PASSWORD = "db.password";
 
-    private static final MysqlDataSource dataSource = new MysqlDataSource();
+    private static final MysqlDataSource mysqlDataSource = new MysqlDataSource();
+    private static final ConnectionPool dataSource;
+    private static final ResilientDataSource resilientDataSource;
+    private static final String CONNECT_TIMEOUT = "db.connectTimeoutMillis";
+
+    private static final String REPLICA_URLS = "db.replica.urls";
+    private static final ReplicaRouter replicaRouter;
+
+    private static final String REFERENCE_MAX_AGE = "db.cache.referenceMaxAgeSeconds";
+    private static final ReferenceDataCache referenceData;
+
+    private static final String QUERY_MAX_ENTRIES = "db.cache.queryMaxEntries";
+    private static final String QUERY_MAX_ROWS = "db.cache.queryMaxRows";
+    private static final QueryResultCache queryResults;
+
+    private static final String SCAN_PARTITIONS = "db.scan.partitions";
+    private static final int scanPartitions;
+    private static final int asyncConcurrency;
+
+    private static final Map<QueryClass, Integer> queryTimeouts = new EnumMap<>(QueryClass.class);
+
+    private static final String FEED_MIN_INTERVAL = "db.changeFeed.minIntervalMillis";
+    private static final String FEED_MAX_INTERVAL = "db.changeFeed.maxIntervalMillis";
+    private static final String FEED_RETENTION = "db.changeFeed.retentionHours";
+    private static final ChangeFeed changeFeed;
+
+    private static volatile CompletableFuture<Void> schemaMigrated = CompletableFuture.completedFuture(null);
 
     private static Connection connection = null;
     private static Statement statement;
     private static ResultSet resultSet;
 
     static {
+        Properties properties = new Properties();
         try {
-            Properties properties = new Properties();
             properties.load(new FileInputStream("src/resources/DbConnection.properties"));
-
-            dataSource.setUrl(properties.getProperty(DB_URL));
-            dataSource.setUser(properties.getProperty(USERNAME));
-            dataSource.setPassword(properties.getProperty(PASSWORD));
-        } catch (IOException e) {
+            configure(mysqlDataSource, properties.getProperty(DB_URL), properties);
+        } catch (IOException | SQLException e) {
             e.printStackTrace();
         }
+        ConnectionPool.Settings poolSettings = ConnectionPool.Settings.fromProperties(properties);
+        dataSource = new ConnectionPool(mysqlDataSource, poolSettings);
+        Runtime.getRuntime().addShutdownHook(new Thread(dataSource::close, "connection-pool-shutdown"));
+        ResilientDataSource.Settings resilienceSettings = ResilientDataSource.Settings.fromProperties(properties);
+        resilientDataSource = new ResilientDataSource(dataSource, resilienceSettings);
+
+        List<ResilientDataSource> replicas = new ArrayList<>();
+        for (String url : properties.getProperty(REPLICA_URLS, "").split(",")) {
+            if (url.isBlank())
+                continue;
+            try {
+                MysqlDataSource replicaSource = new MysqlDataSource();
+                configure(replicaSource, url.strip(), properties);
+                ConnectionPool replicaPool = new ConnectionPool(replicaSource, poolSettings);
+                Runtime.getRuntime().addShutdownHook(new Thread(replicaPool::close, "replica-pool-shutdown"));
+                replicas.add(new ResilientDataSource(replicaPool, resilienceSettings));
+            } catch (SQLException e) {
+                System.out.println("Ignoring replica " + url.strip() + ": " + e.getMessage());
+            }
+        }
+        replicaRouter = new ReplicaRouter(resilientDataSource, replicas, ReplicaRouter.Settings.fromProperties(properties));
+
+        referenceData = new ReferenceDataCache(replicaRouter,
+                Duration.ofSeconds(Long.parseLong(properties.getProperty(REFERENCE_MAX_AGE, "300"))));
+        // leave a connection free for the UI thread while a scan runs
+        scanPartitions = Math.max(1, Math.min(poolSettings.maxSize() - 1,
+                Integer.parseInt(properties.getProperty(SCAN_PARTITIONS, "4"))));
+        asyncConcurrency = Math.max(1, poolSettings.maxSize() - 1);
+        for (QueryClass queryClass : QueryClass.values()) {
+            queryTimeouts.put(queryClass, Math.max(0, Integer.parseInt(properties.getProperty(
+                    queryClass.propertyKey, String.valueOf(queryClass.defaultSeconds)))));
+        }
+        queryResults = new QueryResultCache(
+                Integer.parseInt(properties.getProperty(QUERY_MAX_ENTRIES, "256")),
+                Integer.parseInt(properties.getProperty(QUERY_MAX_ROWS, "10000")));
+        changeFeed = new ChangeFeed(resilientDataSource,
+                Duration.ofMillis(Long.parseLong(properties.getProperty(FEED_MIN_INTERVAL, "1000"))),
+                Duration.ofMillis(Long.parseLong(properties.getProperty(FEED_MAX_INTERVAL, "30000"))),
+                Duration.ofHours(Long.parseLong(properties.getProperty(FEED_RETENTION, "24"))));
+        // writes by other clients drop the cached results that read the changed tables; the
+        // re-reads go to the primary, since a lagging replica may not have the changes yet
+        changeFeed.addCacheListener(changes -> {
+            replicaRouter.recordWrite();
+            queryResults.invalidateTables(changes.stream().map(ChangeFeed.Change::table).collect(Collectors.toSet()));
+        }, "appointments", "customers");
     }
 
     /**
-     * Get DataSource object (MysqlDataSource)
+     * Get DataSource object (pooled connections to the MySql database)
+     * <p>Closing a connection obtained from this DataSource returns it to the pool.
+     * Connection failures are retried, and fail fast while the database is down
+     * (see {@link ResilientDataSource}).</p>
      *
      * @return JDBC DataSource object used to get connections to database
      */
     public static DataSource getDataSource() {
-        return dataSource;
+        return resilientDataSource;
+    }
+
+    /**
+     * Get the DataSource for read-only queries, which may be served by a read replica
+     * (see {@link ReplicaRouter}). Writes, and reads that must see them, use {@link #getDataSource()}.
+     * @return the shared replica router
+     */
+    public static ReplicaRouter getReplicaRouter() {
+        return replicaRouter;
+    }
+
+    /**
+     * Get the retry and circuit breaker wrapper around the connection pool, to run reads with retries.
+     * @return the same object as {@link #getDataSource()}
+     */
+    public static ResilientDataSource getResilientDataSource() {
+        return resilientDataSource;
+    }
+
+    /**
+     * Get the in-memory copy of the reference tables (countries, divisions, contacts and users).
+     * <p>Call <code>invalidate()</code> on it after changing one of those tables.</p>
+     * @return the shared reference data cache
+     */
+    public static ReferenceDataCache getReferenceData() {
+        return referenceData;
+    }
+
+    /**
+     * Get the cache of DAO list query results, invalidated per table by DAO writes.
+     * <p>Call <code>invalidateTables</code> on it after changing a table outside the DAOs.</p>
+     * @return the shared query result cache
+     */
+    public static QueryResultCache getQueryResults() {
+        return queryResults;
+    }
+
+    /**
+     * Get the number of key ranges parallel full-table scans read at once, each on its own
+     * pooled connection; the limit is shared by all scans, not applied per scan.
+     * @return partitions read at once, at least 1 and less than the pool's maximum size
+     */
+    public static int getScanPartitions() {
+        return scanPartitions;
+    }
+
+    /**
+     * Get the number of DAO calls the asynchronous DAOs run at once, each on its own pooled connection.
+     * @return concurrent asynchronous calls, at least 1 and less than the pool's maximum size
+     */
+    public static int getAsyncConcurrency() {
+        return asyncConcurrency;
+    }
+
+    /**
+     * Get the timeout DAOs set on statements of a class, configured by the <code>db.timeout.*</code> keys.
+     * @param queryClass kind of statement
+     * @return seconds a statement of that class may run, 0 for no limit
+     */
+    public static int getQueryTimeout(QueryClass queryClass) {
+        return queryTimeouts.get(queryClass);
+    }
+
+    /**
+     * Get the feed of inserts, updates and deletes made to appointments and customers by any client.
+     * @return the shared change feed
+     */
+    public static ChangeFeed getChangeFeed() {
+        return changeFeed;
+    }
+
+    /**
+     * Runs the work in one database transaction.
+     * <p>Every DAO call made inside the work (on this thread) shares one pooled connection,
+     * so multi-step operations are atomic and cost a single connection checkout.
+     * The transaction commits when the work returns, and rolls back if it throws or calls
+     * {@link Transaction#setRollbackOnly()}. Called inside another transaction, the work joins it.</p>
+     * @param work the DAO calls to run together
+     * @param <R> the result type of the work
+     * @return the result of the work
+     * @throws SQLException if the work or the commit fails.
+     */
+    public static <R> R inTransaction(Transaction.Work<R> work) throws SQLException {
+        return Transaction.run(dataSource, resilientDataSource, Connection.TRANSACTION_NONE, work);
+    }
+
+    /**
+     * Runs the work in one database transaction with the given isolation level.
+     * @see #inTransaction(Transaction.Work)
+     * @param isolationLevel one of the <code>Connection.TRANSACTION_*</code> levels
+     *                       (ignored when joining an enclosing transaction)
+     * @param work the DAO calls to run together
+     * @param <R> the result type of the work
+     * @return the result of the work
+     * @throws SQLException if the work or the commit fails.
+     */
+    public static <R> R inTransaction(int isolationLevel, Transaction.Work<R> work) throws SQLException {
+        return Transaction.run(dataSource, resilientDataSource, isolationLevel, work);
+    }
+
+    /**
+     * Applies any pending schema migrations (see {@link SchemaMigrator}), then pre-opens
+     * the minimum number of pooled connections and loads the reference data on a background thread,
+     * so the first query (usually the login) does not pay for the connection handshake.
+     * <p>DAO queries read columns that migrations add, so a failed migration fails
+     * {@link #getSchemaMigration()}, and the main window is not opened.</p>
+     */
+    public static void warmUpConnectionPool() {
+        CompletableFuture<Void> migrated = new CompletableFuture<>();
+        schemaMigrated = migrated;
+        Thread warmUpThread = new Thread(() -> {
+            try {
+                SchemaMigrator.migrate(dataSource);
+                migrated.complete(null);
+            } catch (SQLException | RuntimeException e) {
+                System.out.println("Unable to migrate database schema: " + e.getMessage());
+                e.printStackTrace();
+                migrated.completeExceptionally(e);
+            }
+            try {
+                dataSource.warmUp();
+                referenceData.preload();    // so the edit dialogs open without querying
+            } catch (SQLException e) {
+                System.out.println("Unable to pre-warm connection pool: " + e.getMessage());
+            }
+        }, "connection-pool-warm-up");
+        warmUpThread.setDaemon(true);
+        warmUpThread.start();
+    }
+
+    /**
+     * The migration started by {@link #warmUpConnectionPool()}.
+     * <p>DAO queries read columns that migrations add, such as <code>Version</code>,
+     * so the main window only opens once this completes normally.</p>
+     * @return completes when the schema is up to date, or exceptionally with the error if migration failed
+     */
+    public static CompletableFuture<Void> getSchemaMigration() {
+        return schemaMigrated;
+    }
+
+    /**
+     * Points a MySql DataSource at a server, with the credentials and driver options every pool uses.
+     * @param mysql the DataSource to set up
+     * @param url JDBC URL of the primary or a replica
+     * @param properties the loaded <code>DbConnection.properties</code>
+     * @throws SQLException if an option cannot be set.
+     */
+    private static void configure(MysqlDataSource mysql, String url, Properties properties) throws SQLException {
+        mysql.setUrl(url);
+        mysql.setUser(properties.getProperty(USERNAME));
+        mysql.setPassword(properties.getProperty(PASSWORD));
+        // prepare on the server, so pooled statements keep their parsed plan between calls
+        mysql.setUseServerPrepStmts(true);
+        // send batched DAO writes as multi-row statements
+        mysql.setRewriteBatchedStatements(true);
+        // a positive fetch size reads through a server-side cursor (used by streaming queries)
+        mysql.setUseCursorFetch(true);
+        // an unreachable server fails the connect quickly instead of waiting for the TCP timeout
+        mysql.setConnectTimeout(Integer.parseInt(properties.getProperty(CONNECT_TIMEOUT, "5000")));
     }
 
     /**
@@ -176,53 +415,31 @@ public abstract class DBUtil {
 
     /**
      * Obtain a list of all countries in the database
+     * <p>Served from the reference data cache.</p>
      * @return list of all countries
      */
     public static ObservableList<Country> getAllCountries() {
-        ObservableList<Country> countriesList = FXCollections.observableArrayList();
-        try (Connection connection = dataSource.getConnection();
-             PreparedStatement preparedStatement = connection.prepareStatement(
-                     """
-                             SELECT Country_ID, Country
-                             FROM client_schedule.countries
-                             """)) {
-            ResultSet resultSet = preparedStatement.executeQuery();
-            while (resultSet.next()) {
-                countriesList.add(new Country(
-                        resultSet.getInt("Country_ID"),
-                        resultSet.getString("Country")
-                ));
-            }
+        try {
+            return FXCollections.observableArrayList(referenceData.getCountries());
         } catch (SQLException e) {
             System.out.println("SQL error: " + e.getMessage());
             e.printStackTrace();
         }
-        return countriesList;
+        return FXCollections.observableArrayList();
     }
 
     /**
      * Trade a first-level division id for the country that it is located in.
+     * <p>Served from the reference data cache.</p>
      * @param id the selected first-level division id
      * @return the country associated with the first-level-division
      */
     public static Optional<Country> getCountryByDivisionId(int id) {
-        try (Connection conn = dataSource.getConnection();
-             PreparedStatement statement = conn.prepareStatement(
-                     """
-                             SELECT countries.Country_ID, Country
-                             FROM client_schedule.countries
-                             INNER JOIN first_level_divisions
-                                  ON countries.Country_ID = first_level_divisions.Country_ID
-                             WHERE first_level_divisions.Division_ID = ?
-                             """)) {
-            statement.setInt(1, id);
-            ResultSet resultSet = statement.executeQuery();
-            if (resultSet.next()) {
+        try {
+            Optional<FirstLevelDivision> division = referenceData.getDivision(id);
+            if (division.isPresent()) {
                 // search successful, return associated country:
-                return Optional.of(new Country(
-                        resultSet.getInt("Country_ID"),
-                        resultSet.getString("Country")
-                ));
+                return referenceData.getCountry(division.get().countryId());
             } else {
                 System.out.println("Orphaned Division! No associated country!");
             }
@@ -235,31 +452,13 @@ public abstract class DBUtil {
 
     /**
      * get Fist Level Division Data Transfer Object with id
+     * <p>Served from the reference data cache.</p>
      * @param id Division id
      * @return FirstLevelDivision with selected id, empty container otherwise
      */
     public static Optional<FirstLevelDivision> getDivisionById(int id) {
-        try (Connection conn = dataSource.getConnection();
-             PreparedStatement statement = conn.prepareStatement(
-                     """
-                             SELECT Division_ID, Division, first_level_divisions.Country_ID, Country
-                             FROM client_schedule.first_level_divisions
-                             INNER JOIN countries
-                                  ON countries.Country_ID = first_level_divisions.Country_ID
-                             WHERE first_level_divisions.Division_ID = ?
-                             """)) {
-            statement.setInt(1, id);
-            ResultSet resultSet = statement.executeQuery();
-
-            if (resultSet.next()) {
-                // division found, return it:
-                return Optional.of(new FirstLevelDivision(
-                        resultSet.getInt("Division_ID"),
-                        resultSet.getString("Division"),
-                        resultSet.getInt("Country_ID"),
-                        resultSet.getString("Country")
-                ));
-            }
+        try {
+            return referenceData.getDivision(id);
         } catch (SQLException e) {
             System.out.println("SQL error: " + e.getMessage());
             e.printStackTrace();
@@ -269,34 +468,18 @@ public abstract class DBUtil {
 
     /**
      * Get a list of all divisions
+     * <p>Served from the reference data cache.</p>
      * @param country selected DTO with country data
      * @return all divisions per the specified country in selectedCountry
      */
     public static ObservableList<FirstLevelDivision> getDivisionsByCountry(Country country) {
-        ObservableList<FirstLevelDivision> divisionsList = FXCollections.observableArrayList();
-        try (Connection connection = dataSource.getConnection();
-             PreparedStatement preparedStatement = connection.prepareStatement(
-                     """
-                             SELECT countries.Country_ID, Country, Division_ID, Division
-                             FROM client_schedule.countries
-                             INNER JOIN first_level_divisions
-                                  ON countries.Country_ID = first_level_divisions.Country_ID
-                             WHERE countries.Country_ID = ?
-                             """)) {
-            preparedStatement.setInt(1, country.id());
-            ResultSet resultSet = preparedStatement.executeQuery();
-            while (resultSet.next()) {
-                divisionsList.add(new FirstLevelDivision(
-                        resultSet.getInt("Division_ID"),
-                        resultSet.getString("Division"),
-                        resultSet.getInt("Country_ID"),
-                        resultSet.getString("Country")));
-            }
+        try {
+            return FXCollections.observableArrayList(referenceData.getDivisionsByCountry(country.id()));
         } catch (SQLException e) {
             System.out.println("SQL error: " + e.getMessage());
             e.printStackTrace();
         }
-        return divisionsList;
+        return FXCollections.observableArrayList();
     }
 
 }
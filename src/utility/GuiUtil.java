@@ -36,13 +36,13 @@ import model.DataTransferObject;
 import model.User;
 
 import java.io.IOException;
-import java.sql.SQLException;
 import java.time.Duration;
 import java.time.LocalDateTime;
 import java.util.Locale;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.ResourceBundle;
+import java.util.concurrent.CompletionException;
 import java.util.function.BooleanSupplier;
 import java.util.stream.Collectors;
 
@@ -51,7 +51,7 @@ import java.util.stream.Collectors;
  * <p>Use for easier maintenance of code
  * instead of code duplication</p>
  * @author Joseph Curtis
- * @version 2022.06.30
+ * @version 2026.10.18
  */
 public final class GuiUtil {
     public static Locale locale = Locale.getDefault();
@@ -64,14 +64,15 @@ public final class GuiUtil {
      * @param fxmlFileName the .fxml file holding the next scene
      * @param windowTitle the new window title to set
      * @param modality mode for new window (NONE=unlocked, WINDOW_MODAL=locked to new window)
+     * @return the controller of the closed window, to read back any saved record
      * @throws IOException if .fxml filename cannot be found
      */
-    public static void newStage(ActionEvent event,
-                                DataTransferObject user,
-                                String fxmlFileName,
-                                String windowTitle,
-                                Modality modality) throws IOException {
-        newStage(event, null, user, fxmlFileName, windowTitle, modality,
+    public static AuthenticatedController newStage(ActionEvent event,
+                                                   DataTransferObject user,
+                                                   String fxmlFileName,
+                                                   String windowTitle,
+                                                   Modality modality) throws IOException {
+        return newStage(event, null, user, fxmlFileName, windowTitle, modality,
                 ResourceBundle.getBundle("Localization", Locale.getDefault()));
     }
 
@@ -83,16 +84,17 @@ public final class GuiUtil {
      * @param windowTitle the new window title to set
      * @param modality mode for new window (NONE=unlocked, WINDOW_MODAL=locked to new window)
      * @param resources the resource bundle (like language pack) that goes with the stage
+     * @return the controller of the closed window, to read back any saved record
      * @throws IOException if .fxml filename cannot be found
      */
-    public static void newStage(ActionEvent event,
-                                DataTransferObject user,
-                                String fxmlFileName,
-                                String windowTitle,
-                                Modality modality,
-                                ResourceBundle resources) throws IOException {
-
-        newStage(event, null, user, fxmlFileName, windowTitle, modality, resources);
+    public static AuthenticatedController newStage(ActionEvent event,
+                                                   DataTransferObject user,
+                                                   String fxmlFileName,
+                                                   String windowTitle,
+                                                   Modality modality,
+                                                   ResourceBundle resources) throws IOException {
+
+        return newStage(event, null, user, fxmlFileName, windowTitle, modality, resources);
     }
 
     /**
@@ -103,15 +105,16 @@ public final class GuiUtil {
      * @param fxmlFileName the .fxml file holding the next scene
      * @param windowTitle the new window title to set
      * @param modality mode for new window (NONE=unlocked, WINDOW_MODAL=locked to new window)
+     * @return the controller of the closed window, to read back any saved record
      * @throws IOException if .fxml filename cannot be found
      */
-    public static void newStage(ActionEvent event,
-                                DataTransferObject passedObject,
-                                DataTransferObject user,
-                                String fxmlFileName,
-                                String windowTitle,
-                                Modality modality) throws IOException {
-        newStage(event, passedObject, user, fxmlFileName, windowTitle, modality,
+    public static AuthenticatedController newStage(ActionEvent event,
+                                                   DataTransferObject passedObject,
+                                                   DataTransferObject user,
+                                                   String fxmlFileName,
+                                                   String windowTitle,
+                                                   Modality modality) throws IOException {
+        return newStage(event, passedObject, user, fxmlFileName, windowTitle, modality,
                 ResourceBundle.getBundle("Localization", Locale.getDefault()));
     }
 
@@ -124,15 +127,16 @@ public final class GuiUtil {
      * @param windowTitle the new window title to set
      * @param modality mode for new window (NONE=unlocked, WINDOW_MODAL=locked to new window)
      * @param resources the resource bundle (like language pack) that goes with the stage
+     * @return the controller of the closed window, to read back any saved record
      * @throws IOException if .fxml filename cannot be found
      */
-    public static void newStage(ActionEvent event,
-                                DataTransferObject passedObject,
-                                DataTransferObject user,
-                                String fxmlFileName,
-                                String windowTitle,
-                                Modality modality,
-                                ResourceBundle resources) throws IOException {
+    public static AuthenticatedController newStage(ActionEvent event,
+                                                   DataTransferObject passedObject,
+                                                   DataTransferObject user,
+                                                   String fxmlFileName,
+                                                   String windowTitle,
+                                                   Modality modality,
+                                                   ResourceBundle resources) throws IOException {
         FXMLLoader loader = new FXMLLoader();
         loader.setLocation(GuiUtil.class.getResource(fxmlFileName));
         loader.setResources(resources);
@@ -161,6 +165,7 @@ public final class GuiUtil {
         }
 
         stage.showAndWait();
+        return controller;
     }
 
 
@@ -183,6 +188,33 @@ public final class GuiUtil {
         stage.show();
     }
 
+    /**
+     * Subscribes a view to the database change feed while its window is showing.
+     * <p>Call from a controller's <code>initialize</code>: the subscription starts when the node's
+     * window is shown and ends when it is hidden, so closed windows stop receiving changes.</p>
+     * @param node any node of the view
+     * @param listener the view's handler (keep the same instance for the life of the view)
+     * @param tables table names to receive changes for
+     * @see ChangeFeed#subscribe(ChangeFeed.Listener, String...)
+     */
+    public static void subscribeWhileShowing(Node node, ChangeFeed.Listener listener, String... tables) {
+        ChangeFeed feed = DBUtil.getChangeFeed();
+        node.sceneProperty().addListener((sceneObservable, oldScene, scene) -> {
+            if (scene == null)
+                return;
+            scene.windowProperty().addListener((windowObservable, oldWindow, window) -> {
+                if (window == null)
+                    return;
+                window.showingProperty().addListener((showingObservable, wasShowing, showing) -> {
+                    if (showing)
+                        feed.subscribe(listener, tables);
+                    else
+                        feed.unsubscribe(listener);
+                });
+            });
+        });
+    }
+
     /**
      * Quits the application. Displays a confirmation dialog before exiting.
      * <p>Uses lambdas to process the data stream when calling Alert.showAndWait() method. Here we use a lambda to
@@ -341,61 +373,68 @@ public final class GuiUtil {
      * <p>If the user has no appointments within 15 minutes, dialog shows no upcoming appointments.</p>
      * <p>Here we convert the ObservableList collection of all users into a data stream for processing.
      * We use a lambda to filter the data stream for upcoming appointments.</p>
+     * <p>The appointments are read in the background; the dialogs show once they arrive.</p>
      */
     public static void showAppointmentAlert(User user) {
         AppointmentDaoImpl appointmentsDb = new AppointmentDaoImpl();
-        try {
-            LocalDateTime now = LocalDateTime.now();
-
-            ObservableList<Appointment> upcomingAppointments = appointmentsDb.getAllByUser(user)
-                    // Using a Stream to filter out only appointments that are upcoming
-                    .stream().filter((Appointment appointment) ->
-                            appointment.start().isAfter(now.minusMinutes(1))
-                                    && (appointment.start().isBefore(now.plusMinutes(15))
-                                    || appointment.start().isEqual(now.plusMinutes(15))))
-                    // turn stream back into collection
-                    .collect(Collectors.toCollection(FXCollections::observableArrayList));
-
-            if (upcomingAppointments.isEmpty()) {
-                // show "no upcoming appointments" dialog
-                Alert scheduleClearDialog = new Alert(Alert.AlertType.INFORMATION);
-                scheduleClearDialog.setHeaderText("No upcoming appointments");
-                scheduleClearDialog.setContentText("Greetings " + user.name()
-                        + "!\nYou have no appointments within the next 15 minutes.");
+        LocalDateTime now = LocalDateTime.now();
+        ViewLoader.run(() -> appointmentsDb.getAllByUser(user)
+                        // Using a Stream to filter out only appointments that are upcoming
+                        .stream().filter((Appointment appointment) ->
+                                appointment.start().isAfter(now.minusMinutes(1))
+                                        && (appointment.start().isBefore(now.plusMinutes(15))
+                                        || appointment.start().isEqual(now.plusMinutes(15))))
+                        // turn stream back into collection
+                        .collect(Collectors.toCollection(FXCollections::observableArrayList)),
+                upcomingAppointments -> showUpcomingAppointments(user, now, upcomingAppointments));
+    }
+
+    /**
+     * Displays a dialog for each upcoming appointment, or one saying there are none.
+     * @param user the logged-in user
+     * @param now when the appointments were looked up
+     * @param upcomingAppointments the user's appointments starting within 15 minutes
+     */
+    private static void showUpcomingAppointments(User user,
+                                                 LocalDateTime now,
+                                                 ObservableList<Appointment> upcomingAppointments) {
+        if (upcomingAppointments.isEmpty()) {
+            // show "no upcoming appointments" dialog
+            Alert scheduleClearDialog = new Alert(Alert.AlertType.INFORMATION);
+            scheduleClearDialog.setHeaderText("No upcoming appointments");
+            scheduleClearDialog.setContentText("Greetings " + user.name()
+                    + "!\nYou have no appointments within the next 15 minutes.");
+            // set css theme
+            scheduleClearDialog.getDialogPane().getStylesheets().add(
+                    GuiUtil.class.getResource("/view/modena-red.css").toExternalForm());
+            // add window icon:
+            Stage stage = (Stage) scheduleClearDialog.getDialogPane().getScene().getWindow();
+            stage.getIcons().add(new Image("/images/dialog-information.png"));
+
+            scheduleClearDialog.showAndWait();
+
+        } else {
+            for (Appointment appointment: upcomingAppointments) {
+                int minutesAway = (int) Duration.between(now, appointment.start()).toMinutes();
+                // Display upcoming appointment alert
+                Alert appointmentAlert = new Alert(Alert.AlertType.WARNING);
+                appointmentAlert.setHeaderText("You have an upcoming appointment in "
+                        + minutesAway + " minutes!");
+                appointmentAlert.setContentText("ID: " + appointment.id()
+                        + "\nTitle: " + appointment.title()
+                        + "\nDate: " + appointment.start().toLocalDate()
+                        + "\nStart Time: " + appointment.start().toLocalTime()
+                        + "\nCustomer: " + appointment.customerName()
+                        + "\nContact: " + appointment.contactName());
                 // set css theme
-                scheduleClearDialog.getDialogPane().getStylesheets().add(
+                appointmentAlert.getDialogPane().getStylesheets().add(
                         GuiUtil.class.getResource("/view/modena-red.css").toExternalForm());
                 // add window icon:
-                Stage stage = (Stage) scheduleClearDialog.getDialogPane().getScene().getWindow();
-                stage.getIcons().add(new Image("/images/dialog-information.png"));
-
-                scheduleClearDialog.showAndWait();
+                Stage stage = (Stage) appointmentAlert.getDialogPane().getScene().getWindow();
+                stage.getIcons().add(new Image("/images/dialog-warning.png"));
 
-            } else {
-                for (Appointment appointment: upcomingAppointments) {
-                    int minutesAway = (int) Duration.between(now, appointment.start()).toMinutes();
-                    // Display upcoming appointment alert
-                    Alert appointmentAlert = new Alert(Alert.AlertType.WARNING);
-                    appointmentAlert.setHeaderText("You have an upcoming appointment in "
-                            + minutesAway + " minutes!");
-                    appointmentAlert.setContentText("ID: " + appointment.id()
-                            + "\nTitle: " + appointment.title()
-                            + "\nDate: " + appointment.start().toLocalDate()
-                            + "\nStart Time: " + appointment.start().toLocalTime()
-                            + "\nCustomer: " + appointment.customerName()
-                            + "\nContact: " + appointment.contactName());
-                    // set css theme
-                    appointmentAlert.getDialogPane().getStylesheets().add(
-                            GuiUtil.class.getResource("/view/modena-red.css").toExternalForm());
-                    // add window icon:
-                    Stage stage = (Stage) appointmentAlert.getDialogPane().getScene().getWindow();
-                    stage.getIcons().add(new Image("/images/dialog-warning.png"));
-
-                    appointmentAlert.showAndWait();
-                }
+                appointmentAlert.showAndWait();
             }
-        } catch (SQLException e) {
-            e.printStackTrace();
         }
     }
 
@@ -418,6 +457,30 @@ public final class GuiUtil {
         dbError.showAndWait();
     }
 
+    /**
+     * Gives user an Error dialog box explaining that the database could not be upgraded,
+     * so the application cannot continue.
+     * @param failure the error that stopped the schema migration
+     */
+    public static void handleSchemaMigrationFailure(Throwable failure) {
+        Throwable cause = failure instanceof CompletionException && failure.getCause() != null
+                ? failure.getCause()
+                : failure;
+        Alert dbError = new Alert(Alert.AlertType.ERROR);
+        dbError.setHeaderText("Unable to Upgrade Database");
+        dbError.setContentText("The database schema could not be updated for this version of the application:\n"
+                + cause.getMessage()
+                + "\n\nThe application will now close. Please contact your database administrator.");
+        // set css theme
+        dbError.getDialogPane().getStylesheets().add(
+                GuiUtil.class.getResource("/view/modena-red.css").toExternalForm());
+        // add window icon:
+        Stage stage = (Stage) dbError.getDialogPane().getScene().getWindow();
+        stage.getIcons().add(new Image("/images/dialog-error.png"));
+
+        dbError.showAndWait();
+    }
+
     /**
      * Pops up dialog box warning user of black input fields.
      * @param exception indicator of a blank field that needs user input
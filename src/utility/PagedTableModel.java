@@ -0,0 +1,322 @@
+/*
+ Copyright 2022 Joseph Curtis Licensed under the Educational
+ Community License, Version 2.0 (the "License"); you may not use this file
+ except in compliance with the License. You may obtain a copy of the License at
+
+ http://opensource.org/licenses/ECL-2.0
+
+ Unless required by applicable law or agreed to in writing, software
+ distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ License for the specific language governing permissions and limitations under
+ the License.
+
+ ******************************************************************************/
+
+package utility;
+
+import DAO.PageableDAO;
+import javafx.collections.FXCollections;
+import javafx.collections.ObservableList;
+import javafx.geometry.Orientation;
+import javafx.scene.Node;
+import javafx.scene.control.IndexedCell;
+import javafx.scene.control.ScrollBar;
+import javafx.scene.control.TableView;
+import javafx.scene.control.skin.VirtualFlow;
+import model.DataTransferObject;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+
+/**
+ * Backs a TableView with a sliding window of pages read from a {@link PageableDAO}.
+ * <p>Only the pages around the visible rows are held in memory. When the user scrolls near
+ * either end of the window, the next (or previous) page is read and the page furthest
+ * from the visible rows is dropped, so memory stays at <code>maxPages * pageSize</code>
+ * rows however large the table is.</p>
+ * <p>The model only pages while its own list is shown: a controller may put another list
+ * in the table (such as a week view) and call {@link #show(FirstPages)} to return to paging.</p>
+ * <p>The window is kept in key order, since the first and last rows are the keys the previous
+ * and next pages are read from, so the table's columns do not sort while the pages are shown.
+ * Other lists the table shows sort as usual.</p>
+ * <p>Pages are read on a {@link ViewLoader} thread and added to the table once read, so
+ * scrolling never waits on the database. {@link #readFirstPages()} may be called from any
+ * thread; every other method must be called on the JavaFX application thread.</p>
+ * @param <T> the DTO record listed in the table
+ * @author Joseph Curtis
+ * @version 2026.10.18
+ */
+public final class PagedTableModel <T extends DataTransferObject> {
+
+    /** rows read per query */
+    public static final int DEFAULT_PAGE_SIZE = 100;
+    /** visible page plus one page of prefetch on either side */
+    public static final int DEFAULT_MAX_PAGES = 3;
+
+    /**
+     * The first page of a table and the page after it, read ahead of showing them.
+     * @param first the first page
+     * @param next the page after it (empty if the first page is the last)
+     * @param <T> the DTO record listed in the table
+     */
+    public record FirstPages<T>(List<T> first, List<T> next) {}
+
+    private final TableView<T> table;
+    private final PageableDAO<T> dao;
+    private final int pageSize;
+    private final int maxPages;
+    private final ObservableList<T> rows = FXCollections.observableArrayList();
+    private final Deque<Integer> pageSizes = new ArrayDeque<>();   // rows per loaded page, first to last
+    private boolean hasPrevious = false;
+    private boolean hasNext = false;
+    private final ViewLoader pageLoader = new ViewLoader();
+    private ScrollBar scrollBar;
+
+    /**
+     * @param table the table to fill
+     * @param dao reads the pages
+     */
+    public PagedTableModel(TableView<T> table, PageableDAO<T> dao) {
+        this(table, dao, DEFAULT_PAGE_SIZE, DEFAULT_MAX_PAGES);
+    }
+
+    /**
+     * @param table the table to fill
+     * @param dao reads the pages
+     * @param pageSize rows read per query
+     * @param maxPages most pages held at once (at least 2)
+     */
+    public PagedTableModel(TableView<T> table, PageableDAO<T> dao, int pageSize, int maxPages) {
+        if (pageSize < 1 || maxPages < 2)
+            throw new IllegalArgumentException("pageSize must be positive and maxPages at least 2");
+        this.table = table;
+        this.dao = dao;
+        this.pageSize = pageSize;
+        this.maxPages = maxPages;
+        table.skinProperty().addListener((observable, oldSkin, newSkin) -> attachScrollListener());
+        // refusing a sort makes the table restore its previous (empty) sort order
+        table.setSortPolicy(view -> isShowing()
+                ? view.getSortOrder().isEmpty()
+                : TableView.DEFAULT_SORT_POLICY.call(view));
+    }
+
+    /**
+     * Reads the first page and its prefetch page, so the first scroll does not wait on the database.
+     * <p>Safe to call from a background thread.</p>
+     * @return the pages to pass to {@link #show(FirstPages)}
+     * @throws Exception if a page cannot be read.
+     */
+    public FirstPages<T> readFirstPages() throws Exception {
+        List<T> first = dao.getPageAfter(null, pageSize);
+        List<T> next = first.size() == pageSize
+                ? dao.getPageAfter(first.get(first.size() - 1), pageSize)
+                : List.of();
+        return new FirstPages<>(first, next);
+    }
+
+    /**
+     * Shows the first pages in the table, dropping any loaded pages and any page still being read.
+     * @param pages pages read by {@link #readFirstPages()}
+     */
+    public void show(FirstPages<T> pages) {
+        pageLoader.cancel();
+        pageSizes.clear();
+        rows.setAll(pages.first);
+        pageSizes.addLast(pages.first.size());
+        hasPrevious = false;
+        hasNext = pages.first.size() == pageSize;
+        if (table.getItems() != rows) {
+            table.getSortOrder().clear();
+            table.setItems(rows);
+        }
+        if (hasNext)
+            appendPage(pages.next);
+        table.scrollTo(0);
+        attachScrollListener();
+    }
+
+    /**
+     * @return true if the table is showing this model's rows
+     */
+    public boolean isShowing() {
+        return table.getItems() == rows;
+    }
+
+    /**
+     * Shows a saved record: replaces its row if loaded, otherwise inserts it in key order
+     * if its key falls inside the loaded window. A record outside the window is read with
+     * its page when the user scrolls to it.
+     * @param saved the record as persisted
+     */
+    public void upsert(T saved) {
+        int index = indexOfId(saved.id());
+        if (index >= 0) {
+            rows.remove(index);
+            shrinkPageAt(index);
+        }
+
+        int position = 0;
+        while (position < rows.size() && dao.keyOrder().compare(rows.get(position), saved) < 0)
+            position++;
+        boolean beforeWindow = position == 0 && hasPrevious;
+        boolean afterWindow = position == rows.size() && hasNext;
+        if (rows.isEmpty() || !(beforeWindow || afterWindow)) {
+            rows.add(position, saved);
+            growPageAt(position);
+        }
+    }
+
+    /**
+     * Removes a deleted record's row, if loaded.
+     * @param id unique identifier of the deleted record
+     */
+    public void remove(int id) {
+        int index = indexOfId(id);
+        if (index >= 0) {
+            rows.remove(index);
+            shrinkPageAt(index);
+        }
+    }
+
+    /**
+     * Finds the table's vertical scroll bar once the table has a skin, and pages on scroll.
+     */
+    private void attachScrollListener() {
+        if (scrollBar != null || table.getSkin() == null)
+            return;
+        for (Node node : table.lookupAll(".scroll-bar")) {
+            if (node instanceof ScrollBar bar && bar.getOrientation() == Orientation.VERTICAL) {
+                scrollBar = bar;
+                scrollBar.valueProperty().addListener((observable, oldValue, newValue) -> onScroll());
+                return;
+            }
+        }
+    }
+
+    /**
+     * Starts reading a page when the visible rows come within half a page of either end of the window.
+     */
+    private void onScroll() {
+        if (pageLoader.isLoading() || !isShowing() || rows.isEmpty())
+            return;
+        VirtualFlow<?> flow = (VirtualFlow<?>) table.lookup(".virtual-flow");
+        if (flow == null)
+            return;
+        IndexedCell<?> firstCell = flow.getFirstVisibleCell();
+        IndexedCell<?> lastCell = flow.getLastVisibleCell();
+        if (firstCell == null || lastCell == null)
+            return;
+
+        int margin = pageSize / 2;
+        if (hasNext && lastCell.getIndex() >= rows.size() - margin) {
+            T last = rows.get(rows.size() - 1);
+            pageLoader.load(() -> dao.getPageAfter(last, pageSize), page -> {
+                int anchor = firstVisibleIndex();
+                int dropped = appendPage(page);
+                table.scrollTo(Math.max(0, anchor - dropped));      // keep the same rows on screen
+            });
+        } else if (hasPrevious && firstCell.getIndex() <= margin) {
+            T first = rows.get(0);
+            pageLoader.load(() -> dao.getPageBefore(first, pageSize), page -> {
+                int anchor = firstVisibleIndex();
+                int added = prependPage(page);
+                table.scrollTo(anchor + added);
+            });
+        }
+    }
+
+    /**
+     * @return index of the first row on screen, 0 if none
+     */
+    private int firstVisibleIndex() {
+        VirtualFlow<?> flow = (VirtualFlow<?>) table.lookup(".virtual-flow");
+        IndexedCell<?> firstCell = flow == null ? null : flow.getFirstVisibleCell();
+        return firstCell == null ? 0 : firstCell.getIndex();
+    }
+
+    /**
+     * Appends the page read after the last loaded row, dropping the first page if the window is full.
+     * @param page the rows read
+     * @return number of rows dropped from the start of the window
+     */
+    private int appendPage(List<T> page) {
+        hasNext = page.size() == pageSize;
+        if (page.isEmpty())
+            return 0;
+        rows.addAll(page);
+        pageSizes.addLast(page.size());
+
+        int dropped = 0;
+        if (pageSizes.size() > maxPages) {
+            dropped = pageSizes.removeFirst();
+            rows.remove(0, dropped);
+            hasPrevious = true;
+        }
+        return dropped;
+    }
+
+    /**
+     * Prepends the page read before the first loaded row, dropping the last page if the window is full.
+     * @param page the rows read
+     * @return number of rows added to the start of the window
+     */
+    private int prependPage(List<T> page) {
+        hasPrevious = page.size() == pageSize;
+        if (page.isEmpty())
+            return 0;
+        rows.addAll(0, page);
+        pageSizes.addFirst(page.size());
+
+        if (pageSizes.size() > maxPages) {
+            int dropped = pageSizes.removeLast();
+            rows.remove(rows.size() - dropped, rows.size());
+            hasNext = true;
+        }
+        return page.size();
+    }
+
+    /**
+     * @param index row index of a newly inserted row
+     */
+    private void growPageAt(int index) {
+        if (pageSizes.isEmpty()) {
+            pageSizes.addLast(1);
+            return;
+        }
+        resizePageAt(index, +1);
+    }
+
+    /**
+     * @param index former row index of a removed row
+     */
+    private void shrinkPageAt(int index) {
+        resizePageAt(index, -1);
+    }
+
+    private void resizePageAt(int index, int delta) {
+        Integer[] sizes = pageSizes.toArray(new Integer[0]);
+        int end = 0;
+        for (int i = 0; i < sizes.length; i++) {
+            end += sizes[i];
+            if (index < end || i == sizes.length - 1) {
+                sizes[i] += delta;
+                break;
+            }
+        }
+        pageSizes.clear();
+        for (Integer size : sizes) {
+            if (size > 0)
+                pageSizes.addLast(size);
+        }
+    }
+
+    private int indexOfId(int id) {
+        for (int i = 0; i < rows.size(); i++) {
+            if (rows.get(i).id() == id)
+                return i;
+        }
+        return -1;
+    }
+}
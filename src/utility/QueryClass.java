@@ -0,0 +1,52 @@
+/*
+ Copyright 2022 Joseph Curtis Licensed under the Educational
+ Community License, Version 2.0 (the "License"); you may not use this file
+ except in compliance with the License. You may obtain a copy of the License at
+
+ http://opensource.org/licenses/ECL-2.0
+
+ Unless required by applicable law or agreed to in writing, software
+ distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ License for the specific language governing permissions and limitations under
+ the License.
+
+ ******************************************************************************/
+
+
+package utility;
+
+/**
+ * Kinds of database statement, each with its own query timeout.
+ * <p>Timeouts are read from the <code>db.timeout.*</code> keys in DbConnection.properties
+ * (see {@link DBUtil#getQueryTimeout(QueryClass)}). A statement running longer than its
+ * class allows is cancelled by the driver and fails with a {@link java.sql.SQLTimeoutException},
+ * so a locked row or an overloaded server can no longer hang a read forever.</p>
+ * @author Joseph Curtis
+ * @version 2026.10.18
+ */
+public enum QueryClass {
+    /** reads by ID, counts and existence checks */
+    LOOKUP("db.timeout.lookupSeconds", 5),
+    /** filtered lists and pages */
+    LIST("db.timeout.listSeconds", 30),
+    /** whole-table reads, such as reports and exports */
+    SCAN("db.timeout.scanSeconds", 120),
+    /** inserts, updates, deletes and batches of them */
+    WRITE("db.timeout.writeSeconds", 30);
+
+    final String propertyKey;
+    final int defaultSeconds;
+
+    QueryClass(String propertyKey, int defaultSeconds) {
+        this.propertyKey = propertyKey;
+        this.defaultSeconds = defaultSeconds;
+    }
+
+    /**
+     * @return seconds a statement of this class may run, 0 for no limit
+     */
+    public int getTimeoutSeconds() {
+        return DBUtil.getQueryTimeout(this);
+    }
+}
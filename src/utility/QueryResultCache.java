@@ -0,0 +1,245 @@
+/*
+ Copyright 2022 Joseph Curtis Licensed under the Educational
+ Community License, Version 2.0 (the "License"); you may not use this file
+ except in compliance with the License. You may obtain a copy of the License at
+
+ http://opensource.org/licenses/ECL-2.0
+
+ Unless required by applicable law or agreed to in writing, software
+ distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ License for the specific language governing permissions and limitations under
+ the License.
+
+ ******************************************************************************/
+
+package utility;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Cache of query results, keyed by the query's SQL (with whitespace normalized) and its bound parameters.
+ * <p>Each result remembers the tables its SQL reads (every table named after FROM or JOIN).
+ * Invalidating a table drops only the results that read it, so a write to customers
+ * leaves cached contact or country lookups alone.</p>
+ * <p>Results are held as immutable lists; callers copy them before changing anything.
+ * The least recently used result is dropped once more than <code>maxEntries</code> are held,
+ * and results longer than <code>maxRowsPerEntry</code> are not cached at all.</p>
+ * <p>Separately, the latest result read for each query is {@link #remember remembered} even after
+ * invalidation, so a view can still show its last known rows while the database is unreachable
+ * (see {@link #getLastKnown}).</p>
+ * @author Joseph Curtis
+ * @version 2026.10.18
+ */
+public final class QueryResultCache {
+
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+    private static final Pattern TABLE = Pattern.compile(
+            "\\b(?:FROM|JOIN|INTO|UPDATE)\\s+(?:\\w+\\.)?(\\w+)", Pattern.CASE_INSENSITIVE);
+
+    /**
+     * Snapshot of the cache counters.
+     * @param hits queries answered from the cache
+     * @param misses queries that had to be sent to the database
+     * @param invalidations results dropped because a table they read was written
+     * @param size results currently cached
+     */
+    public record Stats(long hits, long misses, long invalidations, int size) {
+        /**
+         * @return fraction of queries answered from the cache, 0 if there were none yet
+         */
+        public double hitRatio() {
+            long total = hits + misses;
+            return total == 0 ? 0 : (double) hits / total;
+        }
+    }
+
+    /**
+     * Normalized SQL of a statement and the tables it reads, worked out once per SQL string.
+     */
+    private record ParsedSql(String sql, Set<String> tables) {}
+
+    private record Key(String sql, List<Object> parameters) {}
+
+    private record Entry(List<?> rows, Set<String> tables) {}
+
+    private final int maxEntries;
+    private final int maxRowsPerEntry;
+    private final Map<String, ParsedSql> parsedSql = new ConcurrentHashMap<>();
+    private final LinkedHashMap<Key, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private final Map<String, Set<Key>> dependents = new HashMap<>();
+    private final LinkedHashMap<Key, List<?>> lastKnown = new LinkedHashMap<>(16, 0.75f, true);
+    private long hits = 0;
+    private long misses = 0;
+    private long invalidations = 0;
+    private long writeStamp = 0;
+
+    /**
+     * @param maxEntries most results held at once; 0 disables the cache
+     * @param maxRowsPerEntry longest result that is cached
+     */
+    public QueryResultCache(int maxEntries, int maxRowsPerEntry) {
+        this.maxEntries = maxEntries;
+        this.maxRowsPerEntry = maxRowsPerEntry;
+    }
+
+    /**
+     * @param sql the query
+     * @param parameters the values bound to the query, in order
+     * @param <R> the row type
+     * @return the cached rows (immutable), or null if the result is not cached
+     */
+    @SuppressWarnings("unchecked")
+    public synchronized <R> List<R> get(String sql, List<?> parameters) {
+        Entry entry = entries.get(keyOf(sql, parameters));
+        if (entry == null) {
+            misses++;
+            return null;
+        }
+        hits++;
+        return (List<R>) entry.rows;
+    }
+
+    /**
+     * Caches a query result, unless a table was invalidated since the query began;
+     * the query may then have read data that is already old.
+     * @param sql the query
+     * @param parameters the values bound to the query, in order
+     * @param rows the rows read
+     * @param stamp value of {@link #getWriteStamp()} taken before the query
+     */
+    public synchronized void putIfUnchanged(String sql, List<?> parameters, List<?> rows, long stamp) {
+        if (stamp != writeStamp || maxEntries == 0 || rows.size() > maxRowsPerEntry)
+            return;
+        Key key = keyOf(sql, parameters);
+        Set<String> tables = parse(sql).tables;
+        if (entries.put(key, new Entry(List.copyOf(rows), tables)) == null) {
+            for (String table : tables) {
+                dependents.computeIfAbsent(table, name -> new HashSet<>()).add(key);
+            }
+        }
+        Iterator<Map.Entry<Key, Entry>> eldest = entries.entrySet().iterator();
+        while (entries.size() > maxEntries) {
+            Map.Entry<Key, Entry> dropped = eldest.next();
+            eldest.remove();
+            unlink(dropped.getKey(), dropped.getValue());
+        }
+    }
+
+    /**
+     * Keeps the rows as the query's last known result, replacing any older one.
+     * Invalidation leaves last known results alone; the least recently used is dropped
+     * once more than <code>maxEntries</code> are held.
+     * @param sql the query
+     * @param parameters the values bound to the query, in order
+     * @param rows the rows read from the database
+     */
+    public synchronized void remember(String sql, List<?> parameters, List<?> rows) {
+        if (maxEntries == 0 || rows.size() > maxRowsPerEntry)
+            return;
+        lastKnown.put(keyOf(sql, parameters), List.copyOf(rows));
+        Iterator<Key> eldest = lastKnown.keySet().iterator();
+        while (lastKnown.size() > maxEntries) {
+            eldest.next();
+            eldest.remove();
+        }
+    }
+
+    /**
+     * @param sql the query
+     * @param parameters the values bound to the query, in order
+     * @param <R> the row type
+     * @return the rows the query last read (immutable, possibly out of date), or null if none are kept
+     */
+    @SuppressWarnings("unchecked")
+    public synchronized <R> List<R> getLastKnown(String sql, List<?> parameters) {
+        return (List<R>) lastKnown.get(keyOf(sql, parameters));
+    }
+
+    /**
+     * @return a counter that changes on every invalidation, for {@link #putIfUnchanged}
+     */
+    public synchronized long getWriteStamp() {
+        return writeStamp;
+    }
+
+    /**
+     * Drops every result that reads any of the tables.
+     * @param tables table names, without schema
+     */
+    public synchronized void invalidateTables(Collection<String> tables) {
+        writeStamp++;
+        for (String table : tables) {
+            Set<Key> keys = dependents.remove(table.toLowerCase(Locale.ROOT));
+            if (keys == null)
+                continue;
+            for (Key key : keys) {
+                Entry entry = entries.remove(key);
+                if (entry != null) {
+                    unlink(key, entry);
+                    invalidations++;
+                }
+            }
+        }
+    }
+
+    /**
+     * Drops every result.
+     */
+    public synchronized void invalidateAll() {
+        writeStamp++;
+        invalidations += entries.size();
+        entries.clear();
+        dependents.clear();
+    }
+
+    /**
+     * @return current hit/miss/invalidation counters and size
+     */
+    public synchronized Stats getStats() {
+        return new Stats(hits, misses, invalidations, entries.size());
+    }
+
+    /**
+     * @param sql any SQL statement
+     * @return the tables it reads or writes, lower case and without schema
+     */
+    public Set<String> tablesOf(String sql) {
+        return parse(sql).tables;
+    }
+
+    private Key keyOf(String sql, List<?> parameters) {
+        return new Key(parse(sql).sql, Arrays.asList(parameters.toArray()));
+    }
+
+    private ParsedSql parse(String sql) {
+        return parsedSql.computeIfAbsent(sql, raw -> {
+            Set<String> tables = new HashSet<>();
+            Matcher matcher = TABLE.matcher(raw);
+            while (matcher.find()) {
+                tables.add(matcher.group(1).toLowerCase(Locale.ROOT));
+            }
+            return new ParsedSql(WHITESPACE.matcher(raw.strip()).replaceAll(" "), Set.copyOf(tables));
+        });
+    }
+
+    private void unlink(Key key, Entry entry) {
+        for (String table : entry.tables) {
+            Set<Key> keys = dependents.get(table);
+            if (keys != null && keys.remove(key) && keys.isEmpty())
+                dependents.remove(table);
+        }
+    }
+}
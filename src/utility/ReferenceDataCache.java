@@ -0,0 +1,276 @@
+/*
+ Copyright 2022 Joseph Curtis Licensed under the Educational
+ Community License, Version 2.0 (the "License"); you may not use this file
+ except in compliance with the License. You may obtain a copy of the License at
+
+ http://opensource.org/licenses/ECL-2.0
+
+ Unless required by applicable law or agreed to in writing, software
+ distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ License for the specific language governing permissions and limitations under
+ the License.
+
+ ******************************************************************************/
+
+package utility;
+
+import DAO.RecordMapper;
+import model.Contact;
+import model.Country;
+import model.FirstLevelDivision;
+import model.User;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * In-memory copy of the reference tables: countries, first-level divisions, contacts and users.
+ * <p>All four tables are read together, once, into immutable lists and ID-indexed maps;
+ * lookups after that never touch the database. When the copy is older than its maximum age,
+ * the next lookup still answers from it and a background thread reloads the tables
+ * (stale-while-revalidate), so callers never wait on a refresh.</p>
+ * <p>Call {@link #invalidate()} after changing one of these tables: the next lookup then
+ * reloads before answering.</p>
+ * @author Joseph Curtis
+ * @version 2026.10.18
+ */
+public final class ReferenceDataCache {
+
+    private static final RecordMapper<Country> countryMapper =
+            RecordMapper.of(Country.class, "Country_ID", "Country");
+    private static final RecordMapper<FirstLevelDivision> divisionMapper =
+            RecordMapper.of(FirstLevelDivision.class, "Division_ID", "Division", "Country_ID", "Country");
+    private static final RecordMapper<Contact> contactMapper =
+            RecordMapper.of(Contact.class, "Contact_ID", "Contact_Name", "Email");
+    private static final RecordMapper<User> userMapper =
+            RecordMapper.of(User.class, "User_ID", "User_Name");
+
+    /**
+     * One consistent load of all reference tables.
+     */
+    private record Snapshot(List<Country> countries,
+                            Map<Integer, Country> countriesById,
+                            Map<Integer, FirstLevelDivision> divisionsById,
+                            Map<Integer, List<FirstLevelDivision>> divisionsByCountryId,
+                            List<Contact> contacts,
+                            Map<Integer, Contact> contactsById,
+                            List<User> users,
+                            Map<Integer, User> usersById,
+                            long loadedAtNanos) {}
+
+    private final DataSource dataSource;
+    private final long maxAgeNanos;
+    private final AtomicReference<Snapshot> snapshot = new AtomicReference<>();
+    private final AtomicBoolean refreshing = new AtomicBoolean(false);
+    private final ExecutorService refresher = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "reference-data-refresh");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * @param dataSource database to read the reference tables from
+     * @param maxAge how old the copy may get before a lookup triggers a background reload
+     */
+    public ReferenceDataCache(DataSource dataSource, Duration maxAge) {
+        this.dataSource = dataSource;
+        this.maxAgeNanos = maxAge.toNanos();
+    }
+
+    /**
+     * @return all countries
+     * @throws SQLException if the tables are not loaded yet and cannot be read.
+     */
+    public List<Country> getCountries() throws SQLException {
+        return current().countries;
+    }
+
+    /**
+     * @param id unique identifier of the country
+     * @return the country, if one with that ID exists
+     * @throws SQLException if the tables are not loaded yet and cannot be read.
+     */
+    public Optional<Country> getCountry(int id) throws SQLException {
+        return Optional.ofNullable(current().countriesById.get(id));
+    }
+
+    /**
+     * @param id unique identifier of the first-level division
+     * @return the division, if one with that ID exists
+     * @throws SQLException if the tables are not loaded yet and cannot be read.
+     */
+    public Optional<FirstLevelDivision> getDivision(int id) throws SQLException {
+        return Optional.ofNullable(current().divisionsById.get(id));
+    }
+
+    /**
+     * @param countryId unique identifier of the country
+     * @return the country's first-level divisions (empty if none)
+     * @throws SQLException if the tables are not loaded yet and cannot be read.
+     */
+    public List<FirstLevelDivision> getDivisionsByCountry(int countryId) throws SQLException {
+        return current().divisionsByCountryId.getOrDefault(countryId, List.of());
+    }
+
+    /**
+     * @return all contacts
+     * @throws SQLException if the tables are not loaded yet and cannot be read.
+     */
+    public List<Contact> getContacts() throws SQLException {
+        return current().contacts;
+    }
+
+    /**
+     * @param id unique identifier of the contact
+     * @return the contact, if one with that ID exists
+     * @throws SQLException if the tables are not loaded yet and cannot be read.
+     */
+    public Optional<Contact> getContact(int id) throws SQLException {
+        return Optional.ofNullable(current().contactsById.get(id));
+    }
+
+    /**
+     * @return all users
+     * @throws SQLException if the tables are not loaded yet and cannot be read.
+     */
+    public List<User> getUsers() throws SQLException {
+        return current().users;
+    }
+
+    /**
+     * @param id unique identifier of the user
+     * @return the user, if one with that ID exists
+     * @throws SQLException if the tables are not loaded yet and cannot be read.
+     */
+    public Optional<User> getUser(int id) throws SQLException {
+        return Optional.ofNullable(current().usersById.get(id));
+    }
+
+    /**
+     * Loads the tables now if they are not loaded yet.
+     * @throws SQLException if the tables cannot be read.
+     */
+    public void preload() throws SQLException {
+        current();
+    }
+
+    /**
+     * Drops the cached copy; the next lookup reads the tables again before answering.
+     * A background reload already running is discarded.
+     */
+    public void invalidate() {
+        snapshot.set(null);
+    }
+
+    private Snapshot current() throws SQLException {
+        Snapshot current = snapshot.get();
+        if (current == null) {
+            synchronized (this) {
+                current = snapshot.get();
+                if (current == null) {
+                    current = load();
+                    snapshot.set(current);
+                }
+            }
+        } else if (System.nanoTime() - current.loadedAtNanos > maxAgeNanos) {
+            refreshInBackground(current);
+        }
+        return current;
+    }
+
+    /**
+     * Reloads on the refresh thread, keeping the stale copy in use until the new one is ready.
+     * @param stale the copy being replaced; the reload is dropped if it was invalidated meanwhile
+     */
+    private void refreshInBackground(Snapshot stale) {
+        if (!refreshing.compareAndSet(false, true))
+            return;     // a reload is already running
+        refresher.execute(() -> {
+            try {
+                snapshot.compareAndSet(stale, load());
+            } catch (SQLException e) {
+                System.out.println("Unable to refresh reference data: " + e.getMessage());
+            } finally {
+                refreshing.set(false);
+            }
+        });
+    }
+
+    private Snapshot load() throws SQLException {
+        try (Connection conn = dataSource.getConnection()) {
+            List<Country> countries = readAll(conn, countryMapper,
+                    """
+                            SELECT Country_ID, Country
+                            FROM client_schedule.countries
+                            ORDER BY Country_ID
+                            """);
+            List<FirstLevelDivision> divisions = readAll(conn, divisionMapper,
+                    """
+                            SELECT Division_ID, Division, first_level_divisions.Country_ID, Country
+                            FROM client_schedule.first_level_divisions
+                            INNER JOIN countries
+                                 ON countries.Country_ID = first_level_divisions.Country_ID
+                            ORDER BY Division_ID
+                            """);
+            List<Contact> contacts = readAll(conn, contactMapper,
+                    """
+                            SELECT Contact_ID, Contact_Name, Email
+                            FROM client_schedule.contacts
+                            ORDER BY Contact_ID
+                            """);
+            List<User> users = readAll(conn, userMapper,
+                    """
+                            SELECT User_ID, User_Name
+                            FROM client_schedule.users
+                            ORDER BY User_ID
+                            """);
+
+            Map<Integer, List<FirstLevelDivision>> divisionsByCountryId = divisions.stream()
+                    .collect(Collectors.groupingBy(FirstLevelDivision::countryId, Collectors.toUnmodifiableList()));
+
+            return new Snapshot(countries,
+                    indexById(countries, Country::id),
+                    indexById(divisions, FirstLevelDivision::id),
+                    Map.copyOf(divisionsByCountryId),
+                    contacts,
+                    indexById(contacts, Contact::id),
+                    users,
+                    indexById(users, User::id),
+                    System.nanoTime());
+        }
+    }
+
+    private static <T extends Record> List<T> readAll(Connection conn,
+                                                      RecordMapper<T> mapper,
+                                                      String sql) throws SQLException {
+        List<T> records = new ArrayList<>();
+        try (PreparedStatement statement = conn.prepareStatement(sql)) {
+            statement.setQueryTimeout(QueryClass.LIST.getTimeoutSeconds());
+            ResultSet resultSet = CancellationToken.execute(statement, statement::executeQuery);
+            RecordMapper.RowMapper<T> rows = mapper.forResultSet(resultSet);
+            while (resultSet.next()) {
+                records.add(rows.map(resultSet));
+            }
+        }
+        return List.copyOf(records);
+    }
+
+    private static <T> Map<Integer, T> indexById(List<T> records, Function<T, Integer> id) {
+        return records.stream().collect(Collectors.toUnmodifiableMap(id, record -> record));
+    }
+}
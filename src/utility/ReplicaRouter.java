@@ -0,0 +1,245 @@
+/*
+ Copyright 2022 Joseph Curtis Licensed under the Educational
+ Community License, Version 2.0 (the "License"); you may not use this file
+ except in compliance with the License. You may obtain a copy of the License at
+
+ http://opensource.org/licenses/ECL-2.0
+
+ Unless required by applicable law or agreed to in writing, software
+ distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ License for the specific language governing permissions and limitations under
+ the License.
+
+ ******************************************************************************/
+
+
+package utility;
+
+import javax.sql.DataSource;
+import java.io.PrintWriter;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Logger;
+
+/**
+ * Sends read-only queries to read replicas, and everything else to the primary database.
+ * <p>{@link #getConnection()} on the router hands out a replica connection, taking the replicas in
+ * turn. A replica is skipped while its circuit breaker is open or its replication lag is over
+ * <code>maxLagMillis</code>; when no replica qualifies, the primary serves the read.</p>
+ * <p>Reads also go to the primary inside a {@link Transaction}, and for
+ * <code>readYourWritesMillis</code> after this client wrote anything (see {@link #recordWrite()}),
+ * so a view never misses a change the user has just saved.</p>
+ * <p>Lag is probed in the background from the <code>change_log</code> table the primary's
+ * triggers fill (see <code>resources/db/migration/V4__change_log.sql</code>): a replica's lag is
+ * how long the oldest change it has not received yet has been waiting on the primary.</p>
+ * <p>With no replicas configured, every read goes to the primary.</p>
+ * @author Joseph Curtis
+ * @version 2026.10.18
+ */
+public final class ReplicaRouter implements DataSource {
+
+    private static final long UNKNOWN_LAG = Long.MAX_VALUE;
+
+    /**
+     * Routing configuration.
+     * @param maxLagMillis most replication lag a replica may have and still serve reads
+     * @param probeIntervalMillis how often replica lag is measured
+     * @param readYourWritesMillis how long reads stay on the primary after this client writes
+     */
+    public record Settings(long maxLagMillis, long probeIntervalMillis, long readYourWritesMillis) {
+
+        /**
+         * Reads routing settings from connection properties, falling back to defaults.
+         * @param properties the loaded <code>DbConnection.properties</code>
+         * @return settings for a new router
+         */
+        public static Settings fromProperties(Properties properties) {
+            return new Settings(
+                    Long.parseLong(properties.getProperty("db.replica.maxLagMillis", "5000")),
+                    Long.parseLong(properties.getProperty("db.replica.probeIntervalMillis", "2000")),
+                    Long.parseLong(properties.getProperty("db.replica.readYourWritesMillis", "5000")));
+        }
+    }
+
+    /**
+     * A replica and its last measured lag.
+     */
+    private static final class Replica {
+        final ResilientDataSource dataSource;
+        volatile long lagMillis = UNKNOWN_LAG;      // until the first probe
+        boolean failing = false;                    // owned by the probe thread
+
+        Replica(ResilientDataSource dataSource) {
+            this.dataSource = dataSource;
+        }
+    }
+
+    private final ResilientDataSource primary;
+    private final List<Replica> replicas = new ArrayList<>();
+    private final Settings settings;
+    private final AtomicInteger nextReplica = new AtomicInteger();
+    private volatile long lastWriteNanos;
+
+    /**
+     * Starts probing the replicas' lag, if there are any.
+     * @param primary the database all writes go to
+     * @param replicas read replicas of the primary (may be empty)
+     * @param settings lag limit, probe interval and read-your-writes period
+     */
+    public ReplicaRouter(ResilientDataSource primary, List<ResilientDataSource> replicas, Settings settings) {
+        this.primary = primary;
+        this.settings = settings;
+        this.lastWriteNanos = System.nanoTime() - TimeUnit.MILLISECONDS.toNanos(settings.readYourWritesMillis());
+        for (ResilientDataSource replica : replicas) {
+            this.replicas.add(new Replica(replica));
+        }
+        if (this.replicas.isEmpty())
+            return;
+        ScheduledExecutorService prober = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "replica-lag-probe");
+            thread.setDaemon(true);
+            return thread;
+        });
+        prober.scheduleWithFixedDelay(this::probeLag, 0, settings.probeIntervalMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Borrows a connection for a read-only query: from the next replica that is reachable and
+     * caught up, or from the primary.
+     * <p>A replica that cannot be reached is passed over for the next one in the same call, and
+     * the primary is tried last, so one replica going down does not fail the read.</p>
+     * @return a pooled connection; closing it returns it to its pool
+     * @throws SQLException if neither a replica nor the primary can be reached.
+     */
+    @Override
+    public Connection getConnection() throws SQLException {
+        if (replicas.isEmpty() || Transaction.isActive()
+                || System.nanoTime() - lastWriteNanos < TimeUnit.MILLISECONDS.toNanos(settings.readYourWritesMillis()))
+            return primary.getConnection();
+        int start = Math.floorMod(nextReplica.getAndIncrement(), replicas.size());
+        for (int i = 0; i < replicas.size(); i++) {
+            Replica replica = replicas.get((start + i) % replicas.size());
+            if (replica.lagMillis > settings.maxLagMillis()
+                    || replica.dataSource.getState() == CircuitBreaker.State.OPEN)
+                continue;
+            try {
+                return replica.dataSource.getConnection();
+            } catch (SQLException e) {
+                if (!ResilientDataSource.isUnavailable(e))
+                    throw e;
+                System.out.println("Replica unavailable, reading elsewhere: " + e.getMessage());
+            }
+        }
+        return primary.getConnection();     // no replica is reachable and caught up
+    }
+
+    /**
+     * Notes that this client has written to the primary, or seen another client's change there,
+     * so reads stay on the primary for a while.
+     */
+    public void recordWrite() {
+        lastWriteNanos = System.nanoTime();
+    }
+
+    /**
+     * @return the last measured lag of each replica in milliseconds, in configuration order
+     * (<code>Long.MAX_VALUE</code> if unreachable or not measured yet)
+     */
+    public List<Long> getReplicaLagMillis() {
+        return replicas.stream().map(replica -> replica.lagMillis).toList();
+    }
+
+    private void probeLag() {
+        for (Replica replica : replicas) {
+            try {
+                long replicaLastId;
+                try (Connection conn = replica.dataSource.getConnection();
+                     PreparedStatement statement = conn.prepareStatement(
+                             "SELECT COALESCE(MAX(Change_ID), 0) FROM client_schedule.change_log")) {
+                    ResultSet resultSet = statement.executeQuery();
+                    resultSet.next();
+                    replicaLastId = resultSet.getLong(1);
+                }
+                try (Connection conn = primary.getConnection();
+                     PreparedStatement statement = conn.prepareStatement(
+                             """
+                                     SELECT MIN(Changed_At), CURRENT_TIMESTAMP
+                                     FROM client_schedule.change_log
+                                     WHERE Change_ID > ?
+                                     """)) {
+                    statement.setLong(1, replicaLastId);
+                    ResultSet resultSet = statement.executeQuery();
+                    resultSet.next();
+                    Timestamp oldestMissing = resultSet.getTimestamp(1);
+                    replica.lagMillis = oldestMissing == null
+                            ? 0
+                            : Math.max(0, resultSet.getTimestamp(2).getTime() - oldestMissing.getTime());
+                }
+                replica.failing = false;
+            } catch (SQLException | RuntimeException e) {
+                if (!replica.failing)
+                    System.out.println("Unable to measure replica lag: " + e.getMessage());
+                replica.failing = true;
+                replica.lagMillis = UNKNOWN_LAG;
+            }
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>Pooled connections all share the configured credentials, so this is not supported.</p>
+     */
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        throw new SQLFeatureNotSupportedException("Pooled connections use the configured credentials");
+    }
+
+    @Override
+    public PrintWriter getLogWriter() throws SQLException {
+        return primary.getLogWriter();
+    }
+
+    @Override
+    public void setLogWriter(PrintWriter out) throws SQLException {
+        primary.setLogWriter(out);
+    }
+
+    @Override
+    public void setLoginTimeout(int seconds) throws SQLException {
+        primary.setLoginTimeout(seconds);
+    }
+
+    @Override
+    public int getLoginTimeout() throws SQLException {
+        return primary.getLoginTimeout();
+    }
+
+    @Override
+    public Logger getParentLogger() throws SQLFeatureNotSupportedException {
+        return primary.getParentLogger();
+    }
+
+    @Override
+    public <T> T unwrap(Class<T> iface) throws SQLException {
+        if (iface.isInstance(this))
+            return iface.cast(this);
+        return primary.unwrap(iface);
+    }
+
+    @Override
+    public boolean isWrapperFor(Class<?> iface) throws SQLException {
+        return iface.isInstance(this) || primary.isWrapperFor(iface);
+    }
+}
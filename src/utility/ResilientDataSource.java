@@ -0,0 +1,263 @@
+/*
+ Copyright 2022 Joseph Curtis Licensed under the Educational
+ Community License, Version 2.0 (the "License"); you may not use this file
+ except in compliance with the License. You may obtain a copy of the License at
+
+ http://opensource.org/licenses/ECL-2.0
+
+ Unless required by applicable law or agreed to in writing, software
+ distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ License for the specific language governing permissions and limitations under
+ the License.
+
+ ******************************************************************************/
+
+
+package utility;
+
+import javax.sql.DataSource;
+import java.io.PrintWriter;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.sql.SQLTimeoutException;
+import java.sql.SQLTransientConnectionException;
+import java.util.Properties;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+/**
+ * Wraps the {@link ConnectionPool} behind {@link DBUtil#getDataSource()} so that database outages
+ * are retried when that is safe, and fail fast while they last.
+ * <p><b>Connections</b>: a connection that cannot be opened is retried up to
+ * <code>maxAttempts</code> times, with exponential backoff and jitter. Nothing has been sent
+ * to the server yet, so this is safe for every caller, writes included. Each outcome is
+ * reported to a {@link CircuitBreaker}: while it is open, <code>getConnection()</code> fails at
+ * once with a {@link DatabaseUnavailableException}.</p>
+ * <p><b>Statements</b>: only reads are retried after a statement was sent (see {@link #read}),
+ * since they can be repeated without side effects. Writes are never sent twice.
+ * Statements inside a {@link Transaction} are never retried on their own; the transaction's
+ * connection is borrowed (and retried) like any other.</p>
+ * @author Joseph Curtis
+ * @version 2026.10.18
+ */
+public final class ResilientDataSource implements DataSource {
+
+    /** SQLState of deadlocks and serialization failures, which a repeated read usually avoids. */
+    private static final String SERIALIZATION_FAILURE = "40001";
+
+    /**
+     * Retry and circuit breaker configuration.
+     * @param maxAttempts tries per connection or read, including the first
+     * @param baseDelayMillis wait before the first retry; doubled for each retry after it
+     * @param maxDelayMillis longest wait between tries
+     * @param failureThreshold connection failures in a row that open the circuit breaker
+     * @param openMillis how long the breaker fails calls before letting a trial call through
+     */
+    public record Settings(int maxAttempts,
+                           long baseDelayMillis,
+                           long maxDelayMillis,
+                           int failureThreshold,
+                           long openMillis) {
+
+        /**
+         * Reads retry and breaker settings from connection properties, falling back to defaults.
+         * @param properties the loaded <code>DbConnection.properties</code>
+         * @return settings for a new resilient data source
+         */
+        public static Settings fromProperties(Properties properties) {
+            return new Settings(
+                    Math.max(1, Integer.parseInt(properties.getProperty("db.retry.maxAttempts", "3"))),
+                    Long.parseLong(properties.getProperty("db.retry.baseDelayMillis", "100")),
+                    Long.parseLong(properties.getProperty("db.retry.maxDelayMillis", "2000")),
+                    Integer.parseInt(properties.getProperty("db.breaker.failureThreshold", "5")),
+                    Long.parseLong(properties.getProperty("db.breaker.openMillis", "10000")));
+        }
+    }
+
+    /**
+     * A read to run with retries.
+     * @param <R> the result type of the read
+     */
+    @FunctionalInterface
+    public interface Read<R> {
+        /**
+         * @return the result of the read
+         * @throws SQLException if the read fails.
+         */
+        R read() throws SQLException;
+    }
+
+    /**
+     * Thrown instead of connecting while the database is unreachable.
+     */
+    public static final class DatabaseUnavailableException extends SQLTransientConnectionException {
+        DatabaseUnavailableException(String reason, Throwable cause) {
+            super(reason, "08001", cause);
+        }
+    }
+
+    private static final ThreadLocal<Boolean> reading = ThreadLocal.withInitial(() -> false);
+
+    private final ConnectionPool pool;
+    private final Settings settings;
+    private final CircuitBreaker breaker;
+
+    /**
+     * @param pool the pool connections are borrowed from
+     * @param settings retry and circuit breaker settings
+     */
+    public ResilientDataSource(ConnectionPool pool, Settings settings) {
+        this.pool = pool;
+        this.settings = settings;
+        this.breaker = new CircuitBreaker(settings.failureThreshold(), settings.openMillis());
+    }
+
+    /**
+     * Borrows a connection from the pool, retrying connection failures with backoff.
+     * <p>Inside a {@link Transaction} the transaction's connection is returned as usual.</p>
+     * @return a pooled connection
+     * @throws SQLException a {@link DatabaseUnavailableException} if the circuit breaker is
+     * open or the database could not be reached, or the pool's exception otherwise.
+     */
+    @Override
+    public Connection getConnection() throws SQLException {
+        if (Transaction.isActive())
+            return pool.getConnection();
+        for (int attempt = 1; ; attempt++) {
+            if (!breaker.tryAcquire())
+                throw new DatabaseUnavailableException("Database unavailable (circuit breaker open)", null);
+            try {
+                Connection conn = pool.getConnection();
+                breaker.recordSuccess();
+                return conn;
+            } catch (SQLException e) {
+                if (!isConnectionFailure(e)) {
+                    breaker.release();
+                    throw e;
+                }
+                breaker.recordFailure();
+                if (attempt >= settings.maxAttempts() || !backOff(attempt))
+                    throw new DatabaseUnavailableException("Database unavailable: " + e.getMessage(), e);
+            }
+        }
+    }
+
+    /**
+     * Runs a read, repeating it after failures that a new attempt may not hit: a lost
+     * connection or a deadlock. Timeouts, cancellations and failures to connect (already
+     * retried by {@link #getConnection()}) are not repeated, nor are reads inside a transaction.
+     * A read nested in another is repeated by the outer one only.
+     * @param read the read; it must have no side effects
+     * @param <R> the result type of the read
+     * @return the result of the read
+     * @throws SQLException the last failure, once no more tries are left.
+     */
+    public <R> R read(Read<R> read) throws SQLException {
+        if (Transaction.isActive() || reading.get())
+            return read.read();
+        reading.set(true);
+        try {
+            for (int attempt = 1; ; attempt++) {
+                try {
+                    return read.read();
+                } catch (SQLException e) {
+                    boolean retryable = !(e instanceof DatabaseUnavailableException)
+                            && !(e instanceof SQLTimeoutException)
+                            && (isConnectionFailure(e) || SERIALIZATION_FAILURE.equals(e.getSQLState()));
+                    if (!retryable || attempt >= settings.maxAttempts() || !backOff(attempt))
+                        throw e;
+                }
+            }
+        } finally {
+            reading.remove();
+        }
+    }
+
+    /**
+     * @return the circuit breaker's current state
+     */
+    public CircuitBreaker.State getState() {
+        return breaker.getState();
+    }
+
+    /**
+     * @param e a failure of a database call
+     * @return true if the failure means the database could not be reached: the breaker is open,
+     * or the driver reported a connection exception (SQLState class 08)
+     */
+    public static boolean isUnavailable(SQLException e) {
+        return e instanceof DatabaseUnavailableException || isConnectionFailure(e);
+    }
+
+    private static boolean isConnectionFailure(SQLException e) {
+        return e.getSQLState() != null && e.getSQLState().startsWith("08");
+    }
+
+    /**
+     * Waits before the next try: the delay doubles per attempt up to the maximum, and a random
+     * half of it is dropped so that clients failing together do not retry together.
+     * @return false if the wait was interrupted or the current call was cancelled
+     */
+    private boolean backOff(int attempt) {
+        CancellationToken token = CancellationToken.current();
+        if (token != null && token.isCancelled())
+            return false;
+        long delay = Math.min(settings.maxDelayMillis(), settings.baseDelayMillis() << Math.min(attempt - 1, 20));
+        try {
+            TimeUnit.MILLISECONDS.sleep(delay / 2 + ThreadLocalRandom.current().nextLong(delay / 2 + 1));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+        return token == null || !token.isCancelled();
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>Pooled connections all share the configured credentials, so this is not supported.</p>
+     */
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        throw new SQLFeatureNotSupportedException("Pooled connections use the configured credentials");
+    }
+
+    @Override
+    public PrintWriter getLogWriter() throws SQLException {
+        return pool.getLogWriter();
+    }
+
+    @Override
+    public void setLogWriter(PrintWriter out) throws SQLException {
+        pool.setLogWriter(out);
+    }
+
+    @Override
+    public void setLoginTimeout(int seconds) throws SQLException {
+        pool.setLoginTimeout(seconds);
+    }
+
+    @Override
+    public int getLoginTimeout() throws SQLException {
+        return pool.getLoginTimeout();
+    }
+
+    @Override
+    public Logger getParentLogger() throws SQLFeatureNotSupportedException {
+        return pool.getParentLogger();
+    }
+
+    @Override
+    public <T> T unwrap(Class<T> iface) throws SQLException {
+        if (iface.isInstance(this))
+            return iface.cast(this);
+        return pool.unwrap(iface);
+    }
+
+    @Override
+    public boolean isWrapperFor(Class<?> iface) throws SQLException {
+        return iface.isInstance(this) || pool.isWrapperFor(iface);
+    }
+}
@@ -0,0 +1,204 @@
+/*
+ Copyright 2022 Joseph Curtis Licensed under the Educational
+ Community License, Version 2.0 (the "License"); you may not use this file
+ except in compliance with the License. You may obtain a copy of the License at
+
+ http://opensource.org/licenses/ECL-2.0
+
+ Unless required by applicable law or agreed to in writing, software
+ distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ License for the specific language governing permissions and limitations under
+ the License.
+
+ ******************************************************************************/
+
+package utility;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLTransientException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Applies the versioned DDL scripts in <code>resources/db/migration</code> to the database.
+ * <p>Scripts are named <code>V&lt;version&gt;__&lt;description&gt;.sql</code> and applied in
+ * version order, each at most once: applied versions are recorded in the
+ * <code>schema_version</code> table. A MySQL named lock keeps two application instances
+ * starting together from applying the same script twice.</p>
+ * <p>A script that failed part-way can be re-run: an index or column that already exists is skipped,
+ * and scripts drop each trigger before creating it.</p>
+ * @author Joseph Curtis
+ * @version 2026.10.18
+ */
+public final class SchemaMigrator {
+
+    private static final String LOCATION = "/db/migration/";
+    /** every migration script, in the order they are applied; add new scripts to the end */
+    private static final List<String> SCRIPTS = List.of(
+            "V1__appointment_window_indexes.sql",
+            "V2__lookup_indexes.sql",
+            "V3__last_update_indexes.sql",
+            "V4__change_log.sql",
+            "V5__row_versions.sql");
+
+    private static final String LOCK_NAME = "client_schedule.schema_migration";
+    private static final int LOCK_TIMEOUT_SECONDS = 30;
+    private static final int ER_DUP_KEYNAME = 1061;     // MySQL: duplicate key name
+    private static final int ER_DUP_FIELDNAME = 1060;   // MySQL: duplicate column name
+    private static final String INDEX_EXISTS_STATE = "42S11";     // SQLState used by other databases
+    private static final String COLUMN_EXISTS_STATE = "42S21";
+
+    private SchemaMigrator() {}
+
+    /**
+     * Applies every script not yet recorded in <code>schema_version</code>.
+     * @param dataSource the database to migrate
+     * @return number of scripts applied
+     * @throws SQLException if a script fails; scripts before it stay applied.
+     */
+    public static int migrate(DataSource dataSource) throws SQLException {
+        try (Connection conn = dataSource.getConnection()) {
+            acquireLock(conn);
+            try {
+                createVersionTable(conn);
+                Set<Integer> appliedVersions = getAppliedVersions(conn);
+
+                int applied = 0;
+                for (String script : SCRIPTS) {
+                    int version = versionOf(script);
+                    if (appliedVersions.contains(version))
+                        continue;
+                    apply(conn, script);
+                    recordVersion(conn, version, script);
+                    System.out.println("Applied schema migration " + script);
+                    applied++;
+                }
+                return applied;
+            } finally {
+                releaseLock(conn);
+            }
+        }
+    }
+
+    private static void acquireLock(Connection conn) throws SQLException {
+        try (PreparedStatement statement = conn.prepareStatement("SELECT GET_LOCK(?, ?)")) {
+            statement.setString(1, LOCK_NAME);
+            statement.setInt(2, LOCK_TIMEOUT_SECONDS);
+            ResultSet resultSet = statement.executeQuery();
+            if (!resultSet.next() || resultSet.getInt(1) != 1)
+                throw new SQLTransientException("Timed out waiting for another instance to finish migrating");
+        }
+    }
+
+    private static void releaseLock(Connection conn) throws SQLException {
+        try (PreparedStatement statement = conn.prepareStatement("SELECT RELEASE_LOCK(?)")) {
+            statement.setString(1, LOCK_NAME);
+            statement.executeQuery();
+        }
+    }
+
+    private static void createVersionTable(Connection conn) throws SQLException {
+        try (Statement statement = conn.createStatement()) {
+            statement.execute(
+                    """
+                            CREATE TABLE IF NOT EXISTS client_schedule.schema_version (
+                                Version INT NOT NULL PRIMARY KEY,
+                                Script VARCHAR(100) NOT NULL,
+                                Applied_On TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP
+                            )
+                            """);
+        }
+    }
+
+    private static Set<Integer> getAppliedVersions(Connection conn) throws SQLException {
+        Set<Integer> versions = new HashSet<>();
+        try (Statement statement = conn.createStatement()) {
+            ResultSet resultSet = statement.executeQuery("SELECT Version FROM client_schedule.schema_version");
+            while (resultSet.next()) {
+                versions.add(resultSet.getInt(1));
+            }
+        }
+        return versions;
+    }
+
+    private static void recordVersion(Connection conn, int version, String script) throws SQLException {
+        try (PreparedStatement statement = conn.prepareStatement(
+                "INSERT INTO client_schedule.schema_version (Version, Script) VALUES (?, ?)")) {
+            statement.setInt(1, version);
+            statement.setString(2, script);
+            statement.executeUpdate();
+        }
+    }
+
+    /**
+     * Runs each statement of the script. MySQL commits DDL as it runs,
+     * so a failed script leaves the statements before it applied.
+     */
+    private static void apply(Connection conn, String script) throws SQLException {
+        try (Statement statement = conn.createStatement()) {
+            for (String sql : readStatements(script)) {
+                try {
+                    statement.execute(sql);
+                } catch (SQLException e) {
+                    if (!alreadyApplied(e))
+                        throw e;
+                    // left by an earlier, interrupted run of this script
+                }
+            }
+        }
+    }
+
+    /**
+     * @param e the error from one statement of a script
+     * @return true if the statement's index or column already exists
+     */
+    private static boolean alreadyApplied(SQLException e) {
+        return e.getErrorCode() == ER_DUP_KEYNAME
+                || e.getErrorCode() == ER_DUP_FIELDNAME
+                || INDEX_EXISTS_STATE.equals(e.getSQLState())
+                || COLUMN_EXISTS_STATE.equals(e.getSQLState());
+    }
+
+    /**
+     * @param script file name in the migration folder
+     * @return the script's statements, without comments
+     * @throws SQLException if the script cannot be read.
+     */
+    private static List<String> readStatements(String script) throws SQLException {
+        String text;
+        try (InputStream in = SchemaMigrator.class.getResourceAsStream(LOCATION + script)) {
+            if (in == null)
+                throw new SQLException("Migration script not found: " + LOCATION + script);
+            text = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new SQLException("Unable to read migration script " + script, e);
+        }
+
+        StringBuilder withoutComments = new StringBuilder();
+        for (String line : text.split("\n")) {
+            if (!line.strip().startsWith("--"))
+                withoutComments.append(line).append('\n');
+        }
+        List<String> statements = new ArrayList<>();
+        for (String sql : withoutComments.toString().split(";")) {
+            if (!sql.isBlank())
+                statements.add(sql.strip());
+        }
+        return statements;
+    }
+
+    private static int versionOf(String script) {
+        return Integer.parseInt(script.substring(1, script.indexOf("__")));
+    }
+}
@@ -0,0 +1,87 @@
+/*
+ Copyright 2022 Joseph Curtis Licensed under the Educational
+ Community License, Version 2.0 (the "License"); you may not use this file
+ except in compliance with the License. You may obtain a copy of the License at
+
+ http://opensource.org/licenses/ECL-2.0
+
+ Unless required by applicable law or agreed to in writing, software
+ distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ License for the specific language governing permissions and limitations under
+ the License.
+
+ ******************************************************************************/
+
+package utility;
+
+import java.sql.SQLException;
+import java.util.concurrent.Callable;
+
+/**
+ * Tells a caller whether its DAO calls were answered with last known results.
+ * <p>While the database is unreachable, list queries return the rows they last read instead of
+ * failing (see {@link QueryResultCache#getLastKnown}). Work {@link #run run} with a tracker is
+ * bound to it on the current thread, like a {@link CancellationToken}; each DAO call that falls
+ * back to last known rows {@link #report reports} it, so the view can tell the user the data
+ * it shows may be out of date.</p>
+ * <pre>
+ * StaleReads reads = new StaleReads();
+ * List&lt;Customer&gt; customers = reads.run(() -> dbCustomers.getAll());
+ * offlineLabel.setVisible(reads.isStale());
+ * </pre>
+ * @author Joseph Curtis
+ * @version 2026.10.18
+ */
+public final class StaleReads {
+
+    private static final ThreadLocal<StaleReads> bound = new ThreadLocal<>();
+
+    private volatile SQLException cause;
+
+    /**
+     * Runs the work with this tracker bound to the current thread; work already bound to
+     * another tracker (such as a nested call) is bound to this one until it returns.
+     * @param work the DAO calls to run
+     * @param <R> the result type of the work
+     * @return the result of the work
+     * @throws Exception whatever the work throws.
+     */
+    public <R> R run(Callable<R> work) throws Exception {
+        StaleReads outer = bound.get();
+        bound.set(this);
+        try {
+            return work.call();
+        } finally {
+            if (outer == null)
+                bound.remove();
+            else
+                bound.set(outer);
+        }
+    }
+
+    /**
+     * @return true if any DAO call of the work returned last known results
+     */
+    public boolean isStale() {
+        return cause != null;
+    }
+
+    /**
+     * @return why the database could not be read, or null if every read was current
+     */
+    public SQLException getCause() {
+        return cause;
+    }
+
+    /**
+     * Records that a DAO call on the current thread returned last known results.
+     * <p>Does nothing if no tracker is bound to the current thread.</p>
+     * @param cause the failure that kept the database from being read
+     */
+    public static void report(SQLException cause) {
+        StaleReads reads = bound.get();
+        if (reads != null && reads.cause == null)
+            reads.cause = cause;
+    }
+}
@@ -0,0 +1,255 @@
+/*
+ Copyright 2022 Joseph Curtis Licensed under the Educational
+ Community License, Version 2.0 (the "License"); you may not use this file
+ except in compliance with the License. You may obtain a copy of the License at
+
+ http://opensource.org/licenses/ECL-2.0
+
+ Unless required by applicable law or agreed to in writing, software
+ distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ License for the specific language governing permissions and limitations under
+ the License.
+
+ ******************************************************************************/
+
+package utility;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Per-connection cache of prepared statements, keyed by SQL text.
+ * <p>Each pooled physical connection owns one cache. When a DAO prepares SQL it has prepared
+ * before on the same physical connection, the existing (server-side) prepared statement is
+ * handed back instead of being parsed and planned again by MySQL. Closing the statement
+ * returned to the DAO resets its parameters and returns it to the cache, so DAO code keeps
+ * using the usual try-with-resources block.</p>
+ * <p>Hit, miss and eviction counters are shared by all connections; see {@link #getStats()}.</p>
+ * @author Joseph Curtis
+ * @version 2026.10.18
+ */
+public final class StatementCache {
+
+    private static final AtomicLong hits = new AtomicLong();
+    private static final AtomicLong misses = new AtomicLong();
+    private static final AtomicLong evictions = new AtomicLong();
+
+    /**
+     * Snapshot of the statement cache counters for all pooled connections.
+     * @param hits prepares served by an already prepared statement
+     * @param misses prepares that had to be sent to the server
+     * @param evictions cached statements closed to make room for others
+     */
+    public record Stats(long hits, long misses, long evictions) {
+        /**
+         * @return fraction of prepares served from the cache, 0 if nothing was prepared yet
+         */
+        public double hitRatio() {
+            long total = hits + misses;
+            return total == 0 ? 0 : (double) hits / total;
+        }
+    }
+
+    /**
+     * @return current hit/miss/eviction counters across all pooled connections
+     */
+    public static Stats getStats() {
+        return new Stats(hits.get(), misses.get(), evictions.get());
+    }
+
+    private final Connection physical;
+    private final int capacity;
+    private final LinkedHashMap<String, CachedStatement> statements = new LinkedHashMap<>(16, 0.75f, true);
+
+    /**
+     * @param physical the physical connection statements are prepared on
+     * @param capacity maximum number of statements kept open on the connection
+     */
+    StatementCache(Connection physical, int capacity) {
+        this.physical = physical;
+        this.capacity = capacity;
+    }
+
+    /**
+     * Gets a prepared statement for the SQL text, reusing a cached one when it is not in use.
+     * @param logicalConnection the connection the caller sees (returned by <code>getConnection()</code>)
+     * @param sql SQL text to prepare
+     * @param autoGeneratedKeys {@link Statement#RETURN_GENERATED_KEYS}, {@link Statement#NO_GENERATED_KEYS},
+     *                          or null for a plain <code>prepareStatement(sql)</code>
+     * @return a logical statement; closing it returns the statement to this cache
+     * @throws SQLException if the statement cannot be prepared.
+     */
+    synchronized PreparedStatement prepare(Connection logicalConnection,
+                                           String sql,
+                                           Integer autoGeneratedKeys) throws SQLException {
+        String key = autoGeneratedKeys == null ? sql : autoGeneratedKeys + ":" + sql;
+        CachedStatement cached = statements.get(key);
+
+        if (cached != null && !cached.inUse) {
+            hits.incrementAndGet();
+        } else {
+            misses.incrementAndGet();
+            PreparedStatement statement = autoGeneratedKeys == null
+                    ? physical.prepareStatement(sql)
+                    : physical.prepareStatement(sql, autoGeneratedKeys);
+            if (cached != null) {
+                // same SQL is already open on this connection (nested use): don't cache the second copy
+                cached = new CachedStatement(statement, null);
+            } else {
+                cached = new CachedStatement(statement, key);
+                statements.put(key, cached);
+                evictOverflow();
+            }
+        }
+        cached.inUse = true;
+        return cached.newLogicalStatement(logicalConnection);
+    }
+
+    /**
+     * Closes every cached statement. Called before the physical connection is closed.
+     */
+    synchronized void closeAll() {
+        for (CachedStatement cached : statements.values()) {
+            closeQuietly(cached.statement);
+        }
+        statements.clear();
+    }
+
+    private void evictOverflow() {
+        Iterator<CachedStatement> eldest = statements.values().iterator();
+        while (statements.size() > capacity && eldest.hasNext()) {
+            CachedStatement cached = eldest.next();
+            eldest.remove();
+            evictions.incrementAndGet();
+            if (cached.inUse)
+                cached.key = null;      // close it when the caller is done with it
+            else
+                closeQuietly(cached.statement);
+        }
+    }
+
+    /**
+     * Called when a logical statement is closed by the caller.
+     * Resets the statement so the next borrower starts from a clean state.
+     */
+    private synchronized void release(CachedStatement cached) {
+        cached.inUse = false;
+        if (cached.key == null || statements.get(cached.key) != cached) {
+            closeQuietly(cached.statement);
+            return;
+        }
+        try {
+            cached.statement.clearParameters();
+            cached.statement.clearBatch();
+            cached.statement.clearWarnings();
+            if (cached.statement.getMaxRows() != 0)
+                cached.statement.setMaxRows(0);
+            if (cached.statement.getFetchSize() != 0)
+                cached.statement.setFetchSize(0);
+            if (cached.statement.getQueryTimeout() != 0)
+                cached.statement.setQueryTimeout(0);
+        } catch (SQLException e) {
+            statements.remove(cached.key);
+            closeQuietly(cached.statement);
+        }
+    }
+
+    private static void closeQuietly(Statement statement) {
+        try {
+            statement.close();
+        } catch (SQLException e) {
+            // statement is being discarded anyway
+        }
+    }
+
+    /**
+     * A physical prepared statement owned by the cache.
+     */
+    private final class CachedStatement {
+        final PreparedStatement statement;
+        String key;         // null once the statement is no longer in the cache map
+        boolean inUse;
+
+        CachedStatement(PreparedStatement statement, String key) {
+            this.statement = statement;
+            this.key = key;
+        }
+
+        PreparedStatement newLogicalStatement(Connection logicalConnection) {
+            return (PreparedStatement) Proxy.newProxyInstance(
+                    PreparedStatement.class.getClassLoader(),
+                    new Class<?>[]{PreparedStatement.class},
+                    new LogicalStatementHandler(this, logicalConnection));
+        }
+    }
+
+    /**
+     * Forwards calls to the cached statement and tracks the result sets it opens,
+     * so they are closed when the logical statement is closed.
+     */
+    private final class LogicalStatementHandler implements InvocationHandler {
+        private final CachedStatement cached;
+        private final Connection logicalConnection;
+        private final List<ResultSet> openResultSets = new ArrayList<>(1);
+        private boolean closed = false;
+
+        LogicalStatementHandler(CachedStatement cached, Connection logicalConnection) {
+            this.cached = cached;
+            this.logicalConnection = logicalConnection;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close":
+                    if (!closed) {
+                        closed = true;
+                        for (ResultSet resultSet : openResultSets) {
+                            resultSet.close();
+                        }
+                        openResultSets.clear();
+                        release(cached);
+                    }
+                    return null;
+                case "isClosed":
+                    return closed || cached.statement.isClosed();
+                case "getConnection":
+                    return logicalConnection;
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "Cached" + cached.statement;
+                default:
+                    break;
+            }
+            if (closed)
+                throw new SQLException("Statement has already been closed");
+
+            Object result;
+            try {
+                result = method.invoke(cached.statement, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+            if (result instanceof ResultSet resultSet)
+                openResultSets.add(resultSet);
+            return result;
+        }
+    }
+
+}
@@ -0,0 +1,197 @@
+/*
+ Copyright 2022 Joseph Curtis Licensed under the Educational
+ Community License, Version 2.0 (the "License"); you may not use this file
+ except in compliance with the License. You may obtain a copy of the License at
+
+ http://opensource.org/licenses/ECL-2.0
+
+ Unless required by applicable law or agreed to in writing, software
+ distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ License for the specific language governing permissions and limitations under
+ the License.
+
+ ******************************************************************************/
+
+package utility;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A unit of work that binds one pooled connection to every DAO call made on the current thread.
+ * <p>Start one with {@link DBUtil#inTransaction(Work)}. While the work runs, every
+ * <code>getConnection()</code> on the pool returns the transaction's connection, so several
+ * DAOs (and several calls on one DAO) share a single connection checkout and commit or roll
+ * back together. A transaction started inside another one joins the outer transaction.</p>
+ * @author Joseph Curtis
+ * @version 2026.10.18
+ */
+public final class Transaction {
+
+    private static final ThreadLocal<Transaction> current = new ThreadLocal<>();
+
+    /**
+     * The work to run inside a transaction.
+     * @param <R> the result type of the work
+     */
+    @FunctionalInterface
+    public interface Work<R> {
+        /**
+         * @param transaction the running transaction
+         * @return the result of the work
+         * @throws SQLException if any error occurs; the transaction is rolled back.
+         */
+        R execute(Transaction transaction) throws SQLException;
+    }
+
+    private final Connection connection;
+    private final ConnectionPool owner;
+    private final Connection sharedConnection;
+    private final List<Runnable> afterCommitActions = new ArrayList<>();
+    private boolean rollbackOnly = false;
+
+    private Transaction(Connection connection, ConnectionPool owner) {
+        this.connection = connection;
+        this.owner = owner;
+        this.sharedConnection = (Connection) Proxy.newProxyInstance(
+                Connection.class.getClassLoader(),
+                new Class<?>[]{Connection.class},
+                new SharedConnectionHandler());
+    }
+
+    /**
+     * Runs the work in a transaction on a connection from the given pool, or joins the
+     * transaction already running on this thread.
+     * @param pool the pool the transaction's connection belongs to
+     * @param source where the connection is borrowed from: the pool, or a wrapper around it
+     * @param isolationLevel one of the <code>Connection.TRANSACTION_*</code> levels,
+     *                       or {@link Connection#TRANSACTION_NONE} for the connection default
+     * @param work the work to run
+     * @param <R> the result type of the work
+     * @return the result of the work
+     * @throws SQLException if the work or the commit fails; the transaction is rolled back.
+     */
+    static <R> R run(ConnectionPool pool, DataSource source, int isolationLevel, Work<R> work) throws SQLException {
+        Transaction enclosing = current.get();
+        if (enclosing != null)
+            return work.execute(enclosing);
+
+        try (Connection conn = source.getConnection()) {
+            conn.setAutoCommit(false);    // start transaction
+            if (isolationLevel != Connection.TRANSACTION_NONE)
+                conn.setTransactionIsolation(isolationLevel);
+
+            Transaction transaction = new Transaction(conn, pool);
+            current.set(transaction);
+            R result;
+            try {
+                result = work.execute(transaction);
+                if (transaction.rollbackOnly) {
+                    conn.rollback();
+                    return result;
+                }
+                conn.commit();
+            } catch (SQLException | RuntimeException | Error e) {
+                try {
+                    conn.rollback();
+                } catch (SQLException rollbackError) {
+                    e.addSuppressed(rollbackError);
+                }
+                throw e;
+            } finally {
+                current.remove();
+            }
+            transaction.afterCommitActions.forEach(Runnable::run);
+            return result;
+        }
+    }
+
+    /**
+     * @param pool the pool asking for a connection
+     * @return the connection bound to this thread's transaction on that pool, or null if none
+     */
+    static Connection boundConnection(ConnectionPool pool) {
+        Transaction transaction = current.get();
+        return transaction != null && transaction.owner == pool ? transaction.sharedConnection : null;
+    }
+
+    /**
+     * @return true if a transaction is running on the current thread
+     */
+    public static boolean isActive() {
+        return current.get() != null;
+    }
+
+    /**
+     * Runs the action once the current transaction commits, or right away if no transaction is running.
+     * The action is dropped if the transaction rolls back.
+     * @param action work that must only happen after the data is committed (such as updating caches)
+     */
+    public static void afterCommit(Runnable action) {
+        Transaction transaction = current.get();
+        if (transaction == null)
+            action.run();
+        else
+            transaction.afterCommitActions.add(action);
+    }
+
+    /**
+     * Marks the transaction to be rolled back instead of committed when the work finishes.
+     */
+    public void setRollbackOnly() {
+        rollbackOnly = true;
+    }
+
+    /**
+     * @return true if the transaction will be rolled back when the work finishes
+     */
+    public boolean isRollbackOnly() {
+        return rollbackOnly;
+    }
+
+    /**
+     * @return the connection shared by all DAO calls in this transaction.
+     * Closing it has no effect; the transaction ends when the work returns.
+     */
+    public Connection getConnection() {
+        return sharedConnection;
+    }
+
+    /**
+     * Hands DAO calls the transaction's connection, ignoring <code>close()</code>
+     * and refusing calls that would end or reconfigure the transaction early.
+     */
+    private final class SharedConnectionHandler implements InvocationHandler {
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close":
+                    return null;
+                case "commit":
+                case "rollback":
+                case "setAutoCommit":
+                case "setTransactionIsolation":
+                    throw new SQLException(method.getName() + "() is managed by the enclosing transaction");
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                default:
+                    break;
+            }
+            try {
+                return method.invoke(connection, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        }
+    }
+}
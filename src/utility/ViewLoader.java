@@ -0,0 +1,177 @@
+/*
+ Copyright 2022 Joseph Curtis Licensed under the Educational
+ Community License, Version 2.0 (the "License"); you may not use this file
+ except in compliance with the License. You may obtain a copy of the License at
+
+ http://opensource.org/licenses/ECL-2.0
+
+ Unless required by applicable law or agreed to in writing, software
+ distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ License for the specific language governing permissions and limitations under
+ the License.
+
+ ******************************************************************************/
+
+package utility;
+
+import javafx.beans.property.ReadOnlyBooleanProperty;
+import javafx.beans.property.ReadOnlyBooleanWrapper;
+import javafx.concurrent.Task;
+import javafx.scene.Node;
+import javafx.scene.control.ProgressIndicator;
+import javafx.scene.control.Tooltip;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * Runs a view's database reads off the JavaFX application thread, so the window stays responsive
+ * however long the database takes.
+ * <p>Each {@link #load} runs its work as a JavaFX {@link Task} on a small pool of daemon threads,
+ * then hands the result to the view on the application thread. A view keeps one loader per
+ * kind of data it shows: starting a load cancels the one still running (such as when the user
+ * switches from the week view to the month view), so only the latest result is ever shown.
+ * While a load runs, the view's progress indicator (if any) is shown.</p>
+ * <p>Cancelling drops the result and cancels the load's running query through a
+ * {@link CancellationToken}, so its connection goes back to the pool right away.
+ * Clicking the progress indicator cancels the load.</p>
+ * <p>While the database is unreachable, a load may be answered with last known rows (see
+ * {@link StaleReads}); {@link #showingLastKnownProperty()} tells the view so it can say so.</p>
+ * @author Joseph Curtis
+ * @version 2026.10.18
+ */
+public final class ViewLoader {
+
+    /** Threads reading for views; fewer than the connection pool holds, so dialogs can still write. */
+    public static final int MAX_THREADS = 4;
+
+    private static final AtomicInteger threadCount = new AtomicInteger();
+    private static final ExecutorService executor = Executors.newFixedThreadPool(MAX_THREADS, runnable -> {
+        Thread thread = new Thread(runnable, "view-loader-" + threadCount.incrementAndGet());
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final ProgressIndicator progress;
+    private final ReadOnlyBooleanWrapper showingLastKnown = new ReadOnlyBooleanWrapper(false);
+    private Task<?> current;
+
+    /**
+     * Creates a loader with no progress indicator.
+     */
+    public ViewLoader() {
+        this(null);
+    }
+
+    /**
+     * @param progress shown while a load runs (may be null)
+     */
+    public ViewLoader(ProgressIndicator progress) {
+        this.progress = progress;
+        if (progress != null) {
+            progress.setVisible(false);
+            progress.setOnMouseClicked(event -> cancel());
+            Tooltip.install(progress, new Tooltip("Click to cancel"));
+        }
+    }
+
+    /**
+     * Starts reading in the background, cancelling this loader's previous load if it is still running.
+     * <p>Call on the JavaFX application thread.</p>
+     * @param work the database reads; must not touch the scene graph
+     * @param onLoaded receives the result on the JavaFX application thread, unless the load was cancelled
+     * @param <R> the result type
+     * @return the running task
+     */
+    public <R> Task<R> load(Callable<R> work, Consumer<R> onLoaded) {
+        cancel();
+        StaleReads reads = new StaleReads();
+        Task<R> task = run(() -> reads.run(work), result -> {
+            showingLastKnown.set(reads.isStale());
+            onLoaded.accept(result);
+        });
+        current = task;
+        if (progress != null)
+            progress.visibleProperty().bind(task.runningProperty());
+        return task;
+    }
+
+    /**
+     * @return true if this loader's latest load has not finished yet
+     */
+    public boolean isLoading() {
+        return current != null && !current.isDone();
+    }
+
+    /**
+     * @return true while the view shows a load that was answered, at least in part, with last
+     * known results because the database was unreachable; updated on the JavaFX application thread
+     */
+    public ReadOnlyBooleanProperty showingLastKnownProperty() {
+        return showingLastKnown.getReadOnlyProperty();
+    }
+
+    /**
+     * Cancels this loader's running load, if any; its result is never delivered.
+     */
+    public void cancel() {
+        if (current != null)
+            current.cancel();
+    }
+
+    /**
+     * Cancels this loader's running load when the node's window is hidden (such as when a report is closed).
+     * <p>Call from a controller's <code>initialize</code>.</p>
+     * @param node any node of the view
+     */
+    public void cancelWhenHidden(Node node) {
+        node.sceneProperty().addListener((sceneObservable, oldScene, scene) -> {
+            if (scene == null)
+                return;
+            scene.windowProperty().addListener((windowObservable, oldWindow, window) -> {
+                if (window != null)
+                    window.showingProperty().addListener((showingObservable, wasShowing, showing) -> {
+                        if (!showing)
+                            cancel();
+                    });
+            });
+        });
+    }
+
+    /**
+     * Reads in the background once, with no progress indicator.
+     * <p>Cancelling the returned task cancels its running query.</p>
+     * @param work the database reads; must not touch the scene graph
+     * @param onLoaded receives the result on the JavaFX application thread
+     * @param <R> the result type
+     * @return the running task
+     */
+    public static <R> Task<R> run(Callable<R> work, Consumer<R> onLoaded) {
+        CancellationToken token = new CancellationToken();
+        Task<R> task = new Task<>() {
+            @Override
+            protected R call() throws Exception {
+                return token.run(work);
+            }
+
+            @Override
+            public boolean cancel(boolean mayInterruptIfRunning) {
+                boolean cancelled = super.cancel(mayInterruptIfRunning);
+                if (cancelled)
+                    token.cancel();
+                return cancelled;
+            }
+        };
+        task.setOnSucceeded(event -> onLoaded.accept(task.getValue()));
+        task.setOnFailed(event -> {
+            System.out.println("Error loading data: " + task.getException().getMessage());
+            task.getException().printStackTrace();
+        });
+        executor.execute(task);
+        return task;
+    }
+}